@@ -0,0 +1,17 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Attendee {
+
+  private UUID id;
+  private String name;
+  private FoodPreference foodPreference;
+}
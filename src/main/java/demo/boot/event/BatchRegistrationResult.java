@@ -0,0 +1,20 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/* What became of the queued registrations of a batch that were not registered by it */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRegistrationResult {
+
+  /* The event is missing, expired or fully booked */
+  private List<QueuedRegistration> rejected;
+
+  /* Already registered, by a redelivery or a retry with the same idempotency key */
+  private List<QueuedRegistration> skipped;
+}
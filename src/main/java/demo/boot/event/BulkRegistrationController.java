@@ -0,0 +1,120 @@
+package demo.boot.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static demo.boot.office.OfficeController.APPLICATION_NDJSON;
+import static demo.boot.office.OfficeController.APPLICATION_NDJSON_VALUE;
+
+@RestController
+public class BulkRegistrationController {
+
+  private final BulkRegistrationService service;
+  private final EventMetadataCache events;
+  private final ObjectMapper objectMapper;
+  private final int chunkSize;
+
+  public BulkRegistrationController( final BulkRegistrationService service, final EventMetadataCache events,
+    final ObjectMapper objectMapper, @Value( "${app.registration.bulk.chunk-size:500}" ) final int chunkSize ) {
+    this.service = service;
+    this.events = events;
+    this.objectMapper = objectMapper;
+    this.chunkSize = chunkSize;
+  }
+
+  /*
+   * Takes a JSON array or newline delimited JSON of registration requests, and streams back one result per request.
+   * The status is sent with the first result, thus only a missing or expired event is reported as such.
+   */
+  @PostMapping(
+    value = "/event/{eventId}/register/bulk",
+    consumes = { MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE },
+    produces = APPLICATION_NDJSON_VALUE
+  )
+  public ResponseEntity<StreamingResponseBody> register( final @PathVariable( "eventId" ) UUID eventId,
+    final InputStream input ) {
+    if ( !events.isOpen( eventId ) ) {
+      return ResponseEntity.notFound().build();
+    }
+
+    return ResponseEntity
+      .ok()
+      .contentType( APPLICATION_NDJSON )
+      .body( output -> registerInChunks( eventId, input, output ) );
+  }
+
+  /* The requests are read one at a time, thus at most a chunk of them is held, and each chunk is answered at once */
+  private void registerInChunks( final UUID eventId, final InputStream input, final OutputStream output )
+    throws IOException {
+    List<RegistrationRequest> chunk = new ArrayList<>( chunkSize );
+    int index = 0;
+    boolean malformed = false;
+
+    /* An array is read element by element, like the values of newline delimited JSON */
+    try ( final MappingIterator<RegistrationRequest> requests =
+            objectMapper.readerFor( RegistrationRequest.class ).readValues( input ) ) {
+      while ( requests.hasNextValue() ) {
+        chunk.add( nextRequest( requests ) );
+        if ( chunk.size() == chunkSize ) {
+          index = register( eventId, index, chunk, output );
+          chunk = new ArrayList<>( chunkSize );
+        }
+      }
+    } catch ( final JsonProcessingException e ) {
+      malformed = true;
+    }
+
+    /* The requests read before the body became unreadable are still registered */
+    index = register( eventId, index, chunk, output );
+    if ( malformed ) {
+      writeLine( output, BulkRegistrationResult.malformed( index ) );
+    }
+  }
+
+  /*
+   * A value that is well formed JSON, but not a registration request, as one with an unknown food preference, is
+   * skipped and answered as invalid, while the values that follow it are still read.
+   */
+  private static RegistrationRequest nextRequest( final MappingIterator<RegistrationRequest> requests )
+    throws IOException {
+    try {
+      return requests.nextValue();
+    } catch ( final JsonMappingException e ) {
+      return null;
+    }
+  }
+
+  private int register( final UUID eventId, final int index, final List<RegistrationRequest> chunk,
+    final OutputStream output ) throws IOException {
+    if ( chunk.isEmpty() ) {
+      return index;
+    }
+
+    for ( final BulkRegistrationResult result : service.register( eventId, index, chunk ) ) {
+      writeLine( output, result );
+    }
+    output.flush();
+    return index + chunk.size();
+  }
+
+  private void writeLine( final OutputStream output, final BulkRegistrationResult result ) throws IOException {
+    output.write( objectMapper.writeValueAsBytes( result ) );
+    output.write( '\n' );
+  }
+}
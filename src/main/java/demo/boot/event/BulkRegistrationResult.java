@@ -0,0 +1,47 @@
+package demo.boot.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/* The outcome of one request of a bulk registration, identified by its position in the body */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRegistrationResult {
+
+  public enum Status {
+    REGISTERED,
+    /* The event is fully booked or no longer takes registrations */
+    REJECTED,
+    /* The request has no name, a name too long, no food preference or values that are not understood */
+    INVALID,
+    /* The body could not be read from here on, thus neither this nor the following requests were registered */
+    MALFORMED
+  }
+
+  private int index;
+  private Status status;
+
+  @JsonInclude( JsonInclude.Include.NON_NULL )
+  private UUID id;
+
+  public static BulkRegistrationResult registered( final int index, final UUID id ) {
+    return new BulkRegistrationResult( index, Status.REGISTERED, id );
+  }
+
+  public static BulkRegistrationResult rejected( final int index ) {
+    return new BulkRegistrationResult( index, Status.REJECTED, null );
+  }
+
+  public static BulkRegistrationResult invalid( final int index ) {
+    return new BulkRegistrationResult( index, Status.INVALID, null );
+  }
+
+  public static BulkRegistrationResult malformed( final int index ) {
+    return new BulkRegistrationResult( index, Status.MALFORMED, null );
+  }
+}
@@ -0,0 +1,65 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Registers the requests of a bulk registration one chunk at a time. Each chunk is registered like a batch from the
+ * event queue: the seats are taken in one statement, the attendees and their food preferences are inserted in JDBC
+ * batches, and all is committed together. The relay then publishes the food preferences in batches too.
+ */
+@Service
+@AllArgsConstructor
+public class BulkRegistrationService {
+
+  /* As long as the column holding it, as a longer name would fail the whole chunk */
+  static final int MAXIMUM_NAME_LENGTH = 64;
+
+  private final EventRegistrationService service;
+  private final UuidGeneratorService uuidGeneratorService;
+
+  /* Returns one result per request, in the same order, indexed from the given index of the first request */
+  public List<BulkRegistrationResult> register( final UUID eventId, final int firstIndex,
+    final List<RegistrationRequest> requests ) {
+    final QueuedRegistration[] registrations = new QueuedRegistration[requests.size()];
+    final List<QueuedRegistration> valid = new ArrayList<>( requests.size() );
+    for ( int i = 0; i < requests.size(); i++ ) {
+      final RegistrationRequest request = requests.get( i );
+      if ( isValid( request ) ) {
+        registrations[i] = new QueuedRegistration( uuidGeneratorService.nextAttendeeId(), eventId, request.getName(),
+          request.getFoodPreference() );
+        valid.add( registrations[i] );
+      }
+    }
+
+    final Set<QueuedRegistration> rejected =
+      valid.isEmpty() ? Set.of() : new HashSet<>( service.registerAll( valid ).getRejected() );
+
+    final List<BulkRegistrationResult> results = new ArrayList<>( requests.size() );
+    for ( int i = 0; i < registrations.length; i++ ) {
+      final QueuedRegistration registration = registrations[i];
+      if ( registration == null ) {
+        results.add( BulkRegistrationResult.invalid( firstIndex + i ) );
+      } else if ( rejected.contains( registration ) ) {
+        results.add( BulkRegistrationResult.rejected( firstIndex + i ) );
+      } else {
+        results.add( BulkRegistrationResult.registered( firstIndex + i, registration.getAttendeeId() ) );
+      }
+    }
+    return results;
+  }
+
+  private static boolean isValid( final RegistrationRequest request ) {
+    return request != null
+      && request.getName() != null
+      && !request.getName().isBlank()
+      && request.getName().length() <= MAXIMUM_NAME_LENGTH
+      && request.getFoodPreference() != null;
+  }
+}
@@ -0,0 +1,93 @@
+package demo.boot.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static demo.boot.office.OfficeController.APPLICATION_NDJSON;
+import static demo.boot.office.OfficeController.APPLICATION_NDJSON_VALUE;
+
+@RestController
+@AllArgsConstructor
+public class EventAttendeeController {
+
+  private static final int MAX_PAGE_SIZE = 1000;
+
+  private final EventAttendeeService service;
+  private final ObjectMapper objectMapper;
+
+  @GetMapping( "/event/{eventId}/attendees" )
+  public ResponseEntity<List<Attendee>> attendees(
+    final @PathVariable( "eventId" ) UUID eventId,
+    final @RequestParam( value = "after", required = false ) UUID after,
+    final @RequestParam( value = "limit", defaultValue = "100" ) int limit
+  ) {
+    if ( limit < 1 ) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    final int size = Math.min( limit, MAX_PAGE_SIZE );
+    return service
+      .listAfter( eventId, after, size )
+      .map( page -> withNextPageLink( eventId, page, size ) )
+      .orElse( ResponseEntity.notFound().build() );
+  }
+
+  /* The status is sent with the first line, thus an unknown event is only reported before the stream starts */
+  @GetMapping( value = "/event/{eventId}/attendees", produces = APPLICATION_NDJSON_VALUE )
+  public ResponseEntity<StreamingResponseBody> attendeesStream( final @PathVariable( "eventId" ) UUID eventId ) {
+    if ( !service.exists( eventId ) ) {
+      return ResponseEntity.notFound().build();
+    }
+
+    return ResponseEntity
+      .ok()
+      .contentType( APPLICATION_NDJSON )
+      .body( output -> service.streamAll( eventId, writeLine( output ) ) );
+  }
+
+  /* A full page may be followed by more attendees, which are found after the last attendee in this page */
+  private static ResponseEntity<List<Attendee>> withNextPageLink( final UUID eventId, final List<Attendee> page,
+    final int size ) {
+    if ( page.size() < size ) {
+      return ResponseEntity.ok( page );
+    }
+
+    final String next = UriComponentsBuilder
+      .fromPath( "/event/{eventId}/attendees" )
+      .queryParam( "after", page.get( page.size() - 1 ).getId() )
+      .queryParam( "limit", size )
+      .buildAndExpand( eventId )
+      .toUriString();
+
+    return ResponseEntity
+      .ok()
+      .header( HttpHeaders.LINK, String.format( "<%s>; rel=\"next\"", next ) )
+      .body( page );
+  }
+
+  private Consumer<Attendee> writeLine( final OutputStream output ) {
+    return attendee -> {
+      try {
+        output.write( objectMapper.writeValueAsBytes( attendee ) );
+        output.write( '\n' );
+      } catch ( final IOException e ) {
+        throw new UncheckedIOException( e );
+      }
+    };
+  }
+}
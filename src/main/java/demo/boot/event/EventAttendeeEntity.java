@@ -1,24 +1,29 @@
 package demo.boot.event;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import java.util.UUID;
 
 @Data
 @Entity
 @Table( name = "events_attendees" )
-@AllArgsConstructor
 @NoArgsConstructor
-public class EventAttendeeEntity {
+public class EventAttendeeEntity implements Persistable<UUID> {
 
   @Id
   private UUID id;
@@ -28,7 +33,44 @@ public class EventAttendeeEntity {
   @Enumerated( EnumType.STRING )
   private FoodPreference foodPreference;
 
-  @ManyToOne
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  @ManyToOne( fetch = FetchType.LAZY )
   @JoinColumn( name = "event", nullable = false )
   private EventEntity event;
+
+  /* Unique per event, when given */
+  private String idempotencyKey;
+
+  /* The id is assigned by the application, thus tells nothing about whether the attendee was already saved */
+  @Transient
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private boolean persisted;
+
+  public EventAttendeeEntity( final UUID id, final String name, final FoodPreference foodPreference,
+    final EventEntity event ) {
+    this( id, name, foodPreference, event, null );
+  }
+
+  public EventAttendeeEntity( final UUID id, final String name, final FoodPreference foodPreference,
+    final EventEntity event, final String idempotencyKey ) {
+    this.id = id;
+    this.name = name;
+    this.foodPreference = foodPreference;
+    this.event = event;
+    this.idempotencyKey = idempotencyKey;
+  }
+
+  /* New attendees are inserted straight away, rather than merged, which would select them first */
+  @Override
+  public boolean isNew() {
+    return !persisted;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markPersisted() {
+    persisted = true;
+  }
 }
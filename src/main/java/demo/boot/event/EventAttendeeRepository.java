@@ -1,10 +1,62 @@
 package demo.boot.event;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface EventAttendeeRepository extends JpaRepository<EventAttendeeEntity, UUID> {
+
+  /* The ids of the given attendees that are already registered, without loading them */
+  @Query( "SELECT a.id FROM EventAttendeeEntity a WHERE a.id IN :ids" )
+  Set<UUID> findExistingIds( @Param( "ids" ) final Collection<UUID> ids );
+
+  /* The attendee registered for the event with the given idempotency key, if any */
+  @Query( "SELECT a.id FROM EventAttendeeEntity a WHERE a.event.id = :eventId AND a.idempotencyKey = :key" )
+  Optional<UUID> findIdByIdempotencyKey( @Param( "eventId" ) final UUID eventId, @Param( "key" ) final String key );
+
+  /* The given idempotency keys that were already used for the event */
+  @Query( "SELECT a.idempotencyKey FROM EventAttendeeEntity a"
+    + " WHERE a.event.id = :eventId AND a.idempotencyKey IN :keys" )
+  Set<String> findExistingIdempotencyKeys( @Param( "eventId" ) final UUID eventId,
+    @Param( "keys" ) final Collection<String> keys );
+
+  /* Keyset pagination over the event and id index, where the first page starts after no attendee */
+  @Query( "SELECT new demo.boot.event.Attendee( a.id, a.name, a.foodPreference )"
+    + " FROM EventAttendeeEntity a"
+    + " WHERE a.event.id = :eventId"
+    + " ORDER BY a.id" )
+  List<Attendee> findAttendees( @Param( "eventId" ) final UUID eventId, final Pageable pageable );
+
+  @Query( "SELECT new demo.boot.event.Attendee( a.id, a.name, a.foodPreference )"
+    + " FROM EventAttendeeEntity a"
+    + " WHERE a.event.id = :eventId AND a.id > :after"
+    + " ORDER BY a.id" )
+  List<Attendee> findAttendeesAfter( @Param( "eventId" ) final UUID eventId, @Param( "after" ) final UUID after,
+    final Pageable pageable );
+
+  /* A forward-only cursor of projections, thus nothing is kept in the persistence context while it is read */
+  @QueryHints( {
+    @QueryHint( name = HINT_FETCH_SIZE, value = "500" ),
+    @QueryHint( name = HINT_READONLY, value = "true" )
+  } )
+  @Query( "SELECT new demo.boot.event.Attendee( a.id, a.name, a.foodPreference )"
+    + " FROM EventAttendeeEntity a"
+    + " WHERE a.event.id = :eventId"
+    + " ORDER BY a.id" )
+  Stream<Attendee> streamAttendees( @Param( "eventId" ) final UUID eventId );
 }
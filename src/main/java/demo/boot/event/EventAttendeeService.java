@@ -0,0 +1,47 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/* Lists the attendees of an event without loading the event and its attendees collection */
+@Service
+@AllArgsConstructor
+public class EventAttendeeService {
+
+  private final EventMetadataCache events;
+  private final EventAttendeeRepository attendeeRepository;
+
+  public boolean exists( final UUID eventId ) {
+    return events.find( eventId ).isPresent();
+  }
+
+  /* Up to limit attendees ordered by id, starting after the given id (null for the first page), if the event exists */
+  @Transactional( readOnly = true )
+  public Optional<List<Attendee>> listAfter( final UUID eventId, final UUID after, final int limit ) {
+    if ( !exists( eventId ) ) {
+      return Optional.empty();
+    }
+
+    final Pageable page = PageRequest.of( 0, limit );
+    return Optional.of( after == null
+      ? attendeeRepository.findAttendees( eventId, page )
+      : attendeeRepository.findAttendeesAfter( eventId, after, page ) );
+  }
+
+  /* The fetch size makes the driver use a server-side cursor, which is only possible within a transaction */
+  @Transactional( readOnly = true )
+  public void streamAll( final UUID eventId, final Consumer<Attendee> consumer ) {
+    try ( final Stream<Attendee> attendees = attendeeRepository.streamAttendees( eventId ) ) {
+      attendees.forEach( consumer );
+    }
+  }
+}
@@ -3,13 +3,18 @@ package demo.boot.event;
 import demo.boot.office.OfficeEntity;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import java.time.LocalDate;
@@ -20,20 +25,36 @@ import java.util.UUID;
 @Data
 @Entity
 @Table( name = "events" )
+@NamedEntityGraph( name = EventEntity.WITH_OFFICE, attributeNodes = @NamedAttributeNode( "office" ) )
+@NamedEntityGraph( name = EventEntity.WITH_ATTENDEES, attributeNodes = @NamedAttributeNode( "attendees" ) )
 @AllArgsConstructor
 @NoArgsConstructor
 public class EventEntity {
 
+  /* Fetch plans, as nothing other than the event itself is loaded unless asked for */
+  public static final String WITH_OFFICE = "EventEntity.office";
+  public static final String WITH_ATTENDEES = "EventEntity.attendees";
+
   @Id
   private UUID id;
   private LocalDate date;
   private String caption;
   private String description;
 
-  @ManyToOne
+  /* Null when the number of attendees is not limited */
+  private Integer capacity;
+
+  /* Only ever changed by the conditional reservation in the repository */
+  private int registered;
+
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  @ManyToOne( fetch = FetchType.LAZY )
   @JoinColumn( name = "office", nullable = false )
   private OfficeEntity office;
 
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
   @OneToMany( mappedBy = "event", cascade = CascadeType.ALL )
   private List<EventAttendeeEntity> attendees = new ArrayList<>();
 
@@ -1,21 +1,158 @@
 package demo.boot.event;
 
-import org.springframework.amqp.core.AmqpTemplate;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.support.converter.MessageConversionException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes the food preferences to the food exchange, which fans them out to the food queue and to the queue of the
+ * food summaries, without waiting for each to be confirmed by the broker. Up to the window of publishes are
+ * outstanding at any time, and the oldest confirm is awaited before the next is published. The preferences the broker
+ * rejected, could not route or did not confirm in time are handed back to the caller, apart by whether they failed
+ * themselves or the broker did not answer.
+ */
+@Slf4j
 @Service
 public class EventFoodGateway {
 
-  private final String queueName;
-  private final AmqpTemplate template;
+  /* The reasons that tell of the broker rather than of the preference */
+  private static final Set<String> UNANSWERED = Set.of( "timeout", "interrupted" );
+
+  private final String exchangeName;
+  private final RabbitOperations template;
+  private final int window;
+  private final Duration confirmTimeout;
+  private final MeterRegistry registry;
+  private final Clock clock;
+  private final Timer confirmLatency;
+  private final DistributionSummary throughput;
 
-  public EventFoodGateway( @Value( "${app.queue.food}" ) final String queueName, final AmqpTemplate template ) {
-    this.queueName = queueName;
+  public EventFoodGateway( @Value( "${app.queue.food-exchange}" ) final String exchangeName,
+    final RabbitOperations template, final MeterRegistry registry,
+    @Value( "${app.queue.food-publish.window:256}" ) final int window,
+    @Value( "${app.queue.food-publish.confirm-timeout:PT5S}" ) final Duration confirmTimeout ) {
+    this.exchangeName = exchangeName;
     this.template = template;
+    this.window = Math.max( 1, window );
+    this.confirmTimeout = confirmTimeout;
+    this.registry = registry;
+    this.clock = registry.config().clock();
+    this.confirmLatency = Timer
+      .builder( "app.food.publish.confirm.latency" )
+      .description( "Time from publishing a food preference until the broker confirmed it" )
+      .publishPercentiles( 0.5, 0.99 )
+      .register( registry );
+    this.throughput = DistributionSummary
+      .builder( "app.food.publish.batch.throughput" )
+      .description( "Food preferences published and confirmed per second, for each batch" )
+      .baseUnit( "messages/second" )
+      .register( registry );
+  }
+
+  /* Returns the preferences that were not confirmed, which the caller is expected to retry */
+  public FoodPublishResult submitAll( final List<AttendeeFoodPreference> preferences ) {
+    final long started = clock.monotonicTime();
+    final Deque<Pending> outstanding = new ArrayDeque<>( Math.min( window, preferences.size() ) );
+    final FoodPublishResult result = new FoodPublishResult( new ArrayList<>(), new ArrayList<>() );
+
+    for ( final AttendeeFoodPreference preference : preferences ) {
+      if ( outstanding.size() == window ) {
+        awaitConfirm( outstanding.removeFirst(), result );
+      }
+      outstanding.addLast( publish( preference ) );
+    }
+    while ( !outstanding.isEmpty() ) {
+      awaitConfirm( outstanding.removeFirst(), result );
+    }
+
+    final long elapsed = clock.monotonicTime() - started;
+    if ( elapsed > 0 && !preferences.isEmpty() ) {
+      final int confirmed = preferences.size() - result.getFailed().size() - result.getUnanswered().size();
+      throughput.record( confirmed * (double) TimeUnit.SECONDS.toNanos( 1 ) / elapsed );
+    }
+    return result;
+  }
+
+  private Pending publish( final AttendeeFoodPreference preference ) {
+    final CorrelationData correlation = new CorrelationData( UUID.randomUUID().toString() );
+    final long sentAt = clock.monotonicTime();
+    try {
+      template.convertAndSend( exchangeName, "", preference, correlation );
+    } catch ( final MessageConversionException e ) {
+      /* Only this preference cannot be sent, thus it is handed back like one the broker rejected */
+      log.warn( "The food preference {} could not be converted", preference, e );
+      correlation.getFuture().setException( e );
+    }
+    return new Pending( preference, correlation, sentAt );
+  }
+
+  private void awaitConfirm( final Pending pending, final FoodPublishResult result ) {
+    final String failure = confirmFailure( pending );
+    if ( failure == null ) {
+      confirmLatency.record( clock.monotonicTime() - pending.sentAt, TimeUnit.NANOSECONDS );
+      return;
+    }
+
+    registry.counter( "app.food.publish.unconfirmed", "reason", failure ).increment();
+    if ( UNANSWERED.contains( failure ) ) {
+      result.getUnanswered().add( pending.preference );
+    } else {
+      result.getFailed().add( pending.preference );
+    }
   }
 
-  public void submit( final AttendeeFoodPreference preference ) {
-    template.convertAndSend( queueName, preference );
+  /* Null when confirmed, otherwise why it was not */
+  private String confirmFailure( final Pending pending ) {
+    final long remaining = confirmTimeout.toNanos() - ( clock.monotonicTime() - pending.sentAt );
+    try {
+      final CorrelationData.Confirm confirm =
+        pending.correlation.getFuture().get( Math.max( 0, remaining ), TimeUnit.NANOSECONDS );
+      if ( !confirm.isAck() ) {
+        log.warn( "The broker rejected the food preference {}: {}", pending.preference, confirm.getReason() );
+        return "nack";
+      }
+      if ( pending.correlation.getReturnedMessage() != null ) {
+        log.warn( "The broker could not route the food preference {} through {}", pending.preference, exchangeName );
+        return "returned";
+      }
+      return null;
+    } catch ( final TimeoutException e ) {
+      return "timeout";
+    } catch ( final ExecutionException e ) {
+      return "error";
+    } catch ( final InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return "interrupted";
+    }
+  }
+
+  private static final class Pending {
+    private final AttendeeFoodPreference preference;
+    private final CorrelationData correlation;
+    private final long sentAt;
+
+    private Pending( final AttendeeFoodPreference preference, final CorrelationData correlation, final long sentAt ) {
+      this.preference = preference;
+      this.correlation = correlation;
+      this.sentAt = sentAt;
+    }
   }
 }
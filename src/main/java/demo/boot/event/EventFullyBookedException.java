@@ -0,0 +1,14 @@
+package demo.boot.event;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.UUID;
+
+@ResponseStatus( HttpStatus.CONFLICT )
+public class EventFullyBookedException extends RuntimeException {
+
+  public EventFullyBookedException( final UUID eventId ) {
+    super( String.format( "Event %s is fully booked", eventId ) );
+  }
+}
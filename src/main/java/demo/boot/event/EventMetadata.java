@@ -0,0 +1,27 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/* What an event is, without the seats taken and its attendees, which change with every registration */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventMetadata {
+
+  private UUID id;
+  private String office;
+  private LocalDate date;
+  private String caption;
+  private String description;
+  private Integer capacity;
+
+  /* Registrations are taken until the day before the event */
+  public boolean isOpen( final LocalDate today ) {
+    return date.isAfter( today );
+  }
+}
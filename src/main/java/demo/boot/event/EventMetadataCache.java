@@ -0,0 +1,117 @@
+package demo.boot.event;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Read-through cache of the event metadata, which only changes with the migrations. An event is evicted once it stops
+ * taking registrations, or after the time to live, whichever comes first, and the events that do not exist are
+ * remembered for a shorter time. The upcoming events are loaded when the application starts.
+ */
+@Component
+public class EventMetadataCache {
+
+  private final EventRepository repository;
+  private final long maximumSize;
+  private final Duration timeToLive;
+  private final Duration missingTimeToLive;
+  private final Cache<UUID, Optional<EventMetadata>> events;
+  private final Counter hits;
+  private final Counter misses;
+
+  public EventMetadataCache( final EventRepository repository, final MeterRegistry registry,
+    @Value( "${app.events.cache.maximum-size:10000}" ) final long maximumSize,
+    @Value( "${app.events.cache.time-to-live:PT10M}" ) final Duration timeToLive,
+    @Value( "${app.events.cache.missing-time-to-live:PT30S}" ) final Duration missingTimeToLive ) {
+    this.repository = repository;
+    this.maximumSize = maximumSize;
+    this.timeToLive = timeToLive;
+    this.missingTimeToLive = missingTimeToLive;
+    this.events = Caffeine
+      .newBuilder()
+      .maximumSize( maximumSize )
+      .expireAfter( new ExpireWhenClosed() )
+      .scheduler( Scheduler.systemScheduler() )
+      .build();
+    this.hits = registry.counter( "app.event.cache.requests", "result", "hit" );
+    this.misses = registry.counter( "app.event.cache.requests", "result", "miss" );
+    Gauge
+      .builder( "app.event.cache.size", events, Cache::estimatedSize )
+      .description( "Number of events, including the missing ones, held by this node" )
+      .register( registry );
+  }
+
+  public Optional<EventMetadata> find( final UUID eventId ) {
+    final Optional<EventMetadata> cached = events.getIfPresent( eventId );
+    if ( cached != null ) {
+      hits.increment();
+      return cached;
+    }
+
+    misses.increment();
+    return events.get( eventId, repository::findMetadataById );
+  }
+
+  /* False when the event does not exist or has expired */
+  public boolean isOpen( final UUID eventId ) {
+    final LocalDate today = LocalDate.now();
+    return find( eventId )
+      .filter( event -> event.isOpen( today ) )
+      .isPresent();
+  }
+
+  @EventListener( ApplicationReadyEvent.class )
+  public void warmUp() {
+    final int size = (int) Math.min( maximumSize, Integer.MAX_VALUE );
+    for ( final EventMetadata event : repository.findUpcomingMetadata( LocalDate.now(), PageRequest.of( 0, size ) ) ) {
+      events.put( event.getId(), Optional.of( event ) );
+    }
+  }
+
+  /* Events stop taking registrations at the start of their day, in the zone used by the registrations */
+  private class ExpireWhenClosed implements Expiry<UUID, Optional<EventMetadata>> {
+
+    @Override
+    public long expireAfterCreate( final UUID eventId, final Optional<EventMetadata> event, final long currentTime ) {
+      if ( event.isEmpty() ) {
+        return missingTimeToLive.toNanos();
+      }
+
+      final Duration untilClosed = Duration.between( Instant.now(),
+        event.get().getDate().atStartOfDay( ZoneId.systemDefault() ) );
+      if ( untilClosed.isNegative() ) {
+        return 0;
+      }
+      return untilClosed.compareTo( timeToLive ) < 0 ? untilClosed.toNanos() : timeToLive.toNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate( final UUID eventId, final Optional<EventMetadata> event, final long currentTime,
+      final long currentDuration ) {
+      return expireAfterCreate( eventId, event, currentTime );
+    }
+
+    @Override
+    public long expireAfterRead( final UUID eventId, final Optional<EventMetadata> event, final long currentTime,
+      final long currentDuration ) {
+      return currentDuration;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package demo.boot.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.classify.BinaryExceptionClassifier;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Drains the registrations accepted by the asynchronous mode, a batch at a time on each consumer. A batch failing on
+ * a transient database error is retried, and then redelivered, as a whole. A batch failing otherwise is registered
+ * one registration at a time, thus only the registrations that cannot be registered are dead-lettered. The
+ * registrations inserted before, by a redelivery or a retry, are skipped and counted apart.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty( "app.registration.async.enabled" )
+public class EventRegistrationConsumer {
+
+  private final EventRegistrationService service;
+  private final EventRegistrationGateway gateway;
+  private final BinaryExceptionClassifier transientFailures;
+  private final Counter registered;
+  private final Counter rejected;
+  private final Counter skipped;
+  private final Counter deadLettered;
+
+  public EventRegistrationConsumer( final EventRegistrationService service, final EventRegistrationGateway gateway,
+    final MeterRegistry registry ) {
+    this.service = service;
+    this.gateway = gateway;
+    this.transientFailures = new BinaryExceptionClassifier( MessageQueueConfiguration.TRANSIENT_FAILURES, false );
+    this.transientFailures.setTraverseCauses( true );
+    this.registered = registry.counter( "app.registration.async", "outcome", "registered" );
+    this.rejected = registry.counter( "app.registration.async", "outcome", "rejected" );
+    this.skipped = registry.counter( "app.registration.async", "outcome", "skipped" );
+    this.deadLettered = registry.counter( "app.registration.async", "outcome", "dead-lettered" );
+  }
+
+  @RabbitListener(
+    queues = "${app.queue.event}",
+    containerFactory = MessageQueueConfiguration.REGISTRATION_CONTAINER_FACTORY,
+    concurrency = "${app.registration.async.consumers:4}"
+  )
+  public void register( final List<QueuedRegistration> registrations ) {
+    try {
+      count( registrations, service.registerAll( registrations ) );
+    } catch ( final RuntimeException e ) {
+      if ( transientFailures.classify( e ) ) {
+        throw e;
+      }
+
+      log.warn( "Failed to register a batch of {} registrations, registering them one at a time",
+        registrations.size(), e );
+      registrations.forEach( this::registerAlone );
+    }
+  }
+
+  /* A transient failure still fails the batch, whose registrations registered already are skipped on redelivery */
+  private void registerAlone( final QueuedRegistration registration ) {
+    try {
+      count( List.of( registration ), service.registerAll( List.of( registration ) ) );
+    } catch ( final RuntimeException e ) {
+      if ( transientFailures.classify( e ) ) {
+        throw e;
+      }
+
+      log.error( "Dead-lettering the registration {}, which cannot be registered", registration, e );
+      gateway.deadLetter( registration );
+      deadLettered.increment();
+    }
+  }
+
+  private void count( final List<QueuedRegistration> registrations, final BatchRegistrationResult result ) {
+    for ( final QueuedRegistration registration : result.getRejected() ) {
+      log.warn( "Rejected the registration {}, as the event is missing, expired or fully booked", registration );
+    }
+    registered.increment( registrations.size() - result.getRejected().size() - result.getSkipped().size() );
+    rejected.increment( result.getRejected().size() );
+    skipped.increment( result.getSkipped().size() );
+  }
+}
@@ -1,38 +1,86 @@
 package demo.boot.event;
 
-import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.net.URI;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Function;
 
 @RestController
-@AllArgsConstructor
 public class EventRegistrationController {
 
+  /* As long as the columns holding these */
+  private static final int MAXIMUM_IDEMPOTENCY_KEY_LENGTH = 255;
+  private static final int MAXIMUM_NAME_LENGTH = 64;
+
   private final EventRegistrationService service;
+  private final IdempotentRegistrationService idempotentService;
+  private final boolean async;
+
+  public EventRegistrationController( final EventRegistrationService service,
+    final IdempotentRegistrationService idempotentService,
+    @Value( "${app.registration.async.enabled:false}" ) final boolean async ) {
+    this.service = service;
+    this.idempotentService = idempotentService;
+    this.async = async;
+  }
 
   @PostMapping( "/event/{eventId}/register" )
   public ResponseEntity<RegistrationConfirmation> register(
     @PathVariable( "eventId" ) final UUID eventId,
+    @RequestHeader( value = "Idempotency-Key", required = false ) final String idempotencyKey,
     @RequestBody final RegistrationRequest request
   ) {
 
     final RegistrationDetails details =
       new RegistrationDetails( eventId, request.getName(), request.getFoodPreference() );
 
-    return service
-      .register( details )
+    if ( idempotencyKey != null
+      && ( idempotencyKey.isBlank() || idempotencyKey.length() > MAXIMUM_IDEMPOTENCY_KEY_LENGTH ) ) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    if ( async ) {
+      return enqueue( details, idempotencyKey );
+    }
+
+    final Optional<RegistrationConfirmation> confirmation = idempotencyKey == null
+      ? service.register( details )
+      : idempotentService.register( details, idempotencyKey );
+
+    return confirmation
       .map( mapToResponse() )
       .orElse( ResponseEntity.notFound().build() )
       ;
   }
 
+  /*
+   * The consumers cannot report back, thus only what can be checked without the database is checked here. A name
+   * longer than its column would fail the batch of every registration queued with it.
+   */
+  private ResponseEntity<RegistrationConfirmation> enqueue( final RegistrationDetails details,
+    final String idempotencyKey ) {
+    if ( details.getName() == null || details.getName().isBlank() || details.getName().length() > MAXIMUM_NAME_LENGTH
+      || details.getFoodPreference() == null ) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    final RegistrationConfirmation confirmation = idempotencyKey == null
+      ? service.enqueue( details )
+      : idempotentService.enqueue( details, idempotencyKey );
+    return ResponseEntity
+      .accepted()
+      .location( URI.create( "/event/registration/" + confirmation.getId() ) )
+      .body( confirmation );
+  }
+
   private Function<RegistrationConfirmation, ResponseEntity<RegistrationConfirmation>> mapToResponse() {
     return confirmation -> ResponseEntity
       .created( URI.create( "/event/registration/" + confirmation.getId() ) )
@@ -0,0 +1,84 @@
+package demo.boot.event;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Queues the registrations of the asynchronous mode. Each registration is only accepted once the broker confirmed
+ * and routed it, as the client is told that it will be registered. The registrations that cannot be registered are
+ * set aside on the dead-letter queue the same way.
+ */
+@Slf4j
+@Service
+public class EventRegistrationGateway {
+
+  private final String queueName;
+  private final String deadLetterQueueName;
+  private final RabbitOperations template;
+  private final MeterRegistry registry;
+  private final Duration confirmTimeout;
+
+  public EventRegistrationGateway( @Value( "${app.queue.event}" ) final String queueName,
+    @Value( "${app.queue.event-dead-letter}" ) final String deadLetterQueueName, final RabbitOperations template,
+    final MeterRegistry registry,
+    @Value( "${app.registration.async.confirm-timeout:PT5S}" ) final Duration confirmTimeout ) {
+    this.queueName = queueName;
+    this.deadLetterQueueName = deadLetterQueueName;
+    this.template = template;
+    this.registry = registry;
+    this.confirmTimeout = confirmTimeout;
+  }
+
+  public void submit( final QueuedRegistration registration ) {
+    send( queueName, registration );
+  }
+
+  public void deadLetter( final QueuedRegistration registration ) {
+    send( deadLetterQueueName, registration );
+  }
+
+  private void send( final String queue, final QueuedRegistration registration ) {
+    final CorrelationData correlation = new CorrelationData( registration.getAttendeeId().toString() );
+    template.convertAndSend( queue, registration, correlation );
+
+    final String failure = confirmFailure( queue, registration, correlation );
+    if ( failure != null ) {
+      registry.counter( "app.registration.async.unconfirmed", "reason", failure ).increment();
+      throw new RegistrationNotQueuedException( registration.getAttendeeId(), failure );
+    }
+  }
+
+  /* Null when confirmed, otherwise why it was not */
+  private String confirmFailure( final String queue, final QueuedRegistration registration,
+    final CorrelationData correlation ) {
+    try {
+      final CorrelationData.Confirm confirm =
+        correlation.getFuture().get( confirmTimeout.toNanos(), TimeUnit.NANOSECONDS );
+      if ( !confirm.isAck() ) {
+        log.warn( "The broker rejected the registration {}: {}", registration, confirm.getReason() );
+        return "nack";
+      }
+      if ( correlation.getReturnedMessage() != null ) {
+        log.warn( "The broker could not route the registration {} to {}", registration, queue );
+        return "returned";
+      }
+      return null;
+    } catch ( final TimeoutException e ) {
+      return "timeout";
+    } catch ( final ExecutionException e ) {
+      return "error";
+    } catch ( final InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return "interrupted";
+    }
+  }
+}
@@ -2,54 +2,225 @@ package demo.boot.event;
 
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 public class EventRegistrationService {
 
   private final EventRepository eventRepository;
+  private final EventMetadataCache events;
+  private final EventAttendeeRepository attendeeRepository;
+  private final EventSeats eventSeats;
   private final UuidGeneratorService uuidGeneratorService;
-  private final EventFoodGateway eventFoodGateway;
+  private final FoodPreferenceOutboxRepository outboxRepository;
+  private final EventRegistrationGateway registrationGateway;
 
+  /*
+   * Reserves a seat and inserts the attendee, never loading the event, its office or its other attendees. The food
+   * preference is written to the outbox within the same transaction and published by the relay after the commit.
+   * Registrations for missing or expired events are turned away by the cached event metadata.
+   */
+  @Transactional
   public Optional<RegistrationConfirmation> register( final RegistrationDetails registration ) {
-    return eventRepository
-      .findById( registration.getEventId() )
-      .filter( isNotExpired() )
-      .map( registerAttendee( registration ) )
+    return register( registration, null );
+  }
+
+  /* The idempotency key, when given, is unique per event, thus a second registration with it fails on commit */
+  @Transactional
+  public Optional<RegistrationConfirmation> register( final RegistrationDetails registration,
+    final String idempotencyKey ) {
+    return Optional
+      .of( registration )
+      .filter( reserveSeat() )
+      .map( registerAttendee( idempotencyKey ) )
       .map( attendee -> {
         final AttendeeFoodPreference preference = new AttendeeFoodPreference();
-        preference.setEventId( attendee.getEvent().getId() );
+        preference.setEventId( registration.getEventId() );
         preference.setAttendeeId( attendee.getId() );
         preference.setFoodPreference( attendee.getFoodPreference() );
-        eventFoodGateway.submit( preference );
+        outboxRepository.save( FoodPreferenceOutboxEntity.of( preference, Instant.now() ) );
         return attendee;
       } )
       .map( mapToConfirmation() );
   }
 
+  /* Allocates the attendee id and leaves the registration to the consumers of the event queue */
+  public RegistrationConfirmation enqueue( final RegistrationDetails registration ) {
+    return enqueue( registration, null );
+  }
+
+  /*
+   * A retry gets an id from the configured generator too, thus the ids stay time ordered when so configured. The
+   * consumers register only the first registration with the idempotency key, which the database enforces unique.
+   */
+  public RegistrationConfirmation enqueue( final RegistrationDetails registration, final String idempotencyKey ) {
+    final UUID attendeeId = uuidGeneratorService.nextAttendeeId();
+    registrationGateway.submit( QueuedRegistration.of( attendeeId, registration, idempotencyKey ) );
+    return new RegistrationConfirmation( attendeeId );
+  }
+
+  /*
+   * Registers a batch of queued registrations, taking the seats of each event in one statement and inserting the
+   * attendees together. The registrations already inserted, as when a batch is redelivered, are skipped, and so are
+   * the retries with an idempotency key already used. Returns the registrations rejected, as their event is missing,
+   * expired or fully booked, and those skipped.
+   */
+  @Transactional
+  public BatchRegistrationResult registerAll( final List<QueuedRegistration> registrations ) {
+    final Set<UUID> registered = new HashSet<>( attendeeRepository.findExistingIds(
+      registrations.stream().map( QueuedRegistration::getAttendeeId ).collect( Collectors.toList() ) ) );
+
+    /* The seats are taken in the order of the event ids, thus concurrent batches lock the events without deadlocks */
+    final List<QueuedRegistration> skipped = new ArrayList<>();
+    final Map<UUID, List<QueuedRegistration>> byEvent = new TreeMap<>();
+    for ( final QueuedRegistration registration : registrations ) {
+      if ( registered.add( registration.getAttendeeId() ) ) {
+        byEvent.computeIfAbsent( registration.getEventId(), id -> new ArrayList<>() ).add( registration );
+      } else {
+        skipped.add( registration );
+      }
+    }
+
+    final Instant now = Instant.now();
+    final List<EventAttendeeEntity> attendees = new ArrayList<>( registrations.size() );
+    final List<FoodPreferenceOutboxEntity> preferences = new ArrayList<>( registrations.size() );
+    final List<QueuedRegistration> rejected = new ArrayList<>();
+    for ( final Map.Entry<UUID, List<QueuedRegistration>> event : byEvent.entrySet() ) {
+      if ( !events.isOpen( event.getKey() ) ) {
+        rejected.addAll( event.getValue() );
+        continue;
+      }
+
+      final List<QueuedRegistration> queued = withoutRetries( event.getKey(), event.getValue(), skipped );
+      final int seats = eventRepository.reserveSeats( event.getKey(), queued.size(), LocalDate.now() ).orElse( 0 );
+      for ( int i = 0; i < queued.size(); i++ ) {
+        final QueuedRegistration registration = queued.get( i );
+        if ( i >= seats ) {
+          rejected.add( registration );
+          continue;
+        }
+
+        attendees.add( new EventAttendeeEntity( registration.getAttendeeId(), registration.getName(),
+          registration.getFoodPreference(), eventRepository.getOne( event.getKey() ),
+          registration.getIdempotencyKey() ) );
+        preferences.add( FoodPreferenceOutboxEntity.of( new AttendeeFoodPreference( registration.getEventId(),
+          registration.getAttendeeId(), registration.getFoodPreference() ), now ) );
+      }
+    }
+
+    attendeeRepository.saveAll( attendees );
+    outboxRepository.saveAll( preferences );
+    return new BatchRegistrationResult( rejected, skipped );
+  }
+
+  /* Only queries the keys already used when any registration has one */
+  private List<QueuedRegistration> withoutRetries( final UUID eventId, final List<QueuedRegistration> queued,
+    final List<QueuedRegistration> skipped ) {
+    final Set<String> keys = queued
+      .stream()
+      .map( QueuedRegistration::getIdempotencyKey )
+      .filter( Objects::nonNull )
+      .collect( Collectors.toSet() );
+    if ( keys.isEmpty() ) {
+      return queued;
+    }
+
+    final Set<String> used = new HashSet<>( attendeeRepository.findExistingIdempotencyKeys( eventId, keys ) );
+    final List<QueuedRegistration> remaining = new ArrayList<>( queued.size() );
+    for ( final QueuedRegistration registration : queued ) {
+      if ( registration.getIdempotencyKey() == null || used.add( registration.getIdempotencyKey() ) ) {
+        remaining.add( registration );
+      } else {
+        skipped.add( registration );
+      }
+    }
+    return remaining;
+  }
+
   private Function<EventAttendeeEntity, RegistrationConfirmation> mapToConfirmation() {
     return attendee -> new RegistrationConfirmation( attendee.getId() );
   }
 
-  private Function<EventEntity, EventAttendeeEntity> registerAttendee( final RegistrationDetails registration ) {
-    return event -> {
+  /* The event is only referenced by its id, which the proxy holds without loading the event */
+  private Function<RegistrationDetails, EventAttendeeEntity> registerAttendee( final String idempotencyKey ) {
+    return registration -> {
       final EventAttendeeEntity attendee = new EventAttendeeEntity();
       attendee.setId( uuidGeneratorService.nextAttendeeId() );
-      attendee.setEvent( event );
+      attendee.setEvent( eventRepository.getOne( registration.getEventId() ) );
       attendee.setName( registration.getName() );
       attendee.setFoodPreference( registration.getFoodPreference() );
-      event.addAttendee( attendee );
-      eventRepository.save( event );
+      attendee.setIdempotencyKey( idempotencyKey );
+      attendeeRepository.save( attendee );
       return attendee;
     };
   }
 
-  private Predicate<EventEntity> isNotExpired() {
-    return event -> LocalDate.now().isBefore( event.getDate() );
+  /* False when the event does not exist or has expired */
+  private Predicate<RegistrationDetails> reserveSeat() {
+    return registration -> {
+      final UUID eventId = registration.getEventId();
+      if ( !events.isOpen( eventId ) ) {
+        return false;
+      }
+
+      if ( !eventSeats.tryAcquire( eventId ) ) {
+        throw new EventFullyBookedException( eventId );
+      }
+
+      final Optional<Integer> remaining;
+      try {
+        remaining = eventRepository.reserveSeat( eventId, LocalDate.now() );
+      } catch ( final RuntimeException e ) {
+        eventSeats.release( eventId );
+        throw e;
+      }
+
+      if ( remaining.isPresent() ) {
+        eventSeats.reserved( eventId, remaining.get() );
+        releaseOnRollback( eventId );
+        return true;
+      }
+
+      /* The cached metadata may be older than the event, thus the database tells whether it is fully booked */
+      if ( eventRepository.existsByIdAndDateAfter( eventId, LocalDate.now() ) ) {
+        eventSeats.fullyBooked( eventId );
+        throw new EventFullyBookedException( eventId );
+      }
+
+      eventSeats.release( eventId );
+      return false;
+    };
+  }
+
+  /* The seat taken in the database is given back by the rollback, and needs to be given back here too */
+  private void releaseOnRollback( final UUID eventId ) {
+    if ( TransactionSynchronizationManager.isSynchronizationActive() ) {
+      TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCompletion( final int status ) {
+          if ( status == STATUS_ROLLED_BACK ) {
+            eventSeats.release( eventId );
+          }
+        }
+      } );
+    }
   }
 }
@@ -1,10 +1,65 @@
 package demo.boot.event;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface EventRepository extends JpaRepository<EventEntity, UUID> {
+
+  /* Whether the event exists and takes place after the given date, without loading it */
+  boolean existsByIdAndDateAfter( final UUID id, final LocalDate date );
+
+  /* The office is read from the foreign key, thus neither the office nor the attendees are joined */
+  @Query( "SELECT new demo.boot.event.EventMetadata("
+    + " e.id, e.office.name, e.date, e.caption, e.description, e.capacity )"
+    + " FROM EventEntity e"
+    + " WHERE e.id = :id" )
+  Optional<EventMetadata> findMetadataById( @Param( "id" ) final UUID id );
+
+  /* The events still taking registrations, soonest first */
+  @Query( "SELECT new demo.boot.event.EventMetadata("
+    + " e.id, e.office.name, e.date, e.caption, e.description, e.capacity )"
+    + " FROM EventEntity e"
+    + " WHERE e.date > :today"
+    + " ORDER BY e.date" )
+  List<EventMetadata> findUpcomingMetadata( @Param( "today" ) final LocalDate today, final Pageable pageable );
+
+  /* Takes a seat if the event is open and not fully booked, returning the seats left (-1 when unlimited) */
+  @Query( nativeQuery = true, value = "UPDATE events"
+    + " SET registered = registered + 1"
+    + " WHERE id = :id AND date > :today AND (capacity IS NULL OR registered < capacity)"
+    + " RETURNING COALESCE(capacity - registered, -1)" )
+  Optional<Integer> reserveSeat( @Param( "id" ) final UUID id, @Param( "today" ) final LocalDate today );
+
+  /* Takes up to the given number of seats if the event is open, returning how many were taken */
+  @Query( nativeQuery = true, value = "WITH granted AS ("
+    + "  SELECT id, LEAST(:count, COALESCE(capacity - registered, :count)) AS seats"
+    + "  FROM events"
+    + "  WHERE id = :id AND date > :today AND (capacity IS NULL OR registered < capacity)"
+    + "  FOR UPDATE"
+    + ")"
+    + " UPDATE events"
+    + " SET registered = registered + granted.seats"
+    + " FROM granted"
+    + " WHERE events.id = granted.id"
+    + " RETURNING granted.seats" )
+  Optional<Integer> reserveSeats( @Param( "id" ) final UUID id, @Param( "count" ) final int count,
+    @Param( "today" ) final LocalDate today );
+
+  /* The event together with its office, in one statement */
+  @EntityGraph( EventEntity.WITH_OFFICE )
+  Optional<EventEntity> findWithOfficeById( final UUID id );
+
+  /* The event together with all its attendees, in one statement */
+  @EntityGraph( EventEntity.WITH_ATTENDEES )
+  Optional<EventEntity> findWithAttendeesById( final UUID id );
 }
@@ -0,0 +1,94 @@
+package demo.boot.event;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * Admission in front of the conditional seat reservation in the database. Once the database told this node how many
+ * seats are left for an event, at most that many registrations go through to the database, and the rest are turned
+ * away without touching the event row. The database stays the only authority, thus several nodes cannot oversell.
+ * What this node learnt is forgotten after the time to live, or once the event stops taking registrations, and the
+ * next registration asks the database again, as seats given back elsewhere would otherwise never be seen here.
+ */
+@Component
+public class EventSeats {
+
+  /* Returned by the database for events without a capacity */
+  static final int UNLIMITED = -1;
+
+  private final int stripes = Runtime.getRuntime().availableProcessors();
+  private final EventMetadataCache events;
+  private final Duration timeToLive;
+  private final Cache<UUID, StripedSeatCounter> counters;
+
+  public EventSeats( final EventMetadataCache events,
+    @Value( "${app.registration.seats.time-to-live:PT30S}" ) final Duration timeToLive ) {
+    this.events = events;
+    this.timeToLive = timeToLive;
+    this.counters = Caffeine
+      .newBuilder()
+      .expireAfter( new ExpireWhenClosed() )
+      .scheduler( Scheduler.systemScheduler() )
+      .build();
+  }
+
+  /* False when this node already knows that the event is fully booked */
+  boolean tryAcquire( final UUID eventId ) {
+    final StripedSeatCounter counter = counters.getIfPresent( eventId );
+    return counter == null || counter.tryAcquire();
+  }
+
+  /* Gives back a seat taken by tryAcquire() that was not reserved in the database in the end */
+  void release( final UUID eventId ) {
+    final StripedSeatCounter counter = counters.getIfPresent( eventId );
+    if ( counter != null ) {
+      counter.release();
+    }
+  }
+
+  /* The first reservation for an event, since it was last forgotten, tells how many seats are left after it */
+  void reserved( final UUID eventId, final int remaining ) {
+    if ( remaining != UNLIMITED ) {
+      counters.get( eventId, id -> new StripedSeatCounter( remaining, stripes ) );
+    }
+  }
+
+  void fullyBooked( final UUID eventId ) {
+    counters.get( eventId, id -> new StripedSeatCounter( 0, 1 ) ).drain();
+  }
+
+  /* Events stop taking registrations at the start of their day, like in the event metadata cache */
+  private class ExpireWhenClosed implements Expiry<UUID, StripedSeatCounter> {
+
+    @Override
+    public long expireAfterCreate( final UUID eventId, final StripedSeatCounter counter, final long currentTime ) {
+      return events
+        .find( eventId )
+        .map( event -> Duration.between( Instant.now(), event.getDate().atStartOfDay( ZoneId.systemDefault() ) ) )
+        .map( untilClosed -> untilClosed.isNegative() ? 0 : Math.min( untilClosed.toNanos(), timeToLive.toNanos() ) )
+        .orElse( 0L );
+    }
+
+    /* Taking and giving back seats does not replace the counter, thus never extends its life */
+    @Override
+    public long expireAfterUpdate( final UUID eventId, final StripedSeatCounter counter, final long currentTime,
+      final long currentDuration ) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead( final UUID eventId, final StripedSeatCounter counter, final long currentTime,
+      final long currentDuration ) {
+      return currentDuration;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package demo.boot.event;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.UUID;
+
+/**
+ * Encodes the food preferences in a fixed layout of 33 bytes: the event id, the attendee id, each as two big endian
+ * longs, followed by the ordinal of the food preference, or 0xFF when there is none. New food preferences must
+ * therefore be added at the end. Other messages are left to the fallback converter, when there is one.
+ */
+public class FoodPreferenceMessageConverter extends AbstractMessageConverter {
+
+  public static final String CONTENT_TYPE = "application/vnd.demo.food-preference";
+
+  static final int LENGTH = 33;
+
+  /* The registrations do not require a food preference */
+  static final byte NO_FOOD_PREFERENCE = (byte) 0xFF;
+
+  private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle( long[].class, ByteOrder.BIG_ENDIAN );
+  private static final FoodPreference[] FOOD_PREFERENCES = FoodPreference.values();
+
+  private final MessageConverter fallback;
+
+  public FoodPreferenceMessageConverter() {
+    this( null );
+  }
+
+  public FoodPreferenceMessageConverter( final MessageConverter fallback ) {
+    this.fallback = fallback;
+  }
+
+  @Override
+  protected Message createMessage( final Object object, final MessageProperties messageProperties ) {
+    if ( !( object instanceof AttendeeFoodPreference ) ) {
+      if ( fallback != null ) {
+        return fallback.toMessage( object, messageProperties );
+      }
+      throw new MessageConversionException( "Only food preferences can be encoded, not " + object );
+    }
+
+    final AttendeeFoodPreference preference = (AttendeeFoodPreference) object;
+    final byte[] body = new byte[LENGTH];
+    LONG.set( body, 0, preference.getEventId().getMostSignificantBits() );
+    LONG.set( body, 8, preference.getEventId().getLeastSignificantBits() );
+    LONG.set( body, 16, preference.getAttendeeId().getMostSignificantBits() );
+    LONG.set( body, 24, preference.getAttendeeId().getLeastSignificantBits() );
+    body[32] = preference.getFoodPreference() == null
+      ? NO_FOOD_PREFERENCE
+      : (byte) preference.getFoodPreference().ordinal();
+
+    messageProperties.setContentType( CONTENT_TYPE );
+    messageProperties.setContentLength( LENGTH );
+    return new Message( body, messageProperties );
+  }
+
+  @Override
+  public Object fromMessage( final Message message ) {
+    final byte[] body = message.getBody();
+    if ( body == null || body.length != LENGTH ) {
+      throw new MessageConversionException( "Expected a food preference of " + LENGTH + " bytes" );
+    }
+
+    final int ordinal = body[32];
+    if ( ordinal != NO_FOOD_PREFERENCE && ( ordinal < 0 || ordinal >= FOOD_PREFERENCES.length ) ) {
+      throw new MessageConversionException( "Unknown food preference " + ordinal );
+    }
+
+    return new AttendeeFoodPreference(
+      new UUID( (long) LONG.get( body, 0 ), (long) LONG.get( body, 8 ) ),
+      new UUID( (long) LONG.get( body, 16 ), (long) LONG.get( body, 24 ) ),
+      ordinal == NO_FOOD_PREFERENCE ? null : FOOD_PREFERENCES[ordinal]
+    );
+  }
+}
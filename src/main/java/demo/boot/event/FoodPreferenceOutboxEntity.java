@@ -0,0 +1,57 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table( name = "food_preferences_outbox" )
+@AllArgsConstructor
+@NoArgsConstructor
+public class FoodPreferenceOutboxEntity {
+
+  @Id
+  @GeneratedValue( strategy = GenerationType.SEQUENCE, generator = "food_preferences_outbox_id" )
+  @SequenceGenerator( name = "food_preferences_outbox_id", sequenceName = "food_preferences_outbox_id_seq",
+    allocationSize = 100 )
+  private Long id;
+
+  @Column( name = "event" )
+  private UUID eventId;
+
+  @Column( name = "attendee" )
+  private UUID attendeeId;
+
+  @Enumerated( EnumType.STRING )
+  private FoodPreference foodPreference;
+
+  private Instant createdAt;
+
+  /* The runs that did not get the preference confirmed, while the others in its batch were */
+  private int attempts;
+
+  /* Set once the relay gave up on the preference, which is then left in the outbox for someone to look at */
+  private Instant parkedAt;
+
+  public static FoodPreferenceOutboxEntity of( final AttendeeFoodPreference preference, final Instant createdAt ) {
+    return new FoodPreferenceOutboxEntity( null, preference.getEventId(), preference.getAttendeeId(),
+      preference.getFoodPreference(), createdAt, 0, null );
+  }
+
+  public AttendeeFoodPreference toPreference() {
+    return new AttendeeFoodPreference( eventId, attendeeId, foodPreference );
+  }
+}
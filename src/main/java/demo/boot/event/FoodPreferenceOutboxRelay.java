@@ -0,0 +1,136 @@
+package demo.boot.event;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Publishes the food preferences written to the outbox by the registrations, oldest first and in batches, and deletes
+ * those the broker confirmed in the same transaction. The unconfirmed ones are left for the next run, and a failure
+ * to publish rolls the batch back, thus the preferences are published at least once, and never lost. A batch is
+ * flushed when it is full, or at the latest after the interval. A preference the broker rejects or cannot route, or
+ * that cannot be converted, is charged an attempt, and parked after the maximum attempts, thus it no longer holds up
+ * the outbox. A preference not confirmed in time, or a batch failing as a whole, tells of the broker rather than of
+ * its preferences, thus is not charged.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty( value = "app.queue.food-outbox.enabled", matchIfMissing = true )
+public class FoodPreferenceOutboxRelay {
+
+  private final FoodPreferenceOutboxRepository repository;
+  private final EventFoodGateway gateway;
+  private final TransactionTemplate transaction;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final Clock clock;
+  private final Timer lag;
+  private final Counter published;
+  private final Counter failures;
+  private final Counter parked;
+
+  public FoodPreferenceOutboxRelay( final FoodPreferenceOutboxRepository repository, final EventFoodGateway gateway,
+    final PlatformTransactionManager transactionManager, final MeterRegistry registry,
+    @Value( "${app.queue.food-outbox.batch-size:100}" ) final int batchSize,
+    @Value( "${app.queue.food-outbox.max-attempts:10}" ) final int maxAttempts ) {
+    this.repository = repository;
+    this.gateway = gateway;
+    this.transaction = new TransactionTemplate( transactionManager );
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    this.clock = registry.config().clock();
+    this.lag = Timer
+      .builder( "app.food.outbox.lag" )
+      .description( "Time from the registration until its food preference was published" )
+      .publishPercentiles( 0.5, 0.99 )
+      .register( registry );
+    this.published = registry.counter( "app.food.outbox.published" );
+    this.failures = registry.counter( "app.food.outbox.failures" );
+    this.parked = registry.counter( "app.food.outbox.parked" );
+  }
+
+  /* Keeps going while the batches are full, as there may be more waiting */
+  @Scheduled( fixedDelayString = "${app.queue.food-outbox.interval:PT0.1S}" )
+  public void relay() {
+    try {
+      while ( relayBatch() == batchSize ) {
+        /* Next batch */
+      }
+    } catch ( final RuntimeException e ) {
+      failures.increment();
+      throw e;
+    }
+  }
+
+  /* The preferences that were not confirmed stay in the outbox, and this run stops, as the broker is in trouble */
+  private int relayBatch() {
+    final Integer relayed = transaction.execute( status -> {
+      final List<FoodPreferenceOutboxEntity> batch = repository.lockOldest( batchSize );
+      if ( batch.isEmpty() ) {
+        return 0;
+      }
+
+      final List<AttendeeFoodPreference> preferences = new ArrayList<>( batch.size() );
+      for ( final FoodPreferenceOutboxEntity entry : batch ) {
+        preferences.add( entry.toPreference() );
+      }
+
+      /* The gateway hands back the same instances, which tell apart otherwise equal preferences */
+      final FoodPublishResult result = gateway.submitAll( preferences );
+      final Set<AttendeeFoodPreference> failed = Collections.newSetFromMap( new IdentityHashMap<>() );
+      failed.addAll( result.getFailed() );
+      final Set<AttendeeFoodPreference> unconfirmed = Collections.newSetFromMap( new IdentityHashMap<>() );
+      unconfirmed.addAll( result.getFailed() );
+      unconfirmed.addAll( result.getUnanswered() );
+      final List<FoodPreferenceOutboxEntity> confirmed = new ArrayList<>( batch.size() );
+      for ( int i = 0; i < batch.size(); i++ ) {
+        if ( !unconfirmed.contains( preferences.get( i ) ) ) {
+          confirmed.add( batch.get( i ) );
+        }
+      }
+      repository.deleteInBatch( confirmed );
+      chargeAttempt( batch, preferences, failed );
+
+      final long now = clock.wallTime();
+      for ( final FoodPreferenceOutboxEntity entry : confirmed ) {
+        lag.record( Duration.ofMillis( Math.max( 0, now - entry.getCreatedAt().toEpochMilli() ) ) );
+      }
+      published.increment( confirmed.size() );
+      failures.increment( unconfirmed.size() );
+      return unconfirmed.isEmpty() ? batch.size() : 0;
+    } );
+    return relayed == null ? 0 : relayed;
+  }
+
+  /* The entries are managed, thus their attempts and parking are written when the batch commits */
+  private void chargeAttempt( final List<FoodPreferenceOutboxEntity> batch,
+    final List<AttendeeFoodPreference> preferences, final Set<AttendeeFoodPreference> failed ) {
+    for ( int i = 0; i < batch.size(); i++ ) {
+      if ( failed.contains( preferences.get( i ) ) ) {
+        final FoodPreferenceOutboxEntity entry = batch.get( i );
+        entry.setAttempts( entry.getAttempts() + 1 );
+        if ( entry.getAttempts() >= maxAttempts ) {
+          log.warn( "Parked the food preference {} after {} attempts", entry.getId(), entry.getAttempts() );
+          entry.setParkedAt( Instant.ofEpochMilli( clock.wallTime() ) );
+          parked.increment();
+        }
+      }
+    }
+  }
+}
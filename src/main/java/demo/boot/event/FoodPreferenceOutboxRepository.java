@@ -0,0 +1,20 @@
+package demo.boot.event;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FoodPreferenceOutboxRepository extends JpaRepository<FoodPreferenceOutboxEntity, Long> {
+
+  /* Oldest first, skipping the parked rows and those another relay is publishing, thus several nodes drain it */
+  @Query( nativeQuery = true, value = "SELECT * FROM food_preferences_outbox"
+    + " WHERE parked_at IS NULL"
+    + " ORDER BY id"
+    + " LIMIT :limit"
+    + " FOR UPDATE SKIP LOCKED" )
+  List<FoodPreferenceOutboxEntity> lockOldest( @Param( "limit" ) final int limit );
+}
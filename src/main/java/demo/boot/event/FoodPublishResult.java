@@ -0,0 +1,20 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/* The food preferences of a batch that the broker did not confirm, in the order given */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FoodPublishResult {
+
+  /* Rejected, returned as unroutable or not convertible, which tells of the preference itself */
+  private List<AttendeeFoodPreference> failed;
+
+  /* Not confirmed in time, which tells of the broker */
+  private List<AttendeeFoodPreference> unanswered;
+}
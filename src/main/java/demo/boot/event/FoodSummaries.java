@@ -0,0 +1,96 @@
+package demo.boot.event;
+
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+
+/**
+ * The number of attendees per food preference for every event, counted from the food queue. The events counted by
+ * this node are held in memory, one count per food preference indexed by its ordinal, while the others are read
+ * from their last checkpoint, as the queue is consumed by one node at a time.
+ */
+@Component
+public class FoodSummaries {
+
+  private static final FoodPreference[] FOOD_PREFERENCES = FoodPreference.values();
+
+  private final FoodSummaryRepository repository;
+  private final Map<UUID, AtomicIntegerArray> counted = new ConcurrentHashMap<>();
+
+  public FoodSummaries( final FoodSummaryRepository repository ) {
+    this.repository = repository;
+  }
+
+  public FoodSummary of( final UUID eventId ) {
+    final AtomicIntegerArray counts = counted.get( eventId );
+    return toSummary( eventId, counts == null ? load( eventId ) : counts );
+  }
+
+  /* The memory is only updated once the checkpoint is committed, thus it never counts what a redelivery would again */
+  void checkpoint( final List<AttendeeFoodPreference> preferences ) {
+    final Map<UUID, AttendeeFoodPreference> byAttendee = new LinkedHashMap<>( preferences.size() );
+    for ( final AttendeeFoodPreference preference : preferences ) {
+      if ( preference.getEventId() != null && preference.getAttendeeId() != null
+        && preference.getFoodPreference() != null ) {
+        byAttendee.putIfAbsent( preference.getAttendeeId(), preference );
+      }
+    }
+    if ( byAttendee.isEmpty() ) {
+      return;
+    }
+
+    final List<FoodSummaryEntity> totals = repository.checkpoint(
+      join( byAttendee.values(), AttendeeFoodPreference::getAttendeeId ),
+      join( byAttendee.values(), AttendeeFoodPreference::getEventId ),
+      join( byAttendee.values(), AttendeeFoodPreference::getFoodPreference )
+    );
+
+    for ( final FoodSummaryEntity total : totals ) {
+      final AtomicIntegerArray counts = counted.computeIfAbsent( total.getEventId(), this::load );
+      counts.set( total.getFoodPreference().ordinal(), total.getAttendees() );
+    }
+  }
+
+  /* Called when this node stops consuming the queue, as another node may take over the counting */
+  void forget() {
+    counted.clear();
+  }
+
+  private AtomicIntegerArray load( final UUID eventId ) {
+    final AtomicIntegerArray counts = new AtomicIntegerArray( FOOD_PREFERENCES.length );
+    for ( final FoodSummaryEntity summary : repository.findAllByEventId( eventId ) ) {
+      counts.set( summary.getFoodPreference().ordinal(), summary.getAttendees() );
+    }
+    return counts;
+  }
+
+  private static FoodSummary toSummary( final UUID eventId, final AtomicIntegerArray counts ) {
+    final Map<FoodPreference, Integer> foodPreferences = new EnumMap<>( FoodPreference.class );
+    int attendees = 0;
+    for ( final FoodPreference foodPreference : FOOD_PREFERENCES ) {
+      final int count = counts.get( foodPreference.ordinal() );
+      foodPreferences.put( foodPreference, count );
+      attendees += count;
+    }
+    return new FoodSummary( eventId, attendees, foodPreferences );
+  }
+
+  private static String join( final Iterable<AttendeeFoodPreference> preferences,
+    final Function<AttendeeFoodPreference, Object> value ) {
+    final StringBuilder joined = new StringBuilder();
+    for ( final AttendeeFoodPreference preference : preferences ) {
+      if ( joined.length() > 0 ) {
+        joined.append( ',' );
+      }
+      joined.append( value.apply( preference ) );
+    }
+    return joined.toString();
+  }
+}
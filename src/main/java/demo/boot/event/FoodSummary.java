@@ -0,0 +1,19 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FoodSummary {
+
+  private UUID eventId;
+  private int attendees;
+  private Map<FoodPreference, Integer> foodPreferences;
+
+}
@@ -0,0 +1,47 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.listener.ListenerContainerConsumerFailedEvent;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Counts the food preferences in batches, from a queue of its own bound to the food exchange, thus the consumers of
+ * the food queue still receive every preference. The batch is acknowledged once its checkpoint is committed, thus a
+ * failure redelivers it, and the attendees counted before are skipped. The consumer is exclusive, thus only one node
+ * counts at a time.
+ */
+@Component
+@AllArgsConstructor
+@ConditionalOnProperty( value = "app.queue.food-summary.enabled", matchIfMissing = true )
+public class FoodSummaryAggregator {
+
+  static final String LISTENER_ID = "foodSummaryAggregator";
+
+  private final FoodSummaries summaries;
+  private final RabbitListenerEndpointRegistry listeners;
+
+  @RabbitListener(
+    id = LISTENER_ID,
+    queues = "${app.queue.food-summary.queue}",
+    containerFactory = MessageQueueConfiguration.FOOD_SUMMARY_CONTAINER_FACTORY,
+    exclusive = "true",
+    concurrency = "1"
+  )
+  public void aggregate( final List<AttendeeFoodPreference> preferences ) {
+    summaries.checkpoint( preferences );
+  }
+
+  /* The other listeners failing, such as the registrations, does not hand the counting over to another node */
+  @EventListener
+  public void consumerFailed( final ListenerContainerConsumerFailedEvent event ) {
+    if ( event.getSource() == listeners.getListenerContainer( LISTENER_ID ) ) {
+      summaries.forget();
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+@RestController
+@AllArgsConstructor
+public class FoodSummaryController {
+
+  private final FoodSummaries summaries;
+
+  @GetMapping( "/event/{eventId}/food-summary" )
+  public FoodSummary foodSummary( @PathVariable( "eventId" ) final UUID eventId ) {
+    return summaries.of( eventId );
+  }
+}
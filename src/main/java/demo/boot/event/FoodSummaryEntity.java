@@ -0,0 +1,42 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table( name = "food_summaries" )
+@IdClass( FoodSummaryEntity.Key.class )
+@AllArgsConstructor
+@NoArgsConstructor
+public class FoodSummaryEntity {
+
+  @Id
+  @Column( name = "event" )
+  private UUID eventId;
+
+  @Id
+  @Enumerated( EnumType.STRING )
+  private FoodPreference foodPreference;
+
+  private int attendees;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Key implements Serializable {
+    private UUID eventId;
+    private FoodPreference foodPreference;
+  }
+}
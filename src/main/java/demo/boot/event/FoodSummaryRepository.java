@@ -0,0 +1,43 @@
+package demo.boot.event;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface FoodSummaryRepository extends JpaRepository<FoodSummaryEntity, FoodSummaryEntity.Key> {
+
+  List<FoodSummaryEntity> findAllByEventId( final UUID eventId );
+
+  /*
+   * Counts the attendees not counted before, given as comma separated lists of the same length, and returns the new
+   * totals of the summaries that changed. The attendees already counted are skipped, thus a batch can be redelivered.
+   */
+  @Transactional
+  @Query( nativeQuery = true, value = "WITH fresh AS ("
+    + "  INSERT INTO food_summaries_attendees (attendee, event, food_preference)"
+    + "  SELECT * FROM unnest("
+    + "    CAST( string_to_array( :attendees, ',' ) AS UUID[] ),"
+    + "    CAST( string_to_array( :events, ',' ) AS UUID[] ),"
+    + "    string_to_array( :foodPreferences, ',' )"
+    + "  )"
+    + "  ON CONFLICT (attendee) DO NOTHING"
+    + "  RETURNING event, food_preference"
+    + "), counted AS ("
+    + "  INSERT INTO food_summaries (event, food_preference, attendees)"
+    + "  SELECT event, food_preference, COUNT(*) FROM fresh GROUP BY event, food_preference"
+    + "  ON CONFLICT (event, food_preference) DO UPDATE SET attendees = food_summaries.attendees + EXCLUDED.attendees"
+    + "  RETURNING event, food_preference, attendees"
+    + ")"
+    + " SELECT * FROM counted" )
+  List<FoodSummaryEntity> checkpoint(
+    @Param( "attendees" ) final String attendees,
+    @Param( "events" ) final String events,
+    @Param( "foodPreferences" ) final String foodPreferences
+  );
+}
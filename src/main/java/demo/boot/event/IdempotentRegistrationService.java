@@ -0,0 +1,113 @@
+package demo.boot.event;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Replays the confirmation of a registration retried with the same idempotency key. Recent confirmations are kept in
+ * a bounded cache, thus a retry touches neither the event nor the queue. A retry that misses the cache, as it reached
+ * another node or came late, is turned away by the unique idempotency key of the attendees, and the attendee
+ * registered the first time is looked up instead. A retry that comes while the first is still being queued is told
+ * that it is in progress.
+ */
+@Service
+public class IdempotentRegistrationService {
+
+  private final EventRegistrationService service;
+  private final EventAttendeeRepository attendeeRepository;
+  private final Cache<Key, CompletableFuture<RegistrationConfirmation>> confirmations;
+
+  public IdempotentRegistrationService( final EventRegistrationService service,
+    final EventAttendeeRepository attendeeRepository,
+    @Value( "${app.registration.idempotency.maximum-size:100000}" ) final long maximumSize,
+    @Value( "${app.registration.idempotency.time-to-live:PT1H}" ) final Duration timeToLive ) {
+    this.service = service;
+    this.attendeeRepository = attendeeRepository;
+    this.confirmations = Caffeine
+      .newBuilder()
+      .maximumSize( maximumSize )
+      .expireAfterWrite( timeToLive )
+      .build();
+  }
+
+  public Optional<RegistrationConfirmation> register( final RegistrationDetails registration,
+    final String idempotencyKey ) {
+    final Key key = new Key( registration.getEventId(), idempotencyKey );
+    final CompletableFuture<RegistrationConfirmation> replayed = confirmations.getIfPresent( key );
+    if ( replayed != null ) {
+      return Optional.of( replay( key, replayed ) );
+    }
+
+    Optional<RegistrationConfirmation> confirmation;
+    try {
+      confirmation = service.register( registration, idempotencyKey ).or( () -> registered( key ) );
+    } catch ( final DataIntegrityViolationException | EventFullyBookedException e ) {
+      /* The first registration may have taken the last seat, or may have been committed in the meantime */
+      confirmation = registered( key );
+      if ( confirmation.isEmpty() ) {
+        throw e;
+      }
+    }
+
+    confirmation.ifPresent( value -> confirmations.put( key, CompletableFuture.completedFuture( value ) ) );
+    return confirmation;
+  }
+
+  /*
+   * The consumers skip the registrations with a key already used. A retry that misses the cache is given the attendee
+   * registered the first time, when there is one, and is otherwise queued again with an id of its own, of which only
+   * the registration consumed first is registered.
+   */
+  public RegistrationConfirmation enqueue( final RegistrationDetails registration, final String idempotencyKey ) {
+    final Key key = new Key( registration.getEventId(), idempotencyKey );
+    final CompletableFuture<RegistrationConfirmation> pending = new CompletableFuture<>();
+    final CompletableFuture<RegistrationConfirmation> first = confirmations.asMap().putIfAbsent( key, pending );
+    if ( first != null ) {
+      return replay( key, first );
+    }
+
+    /* Queued outside of the cache, thus waiting for the broker holds up neither other keys nor retries of this one */
+    try {
+      final RegistrationConfirmation confirmation =
+        registered( key ).orElseGet( () -> service.enqueue( registration, idempotencyKey ) );
+      pending.complete( confirmation );
+      return confirmation;
+    } catch ( final RuntimeException e ) {
+      confirmations.asMap().remove( key, pending );
+      pending.completeExceptionally( e );
+      throw e;
+    }
+  }
+
+  /* A retry is not held up by the registration it retries, which may still be waiting for the broker */
+  private static RegistrationConfirmation replay( final Key key,
+    final CompletableFuture<RegistrationConfirmation> confirmation ) {
+    if ( !confirmation.isDone() || confirmation.isCompletedExceptionally() ) {
+      throw new RegistrationInProgressException( key.eventId, key.idempotencyKey );
+    }
+    return confirmation.join();
+  }
+
+  private Optional<RegistrationConfirmation> registered( final Key key ) {
+    return attendeeRepository
+      .findIdByIdempotencyKey( key.eventId, key.idempotencyKey )
+      .map( RegistrationConfirmation::new );
+  }
+
+  @Data
+  @AllArgsConstructor
+  private static class Key {
+    private final UUID eventId;
+    private final String idempotencyKey;
+  }
+}
@@ -1,15 +1,98 @@
 package demo.boot.event;
 
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Duration;
+import java.util.Map;
 
 @Configuration
 public class MessageQueueConfiguration {
 
+  static final String FOOD_SUMMARY_CONTAINER_FACTORY = "foodSummaryContainerFactory";
+  static final String REGISTRATION_CONTAINER_FACTORY = "registrationContainerFactory";
+
+  /* Database failures that go away on their own, as deadlocks, serialisation failures, timeouts and restarts */
+  static final Map<Class<? extends Throwable>, Boolean> TRANSIENT_FAILURES = Map.of(
+    TransientDataAccessException.class, true,
+    RecoverableDataAccessException.class, true,
+    DataAccessResourceFailureException.class, true,
+    CannotCreateTransactionException.class, true
+  );
+
+  /*
+   * Messages are read by their content type, thus both encodings are understood while the consumers migrate. The
+   * food preferences are sent as JSON until the encoding is set to binary, while the other messages stay JSON.
+   */
   @Bean
-  public MessageConverter jsonMessageConverter() {
-    return new Jackson2JsonMessageConverter();
+  public MessageConverter messageConverter( @Value( "${app.queue.food-encoding:json}" ) final String encoding ) {
+    final MessageConverter json = new Jackson2JsonMessageConverter();
+    final MessageConverter binary = new FoodPreferenceMessageConverter();
+
+    final ContentTypeDelegatingMessageConverter converter =
+      new ContentTypeDelegatingMessageConverter(
+        "binary".equalsIgnoreCase( encoding ) ? new FoodPreferenceMessageConverter( json ) : json );
+    converter.addDelegate( MessageProperties.CONTENT_TYPE_JSON, json );
+    converter.addDelegate( FoodPreferenceMessageConverter.CONTENT_TYPE, binary );
+    return converter;
+  }
+
+  @Bean( FOOD_SUMMARY_CONTAINER_FACTORY )
+  public SimpleRabbitListenerContainerFactory foodSummaryContainerFactory(
+    final SimpleRabbitListenerContainerFactoryConfigurer configurer, final ConnectionFactory connectionFactory,
+    @Value( "${app.queue.food-summary.batch-size:100}" ) final int batchSize,
+    @Value( "${app.queue.food-summary.receive-timeout:PT1S}" ) final Duration receiveTimeout ) {
+    return batchContainerFactory( configurer, connectionFactory, batchSize, receiveTimeout );
+  }
+
+  @Bean( REGISTRATION_CONTAINER_FACTORY )
+  public SimpleRabbitListenerContainerFactory registrationContainerFactory(
+    final SimpleRabbitListenerContainerFactoryConfigurer configurer, final ConnectionFactory connectionFactory,
+    @Value( "${app.registration.async.batch-size:100}" ) final int batchSize,
+    @Value( "${app.registration.async.receive-timeout:PT0.2S}" ) final Duration receiveTimeout,
+    @Value( "${app.registration.async.retry.max-attempts:3}" ) final int maxAttempts,
+    @Value( "${app.registration.async.retry.initial-interval:PT1S}" ) final Duration initialInterval,
+    @Value( "${app.registration.async.retry.max-interval:PT10S}" ) final Duration maxInterval ) {
+    final SimpleRabbitListenerContainerFactory factory =
+      batchContainerFactory( configurer, connectionFactory, batchSize, receiveTimeout );
+    /*
+     * The clients were told that their registrations will be registered, thus a batch failing on a transient database
+     * error is retried, and then redelivered, rather than dead-lettered. Only messages that cannot be read are
+     * rejected to the dead-letter queue, while the consumer sets aside the registrations that cannot be registered.
+     */
+    factory.setAdviceChain( RetryInterceptorBuilder
+      .stateless()
+      .retryPolicy( new SimpleRetryPolicy( maxAttempts, TRANSIENT_FAILURES, true ) )
+      .backOffOptions( initialInterval.toMillis(), 2, maxInterval.toMillis() )
+      .build() );
+    return factory;
+  }
+
+  /* Delivers up to a batch of messages at once, or fewer when no more arrive within the receive timeout */
+  private static SimpleRabbitListenerContainerFactory batchContainerFactory(
+    final SimpleRabbitListenerContainerFactoryConfigurer configurer, final ConnectionFactory connectionFactory,
+    final int batchSize, final Duration receiveTimeout ) {
+    final SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+    configurer.configure( factory, connectionFactory );
+    factory.setBatchListener( true );
+    factory.setConsumerBatchEnabled( true );
+    factory.setBatchSize( batchSize );
+    factory.setPrefetchCount( batchSize );
+    factory.setReceiveTimeout( receiveTimeout.toMillis() );
+    return factory;
   }
 }
@@ -0,0 +1,31 @@
+package demo.boot.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/* A registration accepted by the asynchronous mode, with the attendee id already given to the client */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueuedRegistration {
+
+  private UUID attendeeId;
+  private UUID eventId;
+  private String name;
+  private FoodPreference foodPreference;
+  private String idempotencyKey;
+
+  public QueuedRegistration( final UUID attendeeId, final UUID eventId, final String name,
+    final FoodPreference foodPreference ) {
+    this( attendeeId, eventId, name, foodPreference, null );
+  }
+
+  public static QueuedRegistration of( final UUID attendeeId, final RegistrationDetails registration,
+    final String idempotencyKey ) {
+    return new QueuedRegistration( attendeeId, registration.getEventId(), registration.getName(),
+      registration.getFoodPreference(), idempotencyKey );
+  }
+}
@@ -0,0 +1,16 @@
+package demo.boot.event;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.UUID;
+
+/* A retry that came while the registration with the same idempotency key is still being queued */
+@ResponseStatus( HttpStatus.CONFLICT )
+public class RegistrationInProgressException extends RuntimeException {
+
+  public RegistrationInProgressException( final UUID eventId, final String idempotencyKey ) {
+    super( String.format( "The registration to event %s with idempotency key %s is in progress", eventId,
+      idempotencyKey ) );
+  }
+}
@@ -0,0 +1,15 @@
+package demo.boot.event;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.UUID;
+
+/* The broker did not take the registration, thus the client is asked to try again rather than given an attendee id */
+@ResponseStatus( HttpStatus.SERVICE_UNAVAILABLE )
+public class RegistrationNotQueuedException extends RuntimeException {
+
+  public RegistrationNotQueuedException( final UUID attendeeId, final String reason ) {
+    super( String.format( "The registration of attendee %s was not queued (%s)", attendeeId, reason ) );
+  }
+}
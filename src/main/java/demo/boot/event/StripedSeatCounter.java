@@ -0,0 +1,55 @@
+package demo.boot.event;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The seats a node believes are left for an event, spread over several stripes so that concurrent registrations
+ * mostly compare-and-set different slots. A seat is only taken from a stripe that has one, thus the total never goes
+ * below zero, without any locks.
+ */
+final class StripedSeatCounter {
+
+  private final AtomicIntegerArray stripes;
+
+  StripedSeatCounter( final int seats, final int stripes ) {
+    final int count = Math.max( 1, Math.min( stripes, seats ) );
+    this.stripes = new AtomicIntegerArray( count );
+    for ( int i = 0; i < count; i++ ) {
+      this.stripes.set( i, seats / count + ( i < seats % count ? 1 : 0 ) );
+    }
+  }
+
+  /* Starts from a random stripe and moves on to the next one when it is empty */
+  boolean tryAcquire() {
+    final int count = stripes.length();
+    final int start = ThreadLocalRandom.current().nextInt( count );
+    for ( int i = 0; i < count; i++ ) {
+      final int stripe = ( start + i ) % count;
+      for ( int seats = stripes.get( stripe ); seats > 0; seats = stripes.get( stripe ) ) {
+        if ( stripes.compareAndSet( stripe, seats, seats - 1 ) ) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  void release() {
+    stripes.incrementAndGet( ThreadLocalRandom.current().nextInt( stripes.length() ) );
+  }
+
+  void drain() {
+    for ( int i = 0; i < stripes.length(); i++ ) {
+      stripes.set( i, 0 );
+    }
+  }
+
+  int available() {
+    int seats = 0;
+    for ( int i = 0; i < stripes.length(); i++ ) {
+      seats += stripes.get( i );
+    }
+    return seats;
+  }
+}
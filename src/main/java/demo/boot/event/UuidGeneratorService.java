@@ -1,13 +1,37 @@
 package demo.boot.event;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Generates the attendee ids, either random (version 4) or time ordered (version 7). The time ordered ids start with
+ * the milliseconds since the epoch, thus the ids inserted together land next to each other in the primary key index,
+ * and take their random bits from the random generator of the calling thread, thus threads never contend.
+ */
 @Service
 public class UuidGeneratorService {
 
+  private static final long VERSION_7 = 0x7000L;
+  private static final long VARIANT = 0x8000000000000000L;
+
+  private final boolean timeOrdered;
+
+  public UuidGeneratorService( @Value( "${app.registration.attendee-ids:random}" ) final String attendeeIds ) {
+    this.timeOrdered = "time-ordered".equalsIgnoreCase( attendeeIds );
+  }
+
   public UUID nextAttendeeId() {
-    return UUID.randomUUID();
+    return timeOrdered ? timeOrdered( System.currentTimeMillis() ) : UUID.randomUUID();
+  }
+
+  /* 48 bits of milliseconds, the version, 12 random bits, the variant and 62 random bits */
+  static UUID timeOrdered( final long millis ) {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final long mostSignificantBits = ( millis << 16 ) | VERSION_7 | ( random.nextInt() & 0x0FFFL );
+    final long leastSignificantBits = VARIANT | ( random.nextLong() >>> 2 );
+    return new UUID( mostSignificantBits, leastSignificantBits );
   }
 }
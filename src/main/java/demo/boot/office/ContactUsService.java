@@ -2,16 +2,35 @@ package demo.boot.office;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ContactUsService {
 
   List<Office> list();
 
+  /* Keyset pagination: up to limit offices ordered by name, starting after the given name (null for the first page) */
+  List<Office> listAfter( final String after, final int limit );
+
+  /* Passes all offices, ordered by name, to the consumer one at a time without holding them all in memory */
+  void streamAll( final Consumer<Office> consumer );
+
   Optional<Office> findOneByName( final String name );
 
   List<Office> findAllInCountry( final String country );
 
+  /* Type-ahead search, where every word in the query is the start of a word in the name, country or address */
+  List<Office> search( final String query, final int limit );
+
+  /* Up to k offices with known coordinates, nearest first */
+  List<Office> findNearest( final double latitude, final double longitude, final int k );
+
   Optional<Office> update( final Office office );
 
   Optional<Office> delete( final String name );
+
+  /* Updates all given offices in one transaction, returning one result per office in the same order */
+  List<OfficeBatchResult> updateAll( final List<Office> offices );
+
+  /* Deletes all named offices in one transaction, returning one result per name in the same order */
+  List<OfficeBatchResult> deleteAll( final List<String> names );
 }
@@ -1,25 +1,55 @@
 package demo.boot.office;
 
 import lombok.AllArgsConstructor;
-import org.springframework.orm.ObjectOptimisticLockingFailureException;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 public class JpaContactUsService implements ContactUsService {
 
+  /* Keeps the number of bind parameters of the IN and OR lists used by the batch operations within the driver limits */
+  private static final int BATCH_CHUNK_SIZE = 1000;
+
   private final OfficesRepository repository;
+  private final EntityManager entityManager;
 
   @Override
+  @Transactional( readOnly = true )
   public List<Office> list() {
-    return mapToOffices( repository.findAll() );
+    return repository.findAllOffices();
+  }
+
+  @Override
+  public List<Office> listAfter( final String after, final int limit ) {
+    final Pageable page = PageRequest.of( 0, limit );
+    return mapToOffices( after == null
+      ? repository.findAllByOrderByNameAsc( page )
+      : repository.findAllByNameGreaterThanOrderByNameAsc( after, page ) );
+  }
+
+  @Override
+  @Transactional( readOnly = true )
+  public void streamAll( final Consumer<Office> consumer ) {
+    try ( final Stream<OfficeEntity> entities = repository.streamAllByOrderByNameAsc() ) {
+      entities
+        .map( detachEntity() )
+        .map( mapToOffice() )
+        .forEach( consumer );
+    }
   }
 
   @Override
@@ -30,34 +60,103 @@ public class JpaContactUsService implements ContactUsService {
   }
 
   @Override
+  @Transactional( readOnly = true )
   public List<Office> findAllInCountry( final String country ) {
-    return mapToOffices( repository.findAllByCountryIgnoreCase( country ) );
+    return repository.findAllOfficesInCountry( country );
   }
 
+  /* Indexes all offices for every search, the snapshot cache keeps the indexes up to date instead */
+  @Override
+  @Transactional( readOnly = true )
+  public List<Office> search( final String query, final int limit ) {
+    return OfficeSnapshot
+      .of( 0L, repository.findAllOfficesWithCountry() )
+      .search( query, limit );
+  }
+
+  @Override
+  @Transactional( readOnly = true )
+  public List<Office> findNearest( final double latitude, final double longitude, final int k ) {
+    return OfficeSnapshot
+      .of( 0L, repository.findAllOfficesWithCountry() )
+      .findNearest( latitude, longitude, k );
+  }
+
+  /* A single UPDATE ... RETURNING, conditional on the version when the office has one */
   @Override
   @Transactional
-  @Retryable( ObjectOptimisticLockingFailureException.class )
   public Optional<Office> update( final Office office ) {
-    return repository
-      .findById( office.getName() )
-      .map( updateEntity( office ) )
-      .map( repository::save )
-      .map( mapToOffice() );
+    final Optional<OfficeEntity> updated = office.getVersion() == null
+      ? repository.updateReturning( office.getName(), office.getAddress(), office.getPhone(), office.getEmail() )
+      : repository.updateReturningIfVersion( office.getName(), office.getAddress(), office.getPhone(),
+      office.getEmail(), office.getVersion() );
+    return updated.map( mapToOffice() );
   }
 
   @Override
   @Transactional
-  @Retryable( ObjectOptimisticLockingFailureException.class )
   public Optional<Office> delete( final String name ) {
     return repository
-      .findById( name )
-      .map( deleteEntity() )
+      .deleteReturning( name )
       .map( mapToOffice() );
   }
 
-  private Function<OfficeEntity, OfficeEntity> deleteEntity() {
+  /*
+   * The changed entities are flushed at commit, as JDBC batches of ordered UPDATE statements. Unlike update(), these
+   * are unconditional and the last writer wins.
+   */
+  @Override
+  @Transactional
+  public List<OfficeBatchResult> updateAll( final List<Office> offices ) {
+    final List<String> names = offices.stream().map( Office::getName ).collect( Collectors.toList() );
+    final Map<String, OfficeEntity> entities = findAllByName( names );
+
+    final List<OfficeBatchResult> results = new ArrayList<>( offices.size() );
+    for ( final Office office : offices ) {
+      final OfficeEntity entity = entities.get( office.getName() );
+      results.add( entity == null
+        ? OfficeBatchResult.notFound( office.getName() )
+        : OfficeBatchResult.updated( updateEntity( office ).andThen( mapToOffice() ).apply( entity ) ) );
+    }
+    return results;
+  }
+
+  @Override
+  @Transactional
+  public List<OfficeBatchResult> deleteAll( final List<String> names ) {
+    final Map<String, OfficeEntity> entities = findAllByName( names );
+    chunks( List.copyOf( entities.values() ) ).forEach( repository::deleteInBatch );
+
+    final List<OfficeBatchResult> results = new ArrayList<>( names.size() );
+    for ( final String name : names ) {
+      final OfficeEntity entity = entities.remove( name );
+      results.add( entity == null
+        ? OfficeBatchResult.notFound( name )
+        : OfficeBatchResult.deleted( mapToOffice().apply( entity ) ) );
+    }
+    return results;
+  }
+
+  private Map<String, OfficeEntity> findAllByName( final List<String> names ) {
+    final Map<String, OfficeEntity> entities = new HashMap<>( names.size() );
+    for ( final List<String> chunk : chunks( names ) ) {
+      repository.findAllById( chunk ).forEach( entity -> entities.put( entity.getName(), entity ) );
+    }
+    return entities;
+  }
+
+  private static <T> List<List<T>> chunks( final List<T> items ) {
+    final List<List<T>> chunks = new ArrayList<>();
+    for ( int from = 0; from < items.size(); from += BATCH_CHUNK_SIZE ) {
+      chunks.add( items.subList( from, Math.min( items.size(), from + BATCH_CHUNK_SIZE ) ) );
+    }
+    return chunks;
+  }
+
+  /* Keeps the persistence context from growing with every row read from the cursor */
+  private Function<OfficeEntity, OfficeEntity> detachEntity() {
     return entity -> {
-      repository.delete( entity );
+      entityManager.detach( entity );
       return entity;
     };
   }
@@ -74,7 +173,10 @@ public class JpaContactUsService implements ContactUsService {
       entity.getName(),
       entity.getAddress(),
       entity.getPhone(),
-      entity.getEmail()
+      entity.getEmail(),
+      entity.getVersion(),
+      entity.getLatitude(),
+      entity.getLongitude()
     );
   }
 
@@ -83,6 +185,7 @@ public class JpaContactUsService implements ContactUsService {
       entity.setAddress( office.getAddress() );
       entity.setPhone( office.getPhone() );
       entity.setEmail( office.getEmail() );
+      entity.setVersion( entity.getVersion() + 1 );
       return entity;
     };
   }
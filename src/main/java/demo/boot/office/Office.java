@@ -1,7 +1,9 @@
 package demo.boot.office;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 @Data
@@ -13,4 +15,24 @@ public class Office {
   private String address;
   private String phone;
   private String email;
+
+  /* Used for compare-and-set updates, where null updates the office whatever its current version is */
+  @JsonInclude( JsonInclude.Include.NON_NULL )
+  @EqualsAndHashCode.Exclude
+  private Long version;
+
+  @JsonInclude( JsonInclude.Include.NON_NULL )
+  private Double latitude;
+
+  @JsonInclude( JsonInclude.Include.NON_NULL )
+  private Double longitude;
+
+  public Office( final String name, final String address, final String phone, final String email ) {
+    this( name, address, phone, email, null );
+  }
+
+  public Office( final String name, final String address, final String phone, final String email,
+    final Long version ) {
+    this( name, address, phone, email, version, null, null );
+  }
 }
@@ -0,0 +1,33 @@
+package demo.boot.office;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OfficeBatchResult {
+
+  public enum Status {
+    UPDATED,
+    DELETED,
+    NOT_FOUND
+  }
+
+  private String name;
+  private Status status;
+  private Office office;
+
+  public static OfficeBatchResult updated( final Office office ) {
+    return new OfficeBatchResult( office.getName(), Status.UPDATED, office );
+  }
+
+  public static OfficeBatchResult deleted( final Office office ) {
+    return new OfficeBatchResult( office.getName(), Status.DELETED, office );
+  }
+
+  public static OfficeBatchResult notFound( final String name ) {
+    return new OfficeBatchResult( name, Status.NOT_FOUND, null );
+  }
+}
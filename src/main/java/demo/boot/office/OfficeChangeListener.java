@@ -0,0 +1,205 @@
+package demo.boot.office;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listens, on a dedicated connection, for the changes made to the offices by any node and moves this node to the
+ * directory version they carry, thus the next read on this node rebuilds the snapshot. The notifications are sent by
+ * the trigger on the offices table, once for every statement that changes any office.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty( value = "app.offices.change-listener.enabled", matchIfMissing = true )
+public class OfficeChangeListener implements SmartLifecycle {
+
+  static final String CHANNEL = "office_changes";
+
+  private static final Duration QUEUE_USAGE_INTERVAL = Duration.ofSeconds( 10 );
+
+  private final DataSourceProperties dataSource;
+  private final OfficeSnapshotCacheDecorator cache;
+  private final ObjectMapper objectMapper;
+  private final Duration pollTimeout;
+  private final Duration retryDelay;
+  private final Clock clock;
+  private final Timer lag;
+  private final Counter notifications;
+  private final Counter reconnects;
+
+  private volatile double queueUsage;
+  private volatile boolean running;
+  private Thread thread;
+
+  public OfficeChangeListener( final DataSourceProperties dataSource,
+    @Qualifier( "officeSnapshotCacheDecorator" ) final OfficeSnapshotCacheDecorator cache,
+    final ObjectMapper objectMapper, final MeterRegistry registry,
+    @Value( "${app.offices.change-listener.poll-timeout:PT0.5S}" ) final Duration pollTimeout,
+    @Value( "${app.offices.change-listener.retry-delay:PT5S}" ) final Duration retryDelay ) {
+    this.dataSource = dataSource;
+    this.cache = cache;
+    this.objectMapper = objectMapper;
+    this.pollTimeout = pollTimeout;
+    this.retryDelay = retryDelay;
+    this.clock = registry.config().clock();
+    this.lag = Timer
+      .builder( "app.office.change.lag" )
+      .description( "Time from the change being made in the database until this node invalidated its offices" )
+      .publishPercentiles( 0.5, 0.99 )
+      .register( registry );
+    this.notifications = registry.counter( "app.office.change.notifications" );
+    this.reconnects = registry.counter( "app.office.change.reconnects" );
+    Gauge
+      .builder( "app.office.change.queue.usage", this, listener -> listener.queueUsage )
+      .description( "Fraction of the database notification queue in use, as reported by the database" )
+      .register( registry );
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    thread = new Thread( this::listen, "office-change-listener" );
+    thread.setDaemon( true );
+    thread.start();
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    if ( thread != null ) {
+      thread.interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /* The latest version covers any number of changes, thus a burst of writes only causes one rebuild */
+  void handle( final List<String> payloads ) {
+    final long now = clock.wallTime();
+    long latest = 0;
+    boolean unreadable = false;
+    for ( final String payload : payloads ) {
+      notifications.increment();
+      final JsonNode change = read( payload );
+      final long at = change.path( "at" ).asLong( 0 );
+      if ( at > 0 ) {
+        lag.record( Math.max( 0, now - at ), TimeUnit.MILLISECONDS );
+      }
+
+      final long version = change.path( "version" ).asLong( 0 );
+      if ( version > 0 ) {
+        latest = Math.max( latest, version );
+      } else {
+        unreadable = true;
+      }
+    }
+
+    if ( unreadable ) {
+      cache.invalidate();
+    } else {
+      cache.changedTo( latest );
+    }
+  }
+
+  private void listen() {
+    while ( running ) {
+      try ( Connection connection = connect() ) {
+        try ( Statement statement = connection.createStatement() ) {
+          statement.execute( "LISTEN " + CHANNEL );
+        }
+
+        /* Changes made while this node was not listening are lost, thus whatever was loaded before may be stale */
+        cache.invalidate();
+        poll( connection );
+      } catch ( final SQLException | RuntimeException e ) {
+        /* The offices are read again from the database, which may be the one that is unavailable */
+        if ( running ) {
+          log.warn( "The office change listener failed, listening again in {}", retryDelay, e );
+          reconnects.increment();
+          sleep( retryDelay );
+        }
+      }
+    }
+  }
+
+  private void poll( final Connection connection ) throws SQLException {
+    final PGConnection pg = connection.unwrap( PGConnection.class );
+    long nextQueueUsage = 0;
+    while ( running ) {
+      final PGNotification[] received = pg.getNotifications( (int) pollTimeout.toMillis() );
+      if ( received != null && received.length > 0 ) {
+        final List<String> payloads = new ArrayList<>( received.length );
+        for ( final PGNotification notification : received ) {
+          payloads.add( notification.getParameter() );
+        }
+        handle( payloads );
+      }
+
+      if ( clock.monotonicTime() >= nextQueueUsage ) {
+        queueUsage = queueUsage( connection );
+        nextQueueUsage = clock.monotonicTime() + QUEUE_USAGE_INTERVAL.toNanos();
+      }
+    }
+  }
+
+  private Connection connect() throws SQLException {
+    return DriverManager.getConnection(
+      dataSource.determineUrl(),
+      dataSource.determineUsername(),
+      dataSource.determinePassword()
+    );
+  }
+
+  private static double queueUsage( final Connection connection ) throws SQLException {
+    try ( Statement statement = connection.createStatement();
+          ResultSet result = statement.executeQuery( "SELECT pg_notification_queue_usage()" ) ) {
+      return result.next() ? result.getDouble( 1 ) : 0;
+    }
+  }
+
+  /* Notifications that cannot be read still invalidate the offices, from the version in the database */
+  private JsonNode read( final String payload ) {
+    try {
+      return objectMapper.readTree( payload );
+    } catch ( final JsonProcessingException e ) {
+      return MissingNode.getInstance();
+    }
+  }
+
+  private static void sleep( final Duration duration ) {
+    try {
+      Thread.sleep( duration.toMillis() );
+    } catch ( final InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -1,25 +1,256 @@
 package demo.boot.office;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
 
-@AllArgsConstructor
 @RestController
 public class OfficeController {
 
+  public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+  public static final MediaType APPLICATION_NDJSON = MediaType.valueOf( APPLICATION_NDJSON_VALUE );
+
+  private static final int MAX_PAGE_SIZE = 1000;
+  private static final int MAX_SEARCH_RESULTS = 50;
+  private static final int MAX_NEAREST = 50;
+  private static final String GZIP_ETAG_SUFFIX = "-gzip";
+
   private final ContactUsService service;
+  private final OfficeDirectoryVersion version;
+  private final OfficeResponseCache responseCache;
+  private final ObjectMapper objectMapper;
+  private final String cacheControl;
+
+  public OfficeController( final ContactUsService service, final OfficeDirectoryVersion version,
+    final OfficeResponseCache responseCache, final ObjectMapper objectMapper,
+    @Value( "${app.offices.cache-control:no-cache}" ) final String cacheControl ) {
+    this.service = service;
+    this.version = version;
+    this.responseCache = responseCache;
+    this.objectMapper = objectMapper;
+    this.cacheControl = cacheControl;
+  }
 
   @RequestMapping( "/offices" )
-  public List<Office> offices() {
-    return service.list();
+  public ResponseEntity<byte[]> offices(
+    final @RequestHeader( value = HttpHeaders.IF_NONE_MATCH, required = false ) String ifNoneMatch,
+    final @RequestHeader( value = HttpHeaders.ACCEPT_ENCODING, required = false ) String acceptEncoding
+  ) {
+    return serialised( ifNoneMatch, acceptEncoding, current -> responseCache.all( current, service::list ) );
+  }
+
+  @GetMapping( value = "/offices", params = "limit" )
+  public ResponseEntity<List<Office>> officesPage(
+    final @RequestParam( value = "after", required = false ) String after,
+    final @RequestParam( "limit" ) int limit,
+    final @RequestHeader( value = HttpHeaders.IF_NONE_MATCH, required = false ) String ifNoneMatch
+  ) {
+    if ( limit < 1 ) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    final int size = Math.min( limit, MAX_PAGE_SIZE );
+    final ResponseEntity<List<Office>> response =
+      conditional( ifNoneMatch, ( ok, current ) -> ok.body( service.listAfter( after, size ) ) );
+    return withNextPageLink( response, size );
+  }
+
+  @GetMapping( value = "/offices", produces = APPLICATION_NDJSON_VALUE )
+  public ResponseEntity<StreamingResponseBody> officesStream() {
+    return ResponseEntity
+      .ok()
+      .contentType( APPLICATION_NDJSON )
+      .body( output -> service.streamAll( writeLine( output ) ) );
+  }
+
+  @PostMapping( "/offices/batch/update" )
+  public List<OfficeBatchResult> updateAll( final @RequestBody List<Office> offices ) {
+    return service.updateAll( offices );
+  }
+
+  @PostMapping( "/offices/batch/delete" )
+  public List<OfficeBatchResult> deleteAll( final @RequestBody List<String> names ) {
+    return service.deleteAll( names );
+  }
+
+  @GetMapping( "/offices/search" )
+  public ResponseEntity<List<Office>> search(
+    final @RequestParam( "q" ) String query,
+    final @RequestParam( value = "limit", defaultValue = "10" ) int limit,
+    final @RequestHeader( value = HttpHeaders.IF_NONE_MATCH, required = false ) String ifNoneMatch
+  ) {
+    if ( limit < 1 ) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    final int size = Math.min( limit, MAX_SEARCH_RESULTS );
+    return conditional( ifNoneMatch, ( ok, current ) -> ok.body( service.search( query, size ) ) );
+  }
+
+  @GetMapping( "/offices/nearest" )
+  public ResponseEntity<List<Office>> nearest(
+    final @RequestParam( "lat" ) double latitude,
+    final @RequestParam( "lon" ) double longitude,
+    final @RequestParam( value = "k", defaultValue = "5" ) int k,
+    final @RequestHeader( value = HttpHeaders.IF_NONE_MATCH, required = false ) String ifNoneMatch
+  ) {
+    if ( k < 1 || Math.abs( latitude ) > 90 || Math.abs( longitude ) > 180 ) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    final int size = Math.min( k, MAX_NEAREST );
+    return conditional( ifNoneMatch, ( ok, current ) -> ok.body( service.findNearest( latitude, longitude, size ) ) );
   }
 
   @RequestMapping( "/offices/{country}" )
-  public List<Office> officesIn( final @PathVariable( "country" ) String country ) {
-    return service.findAllInCountry( country );
+  public ResponseEntity<byte[]> officesIn(
+    final @PathVariable( "country" ) String country,
+    final @RequestHeader( value = HttpHeaders.IF_NONE_MATCH, required = false ) String ifNoneMatch,
+    final @RequestHeader( value = HttpHeaders.ACCEPT_ENCODING, required = false ) String acceptEncoding
+  ) {
+    return serialised( ifNoneMatch, acceptEncoding, current ->
+      responseCache.inCountry( country, current, () -> service.findAllInCountry( country ) ) );
+  }
+
+  private <T> ResponseEntity<T> conditional( final String ifNoneMatch,
+    final BiFunction<ResponseEntity.BodyBuilder, Long, ResponseEntity<T>> ok ) {
+    /* Read the version before the offices, so that a concurrent change can only make the ETag older than the body */
+    final long current = version.current();
+    final String etag = etag( current, "" );
+
+    if ( isNotModified( ifNoneMatch, etag ) ) {
+      return notModified( etag ).build();
+    }
+
+    return ok.apply( ok( etag ), current );
+  }
+
+  /*
+   * The bytes are written as they are, without going through Jackson for every request. The gzipped and the plain
+   * bodies are different representations, thus each has its own strong ETag, and either is still fresh.
+   */
+  private ResponseEntity<byte[]> serialised( final String ifNoneMatch, final String acceptEncoding,
+    final LongFunction<OfficeResponseCache.Body> bodyAt ) {
+    final long current = version.current();
+    final String etag = etag( current, "" );
+    final String gzipEtag = etag( current, GZIP_ETAG_SUFFIX );
+
+    if ( isNotModified( ifNoneMatch, etag ) ) {
+      return notModified( etag ).header( HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING ).build();
+    }
+    if ( isNotModified( ifNoneMatch, gzipEtag ) ) {
+      return notModified( gzipEtag ).header( HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING ).build();
+    }
+
+    final OfficeResponseCache.Body body = bodyAt.apply( current );
+    if ( body.getGzip() != null && acceptsGzip( acceptEncoding ) ) {
+      return json( ok( gzipEtag ) ).header( HttpHeaders.CONTENT_ENCODING, "gzip" ).body( body.getGzip() );
+    }
+    return json( ok( etag ) ).body( body.getJson() );
+  }
+
+  private static String etag( final long version, final String suffix ) {
+    return "\"" + version + suffix + "\"";
+  }
+
+  private ResponseEntity.BodyBuilder notModified( final String etag ) {
+    return ResponseEntity
+      .status( HttpStatus.NOT_MODIFIED )
+      .eTag( etag )
+      .header( HttpHeaders.CACHE_CONTROL, cacheControl );
+  }
+
+  private ResponseEntity.BodyBuilder ok( final String etag ) {
+    return ResponseEntity
+      .ok()
+      .eTag( etag )
+      .header( HttpHeaders.CACHE_CONTROL, cacheControl );
+  }
+
+  private static ResponseEntity.BodyBuilder json( final ResponseEntity.BodyBuilder ok ) {
+    return ok.contentType( MediaType.APPLICATION_JSON ).header( HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING );
+  }
+
+  private static boolean acceptsGzip( final String acceptEncoding ) {
+    if ( acceptEncoding == null ) {
+      return false;
+    }
+
+    for ( final String candidate : acceptEncoding.split( "," ) ) {
+      final String[] parts = candidate.trim().split( ";" );
+      if ( parts[0].trim().equalsIgnoreCase( "gzip" ) ) {
+        return parts.length == 1 || !parts[1].trim().replace( " ", "" ).matches( "q=0(\\.0*)?" );
+      }
+    }
+    return false;
+  }
+
+  /* A full page may be followed by more offices, which are found after the last office in this page */
+  private static ResponseEntity<List<Office>> withNextPageLink( final ResponseEntity<List<Office>> response,
+    final int size ) {
+    final List<Office> page = response.getBody();
+    if ( page == null || page.size() < size ) {
+      return response;
+    }
+
+    final String next = UriComponentsBuilder
+      .fromPath( "/offices" )
+      .queryParam( "after", page.get( page.size() - 1 ).getName() )
+      .queryParam( "limit", size )
+      .encode()
+      .toUriString();
+
+    return ResponseEntity
+      .status( response.getStatusCode() )
+      .headers( response.getHeaders() )
+      .header( HttpHeaders.LINK, String.format( "<%s>; rel=\"next\"", next ) )
+      .body( page );
+  }
+
+  private Consumer<Office> writeLine( final OutputStream output ) {
+    return office -> {
+      try {
+        output.write( objectMapper.writeValueAsBytes( office ) );
+        output.write( '\n' );
+      } catch ( final IOException e ) {
+        throw new UncheckedIOException( e );
+      }
+    };
+  }
+
+  /* If-None-Match uses the weak comparison, thus W/"1" matches "1" too */
+  private static boolean isNotModified( final String ifNoneMatch, final String etag ) {
+    if ( ifNoneMatch == null ) {
+      return false;
+    }
+
+    for ( final String candidate : ifNoneMatch.split( "," ) ) {
+      final String tag = candidate.trim();
+      if ( tag.equals( "*" ) || tag.equals( etag ) || tag.equals( "W/" + etag ) ) {
+        return true;
+      }
+    }
+    return false;
   }
 }
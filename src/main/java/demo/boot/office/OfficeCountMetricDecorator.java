@@ -1,15 +1,28 @@
 package demo.boot.office;
 
-import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+/**
+ * Records the latency of every {@link ContactUsService} method, tagged by method and outcome, and keeps the number of
+ * offices as a gauge. The gauge is adjusted locally when offices are deleted and periodically reconciled against the
+ * database, which keeps it correct across restarts and when several instances change the offices.
+ */
 public class OfficeCountMetricDecorator implements ContactUsService {
 
   @Configuration
@@ -18,57 +31,167 @@ public class OfficeCountMetricDecorator implements ContactUsService {
     @Bean
     @Primary
     public OfficeCountMetricDecorator create( final MeterRegistry registry, final OfficesRepository repository,
-      final JpaContactUsService target ) {
-      final Counter officeCounter = createAndInitCounter( registry, repository );
-      return new OfficeCountMetricDecorator( officeCounter, target );
+      @Qualifier( "officeSnapshotCacheDecorator" ) final ContactUsService target ) {
+      final OfficeCountMetricDecorator decorator = new OfficeCountMetricDecorator( registry, repository, target );
+      decorator.reconcileOfficeCount();
+      return decorator;
+    }
+  }
+
+  private static final class MethodTimers {
+    private final Timer success;
+    private final Timer notFound;
+    private final Timer error;
+
+    private MethodTimers( final MeterRegistry registry, final String method ) {
+      this.success = create( registry, method, "success" );
+      this.notFound = create( registry, method, "not_found" );
+      this.error = create( registry, method, "error" );
     }
 
-    private Counter createAndInitCounter( final MeterRegistry registry, final OfficesRepository repository ) {
-      final Counter officeCounter = registry.counter( "app.office.count" );
-      officeCounter.increment( repository.count() );
-      return officeCounter;
+    private Timer outcomeOf( final Object result ) {
+      return result instanceof Optional && ( (Optional<?>) result ).isEmpty() ? notFound : success;
+    }
+
+    private static Timer create( final MeterRegistry registry, final String method, final String outcome ) {
+      return Timer
+        .builder( "app.office.service" )
+        .tag( "method", method )
+        .tag( "outcome", outcome )
+        .publishPercentileHistogram()
+        .serviceLevelObjectives(
+          Duration.ofMillis( 1 ),
+          Duration.ofMillis( 5 ),
+          Duration.ofMillis( 10 ),
+          Duration.ofMillis( 50 ),
+          Duration.ofMillis( 100 ),
+          Duration.ofMillis( 500 )
+        )
+        .register( registry );
     }
   }
 
-  private final Counter officeCounter;
-  private final JpaContactUsService target;
+  private final OfficesRepository repository;
+  private final ContactUsService target;
+  private final Clock clock;
+  private final AtomicLong officeCount = new AtomicLong();
 
-  public OfficeCountMetricDecorator( final Counter officeCounter, final JpaContactUsService target ) {
-    this.officeCounter = officeCounter;
+  private final MethodTimers listTimers;
+  private final MethodTimers listAfterTimers;
+  private final MethodTimers streamAllTimers;
+  private final MethodTimers findOneByNameTimers;
+  private final MethodTimers findAllInCountryTimers;
+  private final MethodTimers searchTimers;
+  private final MethodTimers findNearestTimers;
+  private final MethodTimers updateTimers;
+  private final MethodTimers deleteTimers;
+  private final MethodTimers updateAllTimers;
+  private final MethodTimers deleteAllTimers;
+
+  public OfficeCountMetricDecorator( final MeterRegistry registry, final OfficesRepository repository,
+    final ContactUsService target ) {
+    this.repository = repository;
     this.target = target;
+    this.clock = registry.config().clock();
+
+    Gauge.builder( "app.office.count", officeCount, AtomicLong::get ).register( registry );
+
+    this.listTimers = new MethodTimers( registry, "list" );
+    this.listAfterTimers = new MethodTimers( registry, "listAfter" );
+    this.streamAllTimers = new MethodTimers( registry, "streamAll" );
+    this.findOneByNameTimers = new MethodTimers( registry, "findOneByName" );
+    this.findAllInCountryTimers = new MethodTimers( registry, "findAllInCountry" );
+    this.searchTimers = new MethodTimers( registry, "search" );
+    this.findNearestTimers = new MethodTimers( registry, "findNearest" );
+    this.updateTimers = new MethodTimers( registry, "update" );
+    this.deleteTimers = new MethodTimers( registry, "delete" );
+    this.updateAllTimers = new MethodTimers( registry, "updateAll" );
+    this.deleteAllTimers = new MethodTimers( registry, "deleteAll" );
+  }
+
+  @Scheduled(
+    initialDelayString = "${app.offices.count-reconcile-interval:PT1M}",
+    fixedDelayString = "${app.offices.count-reconcile-interval:PT1M}"
+  )
+  public void reconcileOfficeCount() {
+    officeCount.set( repository.count() );
   }
 
   @Override
   public List<Office> list() {
-    return target.list();
+    return timed( listTimers, target::list );
+  }
+
+  @Override
+  public List<Office> listAfter( final String after, final int limit ) {
+    return timed( listAfterTimers, () -> target.listAfter( after, limit ) );
+  }
+
+  @Override
+  public void streamAll( final Consumer<Office> consumer ) {
+    timed( streamAllTimers, () -> {
+      target.streamAll( consumer );
+      return null;
+    } );
   }
 
   @Override
   public Optional<Office> findOneByName( final String name ) {
-    return target.findOneByName( name );
+    return timed( findOneByNameTimers, () -> target.findOneByName( name ) );
   }
 
   @Override
   public List<Office> findAllInCountry( final String country ) {
-    return target.findAllInCountry( country );
+    return timed( findAllInCountryTimers, () -> target.findAllInCountry( country ) );
+  }
+
+  @Override
+  public List<Office> search( final String query, final int limit ) {
+    return timed( searchTimers, () -> target.search( query, limit ) );
+  }
+
+  @Override
+  public List<Office> findNearest( final double latitude, final double longitude, final int k ) {
+    return timed( findNearestTimers, () -> target.findNearest( latitude, longitude, k ) );
   }
 
   @Override
   public Optional<Office> update( final Office office ) {
-    return target.update( office );
+    return timed( updateTimers, () -> target.update( office ) );
   }
 
   @Override
   public Optional<Office> delete( final String name ) {
-    return target
-      .delete( name )
-      .map( decrementOfficeCount() );
+    final Optional<Office> deleted = timed( deleteTimers, () -> target.delete( name ) );
+    deleted.ifPresent( office -> officeCount.decrementAndGet() );
+    return deleted;
   }
 
-  private Function<Office, Office> decrementOfficeCount() {
-    return office -> {
-      officeCounter.increment( -1 );
-      return office;
-    };
+  @Override
+  public List<OfficeBatchResult> updateAll( final List<Office> offices ) {
+    return timed( updateAllTimers, () -> target.updateAll( offices ) );
+  }
+
+  @Override
+  public List<OfficeBatchResult> deleteAll( final List<String> names ) {
+    final List<OfficeBatchResult> results = timed( deleteAllTimers, () -> target.deleteAll( names ) );
+    final long deleted = results
+      .stream()
+      .filter( result -> result.getStatus() == OfficeBatchResult.Status.DELETED )
+      .count();
+    officeCount.addAndGet( -deleted );
+    return results;
+  }
+
+  private <T> T timed( final MethodTimers timers, final Supplier<T> call ) {
+    final long start = clock.monotonicTime();
+    try {
+      final T result = call.get();
+      timers.outcomeOf( result ).record( clock.monotonicTime() - start, TimeUnit.NANOSECONDS );
+      return result;
+    } catch ( final RuntimeException e ) {
+      timers.error.record( clock.monotonicTime() - start, TimeUnit.NANOSECONDS );
+      throw e;
+    }
   }
 }
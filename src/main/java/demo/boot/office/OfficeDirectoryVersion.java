@@ -0,0 +1,36 @@
+package demo.boot.office;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the office directory, kept by the database and moved on by the trigger on the offices table once per
+ * transaction that changes any office. This node holds the latest version it learnt of, from the database or from the
+ * change notifications, thus every node hands out the same versions. Anything derived from the offices (snapshots,
+ * ETags) is only valid for the version it was built from.
+ */
+@Component
+public class OfficeDirectoryVersion {
+
+  private final OfficesRepository repository;
+  private final AtomicLong version;
+
+  public OfficeDirectoryVersion( final OfficesRepository repository ) {
+    this.repository = repository;
+    this.version = new AtomicLong( repository.findDirectoryVersion() );
+  }
+
+  public long current() {
+    return version.get();
+  }
+
+  /* Only ever moves forward, as the notifications may arrive after the version was read from the database */
+  public long advanceTo( final long latest ) {
+    return version.accumulateAndGet( latest, Math::max );
+  }
+
+  public long refresh() {
+    return advanceTo( repository.findDirectoryVersion() );
+  }
+}
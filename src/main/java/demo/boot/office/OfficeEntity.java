@@ -22,4 +22,21 @@ public class OfficeEntity {
   private String phone;
   private String email;
   private String webpage;
+
+  /* Incremented by every update, but not a JPA @Version, as the updates are conditional statements themselves */
+  private long version;
+
+  /* Both null when the location of the office is not known */
+  private Double latitude;
+  private Double longitude;
+
+  public OfficeEntity( final String name, final String address, final String country, final String phone,
+    final String email, final String webpage ) {
+    this( name, address, country, phone, email, webpage, 0L );
+  }
+
+  public OfficeEntity( final String name, final String address, final String country, final String phone,
+    final String email, final String webpage, final long version ) {
+    this( name, address, country, phone, email, webpage, version, null, null );
+  }
 }
@@ -0,0 +1,136 @@
+package demo.boot.office;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the office lists already serialised as UTF-8 JSON, and optionally gzipped, for the directory version they
+ * were serialised at. Any change to the offices moves the directory to a new version, which drops all of them at
+ * once.
+ */
+@Component
+public class OfficeResponseCache {
+
+  public static final class Body {
+    private final byte[] json;
+    private final byte[] gzip;
+
+    private Body( final byte[] json, final byte[] gzip ) {
+      this.json = json;
+      this.gzip = gzip;
+    }
+
+    public byte[] getJson() {
+      return json;
+    }
+
+    /* Null when compression is disabled or the JSON is too small to benefit from it */
+    public byte[] getGzip() {
+      return gzip;
+    }
+  }
+
+  private static final class Generation {
+    private final long version;
+    private final Map<String, Body> bodies = new ConcurrentHashMap<>();
+
+    private Generation( final long version ) {
+      this.version = version;
+    }
+  }
+
+  /* Same threshold as the server compression of Spring Boot */
+  private static final int MIN_GZIP_SIZE = 2048;
+
+  private static final String ALL_KEY = "";
+
+  private final ObjectMapper objectMapper;
+  private final boolean gzip;
+  private final AtomicReference<Generation> generation = new AtomicReference<>( new Generation( Long.MIN_VALUE ) );
+  private final Body empty;
+
+  public OfficeResponseCache( final ObjectMapper objectMapper,
+    @Value( "${app.offices.response-cache.gzip:true}" ) final boolean gzip ) {
+    this.objectMapper = objectMapper;
+    this.gzip = gzip;
+    this.empty = serialise( List.of() );
+  }
+
+  public Body all( final long version, final Supplier<List<Office>> offices ) {
+    return get( ALL_KEY, version, offices );
+  }
+
+  public Body inCountry( final String country, final long version, final Supplier<List<Office>> offices ) {
+    return get( "country/" + country.toUpperCase( Locale.ROOT ), version, offices );
+  }
+
+  private Body get( final String key, final long version, final Supplier<List<Office>> offices ) {
+    final Generation current = generationOf( version );
+    final Body cached = current.bodies.get( key );
+    if ( cached != null ) {
+      return cached;
+    }
+
+    final List<Office> list = offices.get();
+
+    /* Empty lists are not kept, otherwise every unknown country would take up an entry */
+    if ( list.isEmpty() ) {
+      return empty;
+    }
+
+    final Body body = serialise( list );
+    current.bodies.put( key, body );
+    return body;
+  }
+
+  /* Only ever moves forward, thus a request holding an older version does not throw away the newer bodies */
+  private Generation generationOf( final long version ) {
+    while ( true ) {
+      final Generation current = generation.get();
+      if ( current.version == version ) {
+        return current;
+      }
+
+      if ( current.version > version ) {
+        return new Generation( version );
+      }
+
+      final Generation next = new Generation( version );
+      if ( generation.compareAndSet( current, next ) ) {
+        return next;
+      }
+    }
+  }
+
+  private Body serialise( final List<Office> offices ) {
+    try {
+      final byte[] json = objectMapper.writeValueAsBytes( offices );
+      return new Body( json, gzip && json.length >= MIN_GZIP_SIZE ? compress( json ) : null );
+    } catch ( final JsonProcessingException e ) {
+      throw new UncheckedIOException( e );
+    }
+  }
+
+  private static byte[] compress( final byte[] json ) {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream( json.length / 4 );
+    try ( GZIPOutputStream gzip = new GZIPOutputStream( output ) ) {
+      gzip.write( json );
+    } catch ( final IOException e ) {
+      throw new UncheckedIOException( e );
+    }
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,232 @@
+package demo.boot.office;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable trigram index over the words of the office name, country and address, used for type-ahead search.
+ * Words are padded at the front before being split into trigrams, thus every query word is matched as the prefix of
+ * a word. Changes produce a new index that shares the untouched posting lists with this one.
+ */
+final class OfficeSearchIndex {
+
+  static final OfficeSearchIndex EMPTY = new OfficeSearchIndex( Map.of(), Map.of() );
+
+  private static final Pattern MARKS = Pattern.compile( "\\p{M}+" );
+  private static final Pattern SEPARATORS = Pattern.compile( "[^\\p{L}\\p{N}]+" );
+
+  private static final class Document {
+    private final Office office;
+    private final List<String> nameWords;
+    private final List<String> countryWords;
+    private final List<String> addressWords;
+
+    private Document( final Office office, final String country ) {
+      this.office = office;
+      this.nameWords = words( office.getName() );
+      this.countryWords = words( country );
+      this.addressWords = words( office.getAddress() );
+    }
+
+    private Set<String> trigrams() {
+      final Set<String> trigrams = new HashSet<>();
+      for ( final List<String> words : List.of( nameWords, countryWords, addressWords ) ) {
+        for ( final String word : words ) {
+          trigrams.addAll( trigramsOf( word ) );
+        }
+      }
+      return trigrams;
+    }
+
+    /* Every query word has to match some word, otherwise the office is not a match and scores 0 */
+    private int score( final List<String> queryWords ) {
+      int total = 0;
+      for ( final String queryWord : queryWords ) {
+        final int score = Math.max( score( nameWords, queryWord, 6 ),
+          Math.max( score( countryWords, queryWord, 4 ), score( addressWords, queryWord, 2 ) ) );
+        if ( score == 0 ) {
+          return 0;
+        }
+        total += score;
+      }
+      return total;
+    }
+
+    /* A whole word is worth a bit more than a prefix */
+    private static int score( final List<String> words, final String queryWord, final int weight ) {
+      int score = 0;
+      for ( final String word : words ) {
+        if ( word.equals( queryWord ) ) {
+          return weight + 1;
+        }
+        if ( word.startsWith( queryWord ) ) {
+          score = weight;
+        }
+      }
+      return score;
+    }
+  }
+
+  private static final class Match {
+    private final Office office;
+    private final int score;
+
+    private Match( final Office office, final int score ) {
+      this.office = office;
+      this.score = score;
+    }
+  }
+
+  private static final Comparator<Match> RANKING = Comparator
+    .<Match>comparingInt( match -> -match.score )
+    .thenComparing( match -> match.office.getName() );
+
+  private final Map<String, Document> documents;
+  private final Map<String, Set<String>> postings;
+
+  private OfficeSearchIndex( final Map<String, Document> documents, final Map<String, Set<String>> postings ) {
+    this.documents = documents;
+    this.postings = postings;
+  }
+
+  /* Adds the given offices, replacing any office with the same name */
+  OfficeSearchIndex withIndexed( final Collection<Office> offices, final Function<Office, String> countryOf ) {
+    final Changes changes = new Changes();
+    for ( final Office office : offices ) {
+      changes.remove( office.getName() );
+      changes.add( new Document( office, countryOf.apply( office ) ) );
+    }
+    return changes.apply();
+  }
+
+  OfficeSearchIndex withDeleted( final Collection<String> names ) {
+    final Changes changes = new Changes();
+    for ( final String name : names ) {
+      changes.remove( name );
+    }
+    return changes.apply();
+  }
+
+  List<Office> search( final String query, final int limit ) {
+    final List<String> queryWords = words( query );
+    if ( queryWords.isEmpty() ) {
+      return List.of();
+    }
+
+    /* The smallest posting list bounds the candidates, which are then checked and scored one by one */
+    Set<String> candidates = null;
+    for ( final String queryWord : queryWords ) {
+      for ( final String trigram : trigramsOf( queryWord ) ) {
+        final Set<String> posting = postings.get( trigram );
+        if ( posting == null ) {
+          return List.of();
+        }
+        if ( candidates == null || posting.size() < candidates.size() ) {
+          candidates = posting;
+        }
+      }
+    }
+
+    final List<Match> matches = new ArrayList<>();
+    for ( final String name : candidates ) {
+      final Document document = documents.get( name );
+      final int score = document.score( queryWords );
+      if ( score > 0 ) {
+        matches.add( new Match( document.office, score ) );
+      }
+    }
+
+    matches.sort( RANKING );
+    final List<Office> offices = new ArrayList<>( Math.min( limit, matches.size() ) );
+    for ( int i = 0, size = Math.min( limit, matches.size() ); i < size; i++ ) {
+      offices.add( matches.get( i ).office );
+    }
+    return offices;
+  }
+
+  /* Copies the maps once, and each touched posting list once, however many offices change */
+  private final class Changes {
+    private final Map<String, Document> documents = new HashMap<>( OfficeSearchIndex.this.documents );
+    private final Map<String, Set<String>> postings = new HashMap<>( OfficeSearchIndex.this.postings );
+    private final Set<String> copied = new HashSet<>();
+
+    private void remove( final String name ) {
+      final Document removed = documents.remove( name );
+      if ( removed == null ) {
+        return;
+      }
+
+      for ( final String trigram : removed.trigrams() ) {
+        writable( trigram ).remove( name );
+      }
+    }
+
+    private void add( final Document document ) {
+      final String name = document.office.getName();
+      documents.put( name, document );
+      for ( final String trigram : document.trigrams() ) {
+        writable( trigram ).add( name );
+      }
+    }
+
+    private Set<String> writable( final String trigram ) {
+      if ( copied.add( trigram ) ) {
+        final Set<String> existing = postings.get( trigram );
+        final Set<String> copy = existing == null ? new LinkedHashSet<>() : new LinkedHashSet<>( existing );
+        postings.put( trigram, copy );
+        return copy;
+      }
+      return postings.get( trigram );
+    }
+
+    /* Postings left empty are dropped, thus a missing trigram is enough to tell that nothing matches */
+    private OfficeSearchIndex apply() {
+      for ( final String trigram : copied ) {
+        postings.computeIfPresent( trigram,
+          ( t, posting ) -> posting.isEmpty() ? null : Collections.unmodifiableSet( posting ) );
+      }
+      return new OfficeSearchIndex( documents, postings );
+    }
+  }
+
+  /* Lower case words without accents, thus an accented letter is also found by the plain letter */
+  static List<String> words( final String text ) {
+    if ( text == null ) {
+      return List.of();
+    }
+
+    final String normalised = MARKS
+      .matcher( Normalizer.normalize( text, Normalizer.Form.NFD ) )
+      .replaceAll( "" )
+      .toLowerCase( Locale.ROOT );
+
+    final List<String> words = new ArrayList<>();
+    for ( final String word : SEPARATORS.split( normalised ) ) {
+      if ( !word.isEmpty() ) {
+        words.add( word );
+      }
+    }
+    return words;
+  }
+
+  private static List<String> trigramsOf( final String word ) {
+    final String padded = "  " + word;
+    final List<String> trigrams = new ArrayList<>( word.length() );
+    for ( int i = 0; i + 3 <= padded.length(); i++ ) {
+      trigrams.add( padded.substring( i, i + 3 ) );
+    }
+    return trigrams;
+  }
+}
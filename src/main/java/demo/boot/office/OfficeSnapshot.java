@@ -0,0 +1,140 @@
+package demo.boot.office;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * An immutable, in-memory copy of the office directory. All lookups are a single hash lookup into collections that
+ * are built up front. Changes produce a new snapshot, leaving this one untouched.
+ */
+final class OfficeSnapshot {
+
+  @Value
+  private static class Entry {
+    Office office;
+    String country;
+  }
+
+  private final long version;
+  private final NavigableMap<String, Entry> entries;
+  private final List<Office> offices;
+  private final List<String> names;
+  private final Map<String, Optional<Office>> byName;
+  private final Map<String, List<Office>> byCountry;
+  private final OfficeSearchIndex index;
+  private final OfficeSpatialIndex spatialIndex;
+
+  static OfficeSnapshot of( final long version, final List<OfficeWithCountry> loaded ) {
+    final NavigableMap<String, Entry> entries = new TreeMap<>();
+    for ( final OfficeWithCountry office : loaded ) {
+      entries.put( office.getName(), new Entry( office.toOffice(), office.getCountry() ) );
+    }
+
+    final List<Office> offices = new ArrayList<>( entries.size() );
+    entries.values().forEach( entry -> offices.add( entry.getOffice() ) );
+    final OfficeSearchIndex index =
+      OfficeSearchIndex.EMPTY.withIndexed( offices, office -> entries.get( office.getName() ).getCountry() );
+    return new OfficeSnapshot( version, entries, index );
+  }
+
+  private OfficeSnapshot( final long version, final NavigableMap<String, Entry> entries,
+    final OfficeSearchIndex index ) {
+    this.version = version;
+    this.entries = entries;
+    this.index = index;
+
+    final List<Office> offices = new ArrayList<>( entries.size() );
+    final List<String> names = new ArrayList<>( entries.size() );
+    final Map<String, Optional<Office>> byName = new HashMap<>();
+    final Map<String, List<Office>> byCountry = new HashMap<>();
+    for ( final Entry entry : entries.values() ) {
+      offices.add( entry.getOffice() );
+      names.add( entry.getOffice().getName() );
+      byName.put( entry.getOffice().getName(), Optional.of( entry.getOffice() ) );
+      byCountry.computeIfAbsent( countryKey( entry.getCountry() ), c -> new ArrayList<>() ).add( entry.getOffice() );
+    }
+    byCountry.replaceAll( ( country, list ) -> Collections.unmodifiableList( list ) );
+
+    this.offices = Collections.unmodifiableList( offices );
+    this.spatialIndex = OfficeSpatialIndex.of( offices );
+    this.names = names;
+    this.byName = byName;
+    this.byCountry = byCountry;
+  }
+
+  long getVersion() {
+    return version;
+  }
+
+  List<Office> list() {
+    return offices;
+  }
+
+  /* A view over the offices, which are kept ordered by name, thus a page only costs a binary search */
+  List<Office> listAfter( final String after, final int limit ) {
+    final int from = after == null ? 0 : indexAfter( after );
+    return offices.subList( from, Math.min( offices.size(), from + limit ) );
+  }
+
+  Optional<Office> findOneByName( final String name ) {
+    return byName.getOrDefault( name, Optional.empty() );
+  }
+
+  List<Office> findAllInCountry( final String country ) {
+    return byCountry.getOrDefault( countryKey( country ), List.of() );
+  }
+
+  List<Office> search( final String query, final int limit ) {
+    return index.search( query, limit );
+  }
+
+  List<Office> findNearest( final double latitude, final double longitude, final int k ) {
+    return spatialIndex.nearest( latitude, longitude, k );
+  }
+
+  private int indexAfter( final String name ) {
+    final int index = Collections.binarySearch( names, name );
+    return index >= 0 ? index + 1 : -index - 1;
+  }
+
+  /* Same normalisation as the upper(country) index used by the repository, so both paths agree on what matches */
+  private static String countryKey( final String country ) {
+    return country.toUpperCase( Locale.ROOT );
+  }
+
+  /**
+   * Returns a copy of this snapshot, at the given version, with the given offices replaced, or {@code null} when any
+   * of the offices is not part of this snapshot, as its country is not known and the snapshot needs to be rebuilt
+   * from the repository.
+   */
+  OfficeSnapshot withUpdated( final Collection<Office> offices, final long version ) {
+    final NavigableMap<String, Entry> copy = new TreeMap<>( entries );
+    for ( final Office office : offices ) {
+      final Entry existing = entries.get( office.getName() );
+      if ( existing == null ) {
+        return null;
+      }
+      copy.put( office.getName(), new Entry( office, existing.getCountry() ) );
+    }
+    return new OfficeSnapshot( version, copy,
+      index.withIndexed( offices, office -> entries.get( office.getName() ).getCountry() ) );
+  }
+
+  OfficeSnapshot withDeleted( final Collection<String> names, final long version ) {
+    final NavigableMap<String, Entry> copy = new TreeMap<>( entries );
+    for ( final String name : names ) {
+      copy.remove( name );
+    }
+    return new OfficeSnapshot( version, copy, index.withDeleted( names ) );
+  }
+}
@@ -0,0 +1,178 @@
+package demo.boot.office;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+public class OfficeSnapshotCacheDecorator implements ContactUsService {
+
+  @Configuration
+  public static class Factory {
+
+    @Bean( "officeSnapshotCacheDecorator" )
+    public OfficeSnapshotCacheDecorator create( final MeterRegistry registry, final OfficeDirectoryVersion version,
+      final OfficesRepository repository, final JpaContactUsService target ) {
+      return new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+    }
+  }
+
+  private final OfficeDirectoryVersion version;
+  private final OfficesRepository repository;
+  private final ContactUsService target;
+  private final Counter hits;
+  private final Counter misses;
+  private final Timer rebuilds;
+
+  /* Replaced as a whole, never modified, thus readers only need to read this field once */
+  private volatile OfficeSnapshot snapshot;
+
+  public OfficeSnapshotCacheDecorator( final MeterRegistry registry, final OfficeDirectoryVersion version,
+    final OfficesRepository repository, final ContactUsService target ) {
+    this.version = version;
+    this.repository = repository;
+    this.target = target;
+    this.hits = registry.counter( "app.office.cache.requests", "result", "hit" );
+    this.misses = registry.counter( "app.office.cache.requests", "result", "miss" );
+    this.rebuilds = registry.timer( "app.office.cache.rebuild" );
+  }
+
+  @Override
+  public List<Office> list() {
+    return snapshot().list();
+  }
+
+  @Override
+  public List<Office> listAfter( final String after, final int limit ) {
+    return snapshot().listAfter( after, limit );
+  }
+
+  /* Exports are read straight from the database, through a cursor, rather than from the snapshot */
+  @Override
+  public void streamAll( final Consumer<Office> consumer ) {
+    target.streamAll( consumer );
+  }
+
+  @Override
+  public Optional<Office> findOneByName( final String name ) {
+    return snapshot().findOneByName( name );
+  }
+
+  @Override
+  public List<Office> findAllInCountry( final String country ) {
+    return snapshot().findAllInCountry( country );
+  }
+
+  @Override
+  public List<Office> search( final String query, final int limit ) {
+    return snapshot().search( query, limit );
+  }
+
+  @Override
+  public List<Office> findNearest( final double latitude, final double longitude, final int k ) {
+    return snapshot().findNearest( latitude, longitude, k );
+  }
+
+  @Override
+  public synchronized Optional<Office> update( final Office office ) {
+    final Optional<Office> updated = target.update( office );
+    updated.ifPresent( u -> patch( ( s, v ) -> s.withUpdated( List.of( u ), v ) ) );
+    return updated;
+  }
+
+  @Override
+  public synchronized Optional<Office> delete( final String name ) {
+    final Optional<Office> deleted = target.delete( name );
+    deleted.ifPresent( d -> patch( ( s, v ) -> s.withDeleted( List.of( d.getName() ), v ) ) );
+    return deleted;
+  }
+
+  @Override
+  public synchronized List<OfficeBatchResult> updateAll( final List<Office> offices ) {
+    final List<OfficeBatchResult> results = target.updateAll( offices );
+    final List<Office> updated = officesWithStatus( results, OfficeBatchResult.Status.UPDATED );
+    if ( !updated.isEmpty() ) {
+      patch( ( s, v ) -> s.withUpdated( updated, v ) );
+    }
+    return results;
+  }
+
+  @Override
+  public synchronized List<OfficeBatchResult> deleteAll( final List<String> names ) {
+    final List<OfficeBatchResult> results = target.deleteAll( names );
+    final List<String> deleted = officesWithStatus( results, OfficeBatchResult.Status.DELETED )
+      .stream()
+      .map( Office::getName )
+      .collect( Collectors.toList() );
+    if ( !deleted.isEmpty() ) {
+      patch( ( s, v ) -> s.withDeleted( deleted, v ) );
+    }
+    return results;
+  }
+
+  /* Catches up with the version in the database, which forces the next read to rebuild the snapshot if it moved on */
+  public void invalidate() {
+    version.refresh();
+  }
+
+  /* A change made on any node, which forces the next read to rebuild the snapshot unless it was already patched */
+  public void changedTo( final long latest ) {
+    version.advanceTo( latest );
+  }
+
+  private OfficeSnapshot snapshot() {
+    final OfficeSnapshot current = snapshot;
+    if ( isCurrent( current, version.current() ) ) {
+      hits.increment();
+      return current;
+    }
+
+    misses.increment();
+    return rebuild();
+  }
+
+  private synchronized OfficeSnapshot rebuild() {
+    /* Another thread may have rebuilt the snapshot while this one was waiting for the lock */
+    final long expected = version.current();
+    final OfficeSnapshot current = snapshot;
+    if ( isCurrent( current, expected ) ) {
+      return current;
+    }
+
+    /* A version bump while loading leaves this snapshot behind, and the next read will rebuild it again */
+    final OfficeSnapshot rebuilt = rebuilds.record( () -> OfficeSnapshot.of( expected, repository.findAllOfficesWithCountry() ) );
+    snapshot = rebuilt;
+    return rebuilt;
+  }
+
+  /*
+   * Must be called while holding the lock, so that patches are applied in the same order as the writes. The write
+   * committed moved the directory on by one version, thus only a snapshot of the version right before the one in the
+   * database can be patched, and any other change in between, from any node, requires a rebuild.
+   */
+  private void patch( final BiFunction<OfficeSnapshot, Long, OfficeSnapshot> change ) {
+    final OfficeSnapshot current = snapshot;
+    final long next = version.refresh();
+    snapshot = isCurrent( current, next - 1 ) ? change.apply( current, next ) : null;
+  }
+
+  private static List<Office> officesWithStatus( final List<OfficeBatchResult> results,
+    final OfficeBatchResult.Status status ) {
+    return results
+      .stream()
+      .filter( result -> result.getStatus() == status )
+      .map( OfficeBatchResult::getOffice )
+      .collect( Collectors.toList() );
+  }
+
+  private static boolean isCurrent( final OfficeSnapshot snapshot, final long version ) {
+    return snapshot != null && snapshot.getVersion() == version;
+  }
+}
@@ -0,0 +1,157 @@
+package demo.boot.office;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable k-d tree over the offices that have coordinates. The coordinates are projected onto the unit sphere,
+ * where the straight line distance grows with the great circle distance, thus nearest neighbours are found without
+ * special cases around the poles or the date line. The tree is stored in arrays, with each range split at its middle.
+ */
+final class OfficeSpatialIndex {
+
+  private final Office[] offices;
+  private final double[][] points;
+
+  private OfficeSpatialIndex( final Office[] offices, final double[][] points ) {
+    this.offices = offices;
+    this.points = points;
+  }
+
+  /* Offices without coordinates are left out */
+  static OfficeSpatialIndex of( final List<Office> offices ) {
+    final List<Office> located = new ArrayList<>( offices.size() );
+    for ( final Office office : offices ) {
+      if ( office.getLatitude() != null && office.getLongitude() != null ) {
+        located.add( office );
+      }
+    }
+
+    final Office[] tree = located.toArray( new Office[0] );
+    final double[][] points = new double[tree.length][];
+    for ( int i = 0; i < tree.length; i++ ) {
+      points[i] = toPoint( tree[i].getLatitude(), tree[i].getLongitude() );
+    }
+
+    build( tree, points, 0, tree.length, 0 );
+    return new OfficeSpatialIndex( tree, points );
+  }
+
+  /* Nearest first, at most k offices */
+  List<Office> nearest( final double latitude, final double longitude, final int k ) {
+    final Nearest nearest = new Nearest( Math.min( k, offices.length ) );
+    if ( nearest.capacity > 0 ) {
+      search( toPoint( latitude, longitude ), 0, offices.length, 0, nearest );
+    }
+
+    final List<Office> result = new ArrayList<>( nearest.size );
+    for ( int i = 0; i < nearest.size; i++ ) {
+      result.add( offices[nearest.indices[i]] );
+    }
+    return result;
+  }
+
+  private void search( final double[] query, final int from, final int to, final int axis, final Nearest nearest ) {
+    if ( from >= to ) {
+      return;
+    }
+
+    final int middle = ( from + to ) >>> 1;
+    nearest.offer( middle, distance( query, points[middle] ) );
+
+    final double difference = query[axis] - points[middle][axis];
+    final int next = ( axis + 1 ) % 3;
+    if ( difference < 0 ) {
+      search( query, from, middle, next, nearest );
+      if ( difference * difference < nearest.worst() ) {
+        search( query, middle + 1, to, next, nearest );
+      }
+    } else {
+      search( query, middle + 1, to, next, nearest );
+      if ( difference * difference < nearest.worst() ) {
+        search( query, from, middle, next, nearest );
+      }
+    }
+  }
+
+  /* Sorts each range on the axis, leaving the median in the middle, the smaller ones before and the larger after */
+  private static void build( final Office[] offices, final double[][] points, final int from, final int to,
+    final int axis ) {
+    if ( to - from < 2 ) {
+      return;
+    }
+
+    final Integer[] order = new Integer[to - from];
+    for ( int i = 0; i < order.length; i++ ) {
+      order[i] = from + i;
+    }
+    Arrays.sort( order, Comparator.comparingDouble( i -> points[i][axis] ) );
+
+    final Office[] sortedOffices = new Office[order.length];
+    final double[][] sortedPoints = new double[order.length][];
+    for ( int i = 0; i < order.length; i++ ) {
+      sortedOffices[i] = offices[order[i]];
+      sortedPoints[i] = points[order[i]];
+    }
+    System.arraycopy( sortedOffices, 0, offices, from, order.length );
+    System.arraycopy( sortedPoints, 0, points, from, order.length );
+
+    final int middle = ( from + to ) >>> 1;
+    final int next = ( axis + 1 ) % 3;
+    build( offices, points, from, middle, next );
+    build( offices, points, middle + 1, to, next );
+  }
+
+  private static double[] toPoint( final double latitude, final double longitude ) {
+    final double phi = Math.toRadians( latitude );
+    final double lambda = Math.toRadians( longitude );
+    return new double[] {
+      Math.cos( phi ) * Math.cos( lambda ),
+      Math.cos( phi ) * Math.sin( lambda ),
+      Math.sin( phi )
+    };
+  }
+
+  /* Squared, as only the order matters */
+  private static double distance( final double[] a, final double[] b ) {
+    final double x = a[0] - b[0];
+    final double y = a[1] - b[1];
+    final double z = a[2] - b[2];
+    return x * x + y * y + z * z;
+  }
+
+  /* The k nearest found so far, kept sorted by distance, as k is small */
+  private static final class Nearest {
+    private final int capacity;
+    private final int[] indices;
+    private final double[] distances;
+    private int size;
+
+    private Nearest( final int capacity ) {
+      this.capacity = capacity;
+      this.indices = new int[capacity];
+      this.distances = new double[capacity];
+    }
+
+    private double worst() {
+      return size < capacity ? Double.POSITIVE_INFINITY : distances[size - 1];
+    }
+
+    private void offer( final int index, final double distance ) {
+      if ( distance >= worst() ) {
+        return;
+      }
+
+      int i = size < capacity ? size++ : size - 1;
+      while ( i > 0 && distances[i - 1] > distance ) {
+        indices[i] = indices[i - 1];
+        distances[i] = distances[i - 1];
+        i--;
+      }
+      indices[i] = index;
+      distances[i] = distance;
+    }
+  }
+}
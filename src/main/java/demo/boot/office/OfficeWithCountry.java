@@ -0,0 +1,25 @@
+package demo.boot.office;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/* An office together with its country, which is not part of the office as served, read as plain values */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OfficeWithCountry {
+
+  private String name;
+  private String address;
+  private String phone;
+  private String email;
+  private Long version;
+  private Double latitude;
+  private Double longitude;
+  private String country;
+
+  public Office toOffice() {
+    return new Office( name, address, phone, email, version, latitude, longitude );
+  }
+}
@@ -1,12 +1,76 @@
 package demo.boot.office;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface OfficesRepository extends JpaRepository<OfficeEntity, String> {
 
   List<OfficeEntity> findAllByCountryIgnoreCase( final String country );
+
+  /* Projections build the offices straight from the result set, without managed entities or dirty checking */
+  @Query( "SELECT new demo.boot.office.Office("
+    + " o.name, o.address, o.phone, o.email, o.version, o.latitude, o.longitude )"
+    + " FROM OfficeEntity o" )
+  List<Office> findAllOffices();
+
+  @Query( "SELECT new demo.boot.office.Office("
+    + " o.name, o.address, o.phone, o.email, o.version, o.latitude, o.longitude )"
+    + " FROM OfficeEntity o"
+    + " WHERE UPPER( o.country ) = UPPER( :country )" )
+  List<Office> findAllOfficesInCountry( @Param( "country" ) final String country );
+
+  /* Builds the snapshots, thus it is read-only whether or not the caller runs it in a transaction */
+  @Transactional( readOnly = true )
+  @Query( "SELECT new demo.boot.office.OfficeWithCountry("
+    + " o.name, o.address, o.phone, o.email, o.version, o.latitude, o.longitude, o.country )"
+    + " FROM OfficeEntity o" )
+  List<OfficeWithCountry> findAllOfficesWithCountry();
+
+  List<OfficeEntity> findAllByOrderByNameAsc( final Pageable pageable );
+
+  List<OfficeEntity> findAllByNameGreaterThanOrderByNameAsc( final String name, final Pageable pageable );
+
+  /* The fetch size makes the driver use a server-side cursor, which is only possible within a transaction */
+  @QueryHints( {
+    @QueryHint( name = HINT_FETCH_SIZE, value = "500" ),
+    @QueryHint( name = HINT_READONLY, value = "true" )
+  } )
+  Stream<OfficeEntity> streamAllByOrderByNameAsc();
+
+  /* The following are single statements that return the affected row, thus these need a read-write transaction */
+  @Query( nativeQuery = true, value = "UPDATE offices"
+    + " SET address = :address, phone = :phone, email = :email, version = version + 1"
+    + " WHERE name = :name"
+    + " RETURNING *" )
+  Optional<OfficeEntity> updateReturning( @Param( "name" ) final String name, @Param( "address" ) final String address,
+    @Param( "phone" ) final String phone, @Param( "email" ) final String email );
+
+  @Query( nativeQuery = true, value = "UPDATE offices"
+    + " SET address = :address, phone = :phone, email = :email, version = version + 1"
+    + " WHERE name = :name AND version = :version"
+    + " RETURNING *" )
+  Optional<OfficeEntity> updateReturningIfVersion( @Param( "name" ) final String name,
+    @Param( "address" ) final String address, @Param( "phone" ) final String phone,
+    @Param( "email" ) final String email, @Param( "version" ) final long version );
+
+  @Query( nativeQuery = true, value = "DELETE FROM offices WHERE name = :name RETURNING *" )
+  Optional<OfficeEntity> deleteReturning( @Param( "name" ) final String name );
+
+  /* Moved on by the trigger on the offices table */
+  @Query( nativeQuery = true, value = "SELECT version FROM office_directory" )
+  long findDirectoryVersion();
 }
@@ -0,0 +1,14 @@
+/* The number of attendees per food preference for every event, as counted from the food queue */
+CREATE TABLE "food_summaries" (
+  "event"           UUID NOT NULL,
+  "food_preference" VARCHAR(64) NOT NULL,
+  "attendees"       INTEGER NOT NULL CHECK ("attendees" >= 0),
+  PRIMARY KEY ("event", "food_preference")
+);
+
+/* The attendees already counted, thus a redelivered food preference is not counted twice */
+CREATE TABLE "food_summaries_attendees" (
+  "attendee"        UUID PRIMARY KEY,
+  "event"           UUID NOT NULL,
+  "food_preference" VARCHAR(64) NOT NULL
+);
@@ -0,0 +1,2 @@
+/* Sent by the clients that retry their registrations, thus a retry finds the attendee registered the first time */
+ALTER TABLE "events_attendees" ADD COLUMN "idempotency_key" VARCHAR(255);
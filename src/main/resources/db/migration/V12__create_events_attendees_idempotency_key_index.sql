@@ -0,0 +1,6 @@
+/*
+ * The index behind the unique idempotency keys, built while the registrations go on. CONCURRENTLY is not allowed in
+ * a transaction, and Flyway runs a migration holding it outside of one, thus the constraint is added by the next.
+ */
+CREATE UNIQUE INDEX CONCURRENTLY "events_attendees_idempotency_key_unique"
+  ON "events_attendees" ("event", "idempotency_key");
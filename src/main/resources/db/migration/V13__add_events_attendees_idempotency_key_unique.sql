@@ -0,0 +1,3 @@
+/* Takes over the index built before, thus only locks the attendees for a moment */
+ALTER TABLE "events_attendees"
+  ADD CONSTRAINT "events_attendees_idempotency_key_unique" UNIQUE USING INDEX "events_attendees_idempotency_key_unique";
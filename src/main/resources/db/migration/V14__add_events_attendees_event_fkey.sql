@@ -0,0 +1,6 @@
+/*
+ * Added without checking the attendees already there, which only locks both tables for a moment. The attendees
+ * inserted from here on are checked.
+ */
+ALTER TABLE "events_attendees"
+  ADD CONSTRAINT "events_attendees_event_fkey" FOREIGN KEY ("event") REFERENCES "events" ("id") NOT VALID;
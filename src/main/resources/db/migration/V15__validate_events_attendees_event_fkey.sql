@@ -0,0 +1,2 @@
+/* Checks the attendees already there in a transaction of its own, without blocking the registrations while it does */
+ALTER TABLE "events_attendees" VALIDATE CONSTRAINT "events_attendees_event_fkey";
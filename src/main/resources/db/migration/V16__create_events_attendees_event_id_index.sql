@@ -0,0 +1,6 @@
+/*
+ * The attendees of an event are listed ordered by id, thus the index serves both the lookup and the keyset paging.
+ * Built without blocking the registrations, which cannot be done within a transaction, thus it is alone in this
+ * migration, and Flyway runs it outside of one.
+ */
+CREATE INDEX CONCURRENTLY "events_attendees_event_id_idx" ON "events_attendees" ("event", "id");
@@ -0,0 +1 @@
+CREATE INDEX "offices_upper_country_idx" ON "offices" (UPPER("country"));
@@ -0,0 +1 @@
+ALTER TABLE "offices" ADD COLUMN "version" BIGINT NOT NULL DEFAULT 0;
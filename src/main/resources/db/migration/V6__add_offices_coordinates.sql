@@ -0,0 +1,11 @@
+ALTER TABLE "offices"
+  ADD COLUMN "latitude" DOUBLE PRECISION CHECK ("latitude" BETWEEN -90 AND 90),
+  ADD COLUMN "longitude" DOUBLE PRECISION CHECK ("longitude" BETWEEN -180 AND 180),
+  ADD CONSTRAINT "offices_coordinates_check" CHECK (("latitude" IS NULL) = ("longitude" IS NULL));
+
+UPDATE "offices" SET "latitude" = 50.9453, "longitude" = 6.9180 WHERE "name" = 'ThoughtWorks Cologne';
+UPDATE "offices" SET "latitude" = 52.5077, "longitude" = 13.3925 WHERE "name" = 'ThoughtWorks Berlin';
+UPDATE "offices" SET "latitude" = 53.5545, "longitude" = 9.9830 WHERE "name" = 'ThoughtWorks Hamburg';
+UPDATE "offices" SET "latitude" = 48.1270, "longitude" = 11.6120 WHERE "name" = 'ThoughtWorks Munich';
+UPDATE "offices" SET "latitude" = 51.5133, "longitude" = -0.1340 WHERE "name" = 'ThoughtWorks London';
+UPDATE "offices" SET "latitude" = 53.4860, "longitude" = -2.2390 WHERE "name" = 'ThoughtWorks Manchester';
@@ -0,0 +1,63 @@
+/*
+ * The version of the whole office directory, which every node serves as the ETag of the offices. It moves on once per
+ * transaction that changes any office, thus all the nodes agree on it, and it is never handed out twice.
+ */
+CREATE TABLE "office_directory" (
+  "id"          BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK ("id"),
+  "version"     BIGINT NOT NULL,
+  "transaction" BIGINT
+);
+
+INSERT INTO "office_directory" ("version") VALUES (1);
+
+/*
+ * Moves the directory to its next version and tells every node listening on the channel, once per statement that
+ * changed any row. The directory row stays locked until the transaction ends, thus the office writes take turns.
+ */
+CREATE FUNCTION "notify_office_changes"() RETURNS TRIGGER AS $$
+DECLARE
+  "rows"              BIGINT;
+  "directory_version" BIGINT;
+BEGIN
+  IF TG_OP = 'TRUNCATE' THEN
+    "rows" := -1;
+  ELSE
+    SELECT COUNT(*) INTO "rows" FROM "changed";
+    IF "rows" = 0 THEN
+      RETURN NULL;
+    END IF;
+  END IF;
+
+  UPDATE "office_directory"
+    SET "version" = "office_directory"."version" + 1, "transaction" = txid_current()
+    WHERE "transaction" IS DISTINCT FROM txid_current()
+    RETURNING "office_directory"."version" INTO "directory_version";
+  IF NOT FOUND THEN
+    SELECT "office_directory"."version" INTO "directory_version" FROM "office_directory";
+  END IF;
+
+  PERFORM pg_notify('office_changes', json_build_object(
+    'operation', TG_OP,
+    'rows', "rows",
+    'version', "directory_version",
+    'at', (EXTRACT(EPOCH FROM clock_timestamp()) * 1000)::BIGINT
+  )::TEXT);
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER "offices_notify_inserts"
+  AFTER INSERT ON "offices" REFERENCING NEW TABLE AS "changed"
+  FOR EACH STATEMENT EXECUTE PROCEDURE "notify_office_changes"();
+
+CREATE TRIGGER "offices_notify_updates"
+  AFTER UPDATE ON "offices" REFERENCING NEW TABLE AS "changed"
+  FOR EACH STATEMENT EXECUTE PROCEDURE "notify_office_changes"();
+
+CREATE TRIGGER "offices_notify_deletes"
+  AFTER DELETE ON "offices" REFERENCING OLD TABLE AS "changed"
+  FOR EACH STATEMENT EXECUTE PROCEDURE "notify_office_changes"();
+
+CREATE TRIGGER "offices_notify_truncates"
+  AFTER TRUNCATE ON "offices"
+  FOR EACH STATEMENT EXECUTE PROCEDURE "notify_office_changes"();
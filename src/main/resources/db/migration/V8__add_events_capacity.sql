@@ -0,0 +1,8 @@
+/* A null capacity leaves the number of attendees unlimited */
+ALTER TABLE "events"
+  ADD COLUMN "capacity" INTEGER CHECK ("capacity" >= 0),
+  ADD COLUMN "registered" INTEGER NOT NULL DEFAULT 0;
+
+UPDATE "events" SET "registered" = (SELECT COUNT(*) FROM "events_attendees" WHERE "events_attendees"."event" = "events"."id");
+
+ALTER TABLE "events" ADD CONSTRAINT "events_registered_check" CHECK ("capacity" IS NULL OR "registered" <= "capacity");
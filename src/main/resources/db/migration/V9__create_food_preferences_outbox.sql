@@ -0,0 +1,13 @@
+/* Written in the same transaction as the attendee, and deleted once published to the food queue */
+CREATE TABLE "food_preferences_outbox" (
+  "id"              BIGINT PRIMARY KEY,
+  "event"           UUID NOT NULL,
+  "attendee"        UUID NOT NULL,
+  "food_preference" VARCHAR(64),
+  "created_at"      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+  "attempts"        INTEGER NOT NULL DEFAULT 0,
+  "parked_at"       TIMESTAMP WITH TIME ZONE
+);
+
+/* Allocated a hundred at a time, like the inserts are batched, thus the ids do not need a round trip each */
+CREATE SEQUENCE "food_preferences_outbox_id_seq" INCREMENT BY 100 OWNED BY "food_preferences_outbox"."id";
@@ -39,7 +39,7 @@ public class ContactUsApplicationTests {
     assertThat( restTemplate.getForEntity( "/prometheus", String.class ) )
       .matches( r -> r.getStatusCode() == HttpStatus.OK )
       .matches( HttpEntity::hasBody )
-      .matches( r -> r.getBody().contains( "app_office_count_total " ) )
+      .matches( r -> r.getBody().contains( "app_office_count " ) )
     ;
   }
 
@@ -50,7 +50,10 @@ public class ContactUsApplicationTests {
       new Office( "ThoughtWorks Cologne",
         "Lichtstr. 43i, 50825 Cologne, Germany",
         "+49 221 64 30 70 63",
-        "contact-de@thoughtworks.com" );
+        "contact-de@thoughtworks.com",
+        null,
+        50.9453,
+        6.9180 );
 
     assertThat( restTemplate.getForObject( "/offices", Office[].class ) )
       .contains( cologne );
@@ -0,0 +1,51 @@
+package demo.boot;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fails the test when the given call prepares more SQL statements than its budget, as counted by the Hibernate
+ * statistics. Meant to catch N+1 selects, and fetch plans that drag in more than the use case needs.
+ */
+public final class QueryBudget {
+
+  private final Statistics statistics;
+
+  public static QueryBudget of( final EntityManagerFactory entityManagerFactory ) {
+    return new QueryBudget( entityManagerFactory.unwrap( SessionFactory.class ).getStatistics() );
+  }
+
+  private QueryBudget( final Statistics statistics ) {
+    this.statistics = statistics;
+  }
+
+  public <T> T within( final int statements, final Supplier<T> call ) {
+    /* The statistics are shared by the whole application, thus these tests must not run concurrently with others */
+    statistics.setStatisticsEnabled( true );
+    statistics.clear();
+    try {
+      final T result = call.get();
+      assertThat( statistics.getPrepareStatementCount() )
+        .describedAs( "SQL statements prepared (queries: %s, entities loaded: %d, collections loaded: %d)",
+          Arrays.toString( statistics.getQueries() ), statistics.getEntityLoadCount(),
+          statistics.getCollectionLoadCount() )
+        .isLessThanOrEqualTo( statements );
+      return result;
+    } finally {
+      statistics.setStatisticsEnabled( false );
+    }
+  }
+
+  public void within( final int statements, final Runnable call ) {
+    within( statements, () -> {
+      call.run();
+      return null;
+    } );
+  }
+}
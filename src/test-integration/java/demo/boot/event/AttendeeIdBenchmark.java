@@ -0,0 +1,126 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the random and the time ordered attendee ids, generated by all processors at once, and inserted into a
+ * table shaped like the attendees. Run with {@code ./gradlew benchmark}, as it inserts a few hundred thousand rows.
+ */
+@Tag( "benchmark" )
+@DisplayName( "Attendee ids (benchmark)" )
+@SpringBootTest( webEnvironment = WebEnvironment.NONE, properties = "app.queue.food-outbox.enabled=false" )
+public class AttendeeIdBenchmark {
+
+  private static final String[] MODES = { "random", "time-ordered" };
+  private static final int IDS_PER_THREAD = 2_000_000;
+  private static final int NUMBER_OF_ROWS = 200_000;
+  private static final int BATCH_SIZE = 1_000;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @MockBean
+  private EventFoodGateway eventFoodGateway;
+
+  @AfterEach
+  public void tearDown() {
+    for ( final String mode : MODES ) {
+      jdbcTemplate.execute( "DROP TABLE IF EXISTS " + table( mode ) );
+    }
+  }
+
+  @Test
+  @DisplayName( "should report the ids generated per second with every processor generating at once" )
+  public void compareGeneration() throws Exception {
+    final int threads = Runtime.getRuntime().availableProcessors();
+
+    System.out.printf( "%-14s %8s %18s%n", "ids", "threads", "ids/s" );
+    for ( final String mode : MODES ) {
+      /* Warm up */
+      generate( new UuidGeneratorService( mode ), threads );
+      final double perSecond = generate( new UuidGeneratorService( mode ), threads );
+      System.out.printf( "%-14s %8d %18.0f%n", mode, threads, perSecond );
+    }
+  }
+
+  @Test
+  @DisplayName( "should report the rows inserted per second and the size of the primary key index" )
+  public void compareInserts() {
+    System.out.printf( "%-14s %14s %18s%n", "ids", "rows/s", "index size (KiB)" );
+    for ( final String mode : MODES ) {
+      final String table = table( mode );
+      jdbcTemplate.execute( "CREATE TABLE " + table + " (id UUID PRIMARY KEY, event UUID NOT NULL,"
+        + " name VARCHAR(64), food_preference VARCHAR(64))" );
+
+      final UuidGeneratorService generator = new UuidGeneratorService( mode );
+      final UUID event = UUID.randomUUID();
+      final long start = System.nanoTime();
+      for ( int inserted = 0; inserted < NUMBER_OF_ROWS; inserted += BATCH_SIZE ) {
+        final List<Object[]> rows = new ArrayList<>( BATCH_SIZE );
+        for ( int i = 0; i < BATCH_SIZE; i++ ) {
+          rows.add( new Object[] { generator.nextAttendeeId(), event, "Attendee " + ( inserted + i ), "VEGAN" } );
+        }
+        jdbcTemplate.batchUpdate( "INSERT INTO " + table + " VALUES (?, ?, ?, ?)", rows );
+      }
+      final long elapsed = System.nanoTime() - start;
+
+      final Long indexSize = jdbcTemplate.queryForObject(
+        "SELECT pg_relation_size(indexrelid) FROM pg_index WHERE indrelid = CAST(? AS regclass) AND indisprimary",
+        Long.class, table );
+      assertThat( indexSize ).isNotNull();
+
+      System.out.printf( "%-14s %14.0f %18d%n", mode, NUMBER_OF_ROWS * 1_000_000_000D / elapsed, indexSize / 1024 );
+    }
+  }
+
+  private static double generate( final UuidGeneratorService generator, final int threads ) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool( threads );
+    try {
+      final CountDownLatch start = new CountDownLatch( 1 );
+      final List<Future<?>> done = new ArrayList<>( threads );
+      for ( int t = 0; t < threads; t++ ) {
+        done.add( executor.submit( () -> {
+          start.await();
+          long sink = 0;
+          for ( int i = 0; i < IDS_PER_THREAD; i++ ) {
+            sink ^= generator.nextAttendeeId().getLeastSignificantBits();
+          }
+          return sink;
+        } ) );
+      }
+
+      final long begin = System.nanoTime();
+      start.countDown();
+      for ( final Future<?> future : done ) {
+        future.get();
+      }
+      final long elapsed = System.nanoTime() - begin;
+      return (double) threads * IDS_PER_THREAD * TimeUnit.SECONDS.toNanos( 1 ) / elapsed;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static String table( final String mode ) {
+    return "attendee_id_benchmark_" + mode.replace( '-', '_' );
+  }
+}
@@ -0,0 +1,98 @@
+package demo.boot.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static demo.boot.office.OfficeController.APPLICATION_NDJSON;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Registers a whole team in one bulk registration, over HTTP, and reports how long it took. Run with
+ * {@code ./gradlew benchmark}.
+ */
+@Tag( "benchmark" )
+@DisplayName( "Bulk registration (benchmark)" )
+@SpringBootTest( webEnvironment = WebEnvironment.RANDOM_PORT, properties = "app.queue.food-outbox.enabled=false" )
+public class BulkRegistrationBenchmark {
+
+  /* Created by the migrations */
+  private static final UUID EVENT_ID = UUID.fromString( "47705b9b-518b-4dc2-a517-3dbbcab13fe7" );
+
+  private static final int NUMBER_OF_ATTENDEES = 1_000;
+  private static final int ROUNDS = 5;
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private EventRepository eventRepository;
+
+  @Autowired
+  private EventAttendeeRepository attendeeRepository;
+
+  @Autowired
+  private FoodPreferenceOutboxRepository outboxRepository;
+
+  @MockBean
+  private EventFoodGateway eventFoodGateway;
+
+  @AfterEach
+  public void tearDown() {
+    attendeeRepository.deleteAll( eventRepository.findWithAttendeesById( EVENT_ID ).orElseThrow().getAttendees() );
+    outboxRepository.deleteAll();
+  }
+
+  @Test
+  @DisplayName( "should register every attendee of the team and report the time taken per bulk registration" )
+  public void registerTeam() throws Exception {
+    final FoodPreference[] foodPreferences = FoodPreference.values();
+    final StringBuilder team = new StringBuilder();
+    for ( int i = 0; i < NUMBER_OF_ATTENDEES; i++ ) {
+      team
+        .append( objectMapper.writeValueAsString(
+          new RegistrationRequest( "Attendee " + i, foodPreferences[i % foodPreferences.length] ) ) )
+        .append( '\n' );
+    }
+
+    final HttpHeaders headers = new HttpHeaders();
+    headers.setContentType( APPLICATION_NDJSON );
+    headers.setAccept( List.of( APPLICATION_NDJSON ) );
+    final HttpEntity<String> request = new HttpEntity<>( team.toString(), headers );
+
+    System.out.printf( "%-8s %10s %16s%n", "round", "attendees", "elapsed (ms)" );
+    for ( int round = 0; round < ROUNDS; round++ ) {
+      final long start = System.nanoTime();
+      final ResponseEntity<String> response =
+        restTemplate.postForEntity( "/event/{eventId}/register/bulk", request, String.class, EVENT_ID );
+      final long elapsed = System.nanoTime() - start;
+
+      assertThat( response.getStatusCode() ).isEqualTo( HttpStatus.OK );
+      final List<String> lines = Arrays.asList( response.getBody().split( "\n" ) );
+      assertThat( lines ).hasSize( NUMBER_OF_ATTENDEES );
+      assertThat( lines ).allMatch( line -> line.contains( "\"REGISTERED\"" ) );
+
+      System.out.printf( "%-8d %10d %16.1f%n", round, NUMBER_OF_ATTENDEES, elapsed / 1_000_000D );
+    }
+
+    assertThat( outboxRepository.count() ).isEqualTo( (long) NUMBER_OF_ATTENDEES * ROUNDS );
+  }
+}
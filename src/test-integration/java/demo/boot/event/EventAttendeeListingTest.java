@@ -0,0 +1,78 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName( "Event attendee listing" )
+@SpringBootTest( webEnvironment = WebEnvironment.NONE, properties = "app.queue.food-outbox.enabled=false" )
+public class EventAttendeeListingTest {
+
+  /* Created by the migrations */
+  private static final UUID EVENT_ID = UUID.fromString( "47705b9b-518b-4dc2-a517-3dbbcab13fe7" );
+
+  @Autowired
+  private EventRepository eventRepository;
+
+  @Autowired
+  private EventAttendeeRepository attendeeRepository;
+
+  @Autowired
+  private FoodPreferenceOutboxRepository outboxRepository;
+
+  @Autowired
+  private EventRegistrationService registrationService;
+
+  @Autowired
+  private EventAttendeeService service;
+
+  @MockBean
+  private EventFoodGateway eventFoodGateway;
+
+  @AfterEach
+  public void tearDown() {
+    attendeeRepository.deleteAll( eventRepository.findWithAttendeesById( EVENT_ID ).orElseThrow().getAttendees() );
+    outboxRepository.deleteAll();
+  }
+
+  @Test
+  @DisplayName( "should page through the attendees in the order they are streamed, without missing any" )
+  public void shouldPageInStreamOrder() {
+    registrationService.registerAll( IntStream
+      .range( 0, 5 )
+      .mapToObj( i -> new QueuedRegistration( UUID.randomUUID(), EVENT_ID, "Attendee " + i, FoodPreference.VEGAN ) )
+      .collect( Collectors.toList() ) );
+
+    final List<Attendee> streamed = new ArrayList<>();
+    service.streamAll( EVENT_ID, streamed::add );
+
+    final List<Attendee> paged = new ArrayList<>();
+    List<Attendee> page = service.listAfter( EVENT_ID, null, 2 ).orElseThrow();
+    while ( !page.isEmpty() ) {
+      assertThat( page.size() ).isLessThanOrEqualTo( 2 );
+      paged.addAll( page );
+      page = service.listAfter( EVENT_ID, page.get( page.size() - 1 ).getId(), 2 ).orElseThrow();
+    }
+
+    assertThat( streamed ).hasSize( 5 );
+    assertThat( paged ).isEqualTo( streamed );
+  }
+
+  @Test
+  @DisplayName( "should not list the attendees of an unknown event" )
+  public void shouldNotListUnknownEvent() {
+    assertThat( service.listAfter( UUID.randomUUID(), null, 10 ) ).isEmpty();
+  }
+}
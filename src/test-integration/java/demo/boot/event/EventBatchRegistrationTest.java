@@ -0,0 +1,69 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName( "Event batch registration" )
+@SpringBootTest( webEnvironment = WebEnvironment.NONE, properties = "app.queue.food-outbox.enabled=false" )
+public class EventBatchRegistrationTest {
+
+  /* Created by the migrations */
+  private static final UUID EVENT_ID = UUID.fromString( "47705b9b-518b-4dc2-a517-3dbbcab13fe7" );
+
+  @Autowired
+  private EventRepository eventRepository;
+
+  @Autowired
+  private EventAttendeeRepository attendeeRepository;
+
+  @Autowired
+  private FoodPreferenceOutboxRepository outboxRepository;
+
+  @Autowired
+  private EventRegistrationService service;
+
+  @MockBean
+  private EventFoodGateway eventFoodGateway;
+
+  @AfterEach
+  public void tearDown() {
+    attendeeRepository.deleteAll( eventRepository.findWithAttendeesById( EVENT_ID ).orElseThrow().getAttendees() );
+    outboxRepository.deleteAll();
+  }
+
+  @Test
+  @DisplayName( "should register the batch once, however many times it is delivered, and reject unknown events" )
+  public void shouldRegisterBatchOnce() {
+    final int before = attendees();
+    final QueuedRegistration unknown =
+      new QueuedRegistration( UUID.randomUUID(), UUID.randomUUID(), "Joe", FoodPreference.NO_FOOD );
+    final List<QueuedRegistration> batch = List.of(
+      new QueuedRegistration( UUID.randomUUID(), EVENT_ID, "Jane", FoodPreference.VEGAN ),
+      new QueuedRegistration( UUID.randomUUID(), EVENT_ID, "John", FoodPreference.MEAT ),
+      unknown
+    );
+
+    assertThat( service.registerAll( batch ).getRejected() ).containsExactly( unknown );
+
+    final BatchRegistrationResult redelivered = service.registerAll( batch );
+    assertThat( redelivered.getRejected() ).containsExactly( unknown );
+    assertThat( redelivered.getSkipped() ).containsExactly( batch.get( 0 ), batch.get( 1 ) );
+
+    assertThat( attendees() ).isEqualTo( before + 2 );
+    assertThat( outboxRepository.count() ).isEqualTo( 2 );
+  }
+
+  private int attendees() {
+    return eventRepository.findWithAttendeesById( EVENT_ID ).orElseThrow().getAttendees().size();
+  }
+}
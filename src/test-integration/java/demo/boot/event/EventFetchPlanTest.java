@@ -0,0 +1,116 @@
+package demo.boot.event;
+
+import demo.boot.QueryBudget;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName( "Event fetch plans (query budget)" )
+/* The relay would run its own statements while the budget is counting */
+@SpringBootTest( webEnvironment = WebEnvironment.NONE, properties = "app.queue.food-outbox.enabled=false" )
+public class EventFetchPlanTest {
+
+  /* Created by the migrations */
+  private static final UUID EVENT_ID = UUID.fromString( "47705b9b-518b-4dc2-a517-3dbbcab13fe7" );
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private EventRepository eventRepository;
+
+  @Autowired
+  private EventAttendeeRepository attendeeRepository;
+
+  @Autowired
+  private FoodPreferenceOutboxRepository outboxRepository;
+
+  @Autowired
+  private EventRegistrationService service;
+
+  @MockBean
+  private EventFoodGateway eventFoodGateway;
+
+  private QueryBudget budget;
+
+  @BeforeEach
+  public void setUp() {
+    budget = QueryBudget.of( entityManagerFactory );
+  }
+
+  @AfterEach
+  public void tearDown() {
+    attendeeRepository.deleteAll( eventRepository.findWithAttendeesById( EVENT_ID ).orElseThrow().getAttendees() );
+    outboxRepository.deleteAll();
+  }
+
+  @Test
+  @DisplayName( "should load the event alone, without its office or attendees" )
+  public void shouldLoadEventAlone() {
+    final EventEntity event = budget.within( 1, () -> eventRepository.findById( EVENT_ID ).orElseThrow() );
+
+    assertThat( Hibernate.isInitialized( event.getOffice() ) ).isFalse();
+    assertThat( Hibernate.isInitialized( event.getAttendees() ) ).isFalse();
+  }
+
+  @Test
+  @DisplayName( "should load the event together with its office in one statement" )
+  public void shouldLoadEventWithOffice() {
+    final EventEntity event = budget.within( 1, () -> eventRepository.findWithOfficeById( EVENT_ID ).orElseThrow() );
+
+    assertThat( event.getOffice().getName() ).isEqualTo( "ThoughtWorks Cologne" );
+    assertThat( Hibernate.isInitialized( event.getAttendees() ) ).isFalse();
+  }
+
+  @Test
+  @DisplayName( "should read the event metadata, with the name of its office, in one statement" )
+  public void shouldReadEventMetadata() {
+    final EventMetadata event = budget.within( 1, () -> eventRepository.findMetadataById( EVENT_ID ).orElseThrow() );
+
+    assertThat( event.getOffice() ).isEqualTo( "ThoughtWorks Cologne" );
+    assertThat( event.getDate() ).isEqualTo( LocalDate.of( 2077, 4, 27 ) );
+  }
+
+  @Test
+  @DisplayName( "should load the event together with its attendees in one statement" )
+  public void shouldLoadEventWithAttendees() {
+    register( "Jane Doe" );
+    register( "John Doe" );
+
+    final EventEntity event =
+      budget.within( 1, () -> eventRepository.findWithAttendeesById( EVENT_ID ).orElseThrow() );
+
+    assertThat( event.getAttendees() ).hasSize( 2 );
+    assertThat( Hibernate.isInitialized( event.getOffice() ) ).isFalse();
+  }
+
+  @Test
+  @DisplayName( "should register an attendee with the same number of statements however many attendees there are" )
+  public void shouldRegisterWithinBudget() {
+    for ( int i = 0; i < 50; i++ ) {
+      register( "Attendee " + i );
+    }
+
+    /* Reserve a seat, insert the attendee and its food preference into the outbox */
+    final Optional<RegistrationConfirmation> confirmation = budget.within( 3, () -> register( "John Doe" ) );
+
+    assertThat( confirmation ).isPresent();
+  }
+
+  private Optional<RegistrationConfirmation> register( final String name ) {
+    return service.register( new RegistrationDetails( EVENT_ID, name, FoodPreference.VEGAN ) );
+  }
+}
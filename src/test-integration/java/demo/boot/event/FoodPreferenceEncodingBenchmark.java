@@ -0,0 +1,100 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the JSON and the binary encoding of the food preferences, in size, throughput and allocation, encoding
+ * and decoding separately. Run with {@code ./gradlew benchmark}.
+ */
+@Tag( "benchmark" )
+@DisplayName( "Food preference encoding (benchmark)" )
+public class FoodPreferenceEncodingBenchmark {
+
+  private static final int NUMBER_OF_PREFERENCES = 1_024;
+  private static final int WARM_UP_ITERATIONS = 200;
+  private static final int MEASURED_ITERATIONS = 500;
+
+  private final AttendeeFoodPreference[] preferences = new AttendeeFoodPreference[NUMBER_OF_PREFERENCES];
+
+  @Test
+  @DisplayName( "should decode what was encoded by both converters and report their size, throughput and allocation" )
+  public void compareEncodings() {
+    final FoodPreference[] foodPreferences = FoodPreference.values();
+    for ( int i = 0; i < NUMBER_OF_PREFERENCES; i++ ) {
+      preferences[i] = new AttendeeFoodPreference( UUID.randomUUID(), UUID.randomUUID(),
+        foodPreferences[i % foodPreferences.length] );
+    }
+
+    final MessageConverter json = new Jackson2JsonMessageConverter();
+    final MessageConverter binary = new FoodPreferenceMessageConverter();
+
+    System.out.printf( "%-8s %-8s %8s %16s %16s%n", "format", "phase", "bytes", "messages/s", "allocated (B)" );
+    report( "json", json );
+    report( "binary", binary );
+  }
+
+  private void report( final String format, final MessageConverter converter ) {
+    final Message[] messages = new Message[NUMBER_OF_PREFERENCES];
+    for ( int i = 0; i < NUMBER_OF_PREFERENCES; i++ ) {
+      messages[i] = converter.toMessage( preferences[i], new MessageProperties() );
+      assertThat( converter.fromMessage( messages[i] ) ).isEqualTo( preferences[i] );
+    }
+
+    final int bytes = messages[0].getBody().length;
+    final Result encode = measure( i -> converter.toMessage( preferences[i], new MessageProperties() ) );
+    final Result decode = measure( i -> converter.fromMessage( messages[i] ) );
+
+    System.out.printf( "%-8s %-8s %8d %16.0f %16d%n", format, "encode", bytes, encode.perSecond,
+      encode.bytesPerOperation );
+    System.out.printf( "%-8s %-8s %8d %16.0f %16d%n", format, "decode", bytes, decode.perSecond,
+      decode.bytesPerOperation );
+  }
+
+  private static Result measure( final Function<Integer, Object> operation ) {
+    for ( int iteration = 0; iteration < WARM_UP_ITERATIONS; iteration++ ) {
+      for ( int i = 0; i < NUMBER_OF_PREFERENCES; i++ ) {
+        operation.apply( i );
+      }
+    }
+
+    /* The allocation counter is per thread, and the conversions run on this thread */
+    final com.sun.management.ThreadMXBean threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long threadId = Thread.currentThread().getId();
+
+    final long allocatedBefore = threads.getThreadAllocatedBytes( threadId );
+    final long start = System.nanoTime();
+    for ( int iteration = 0; iteration < MEASURED_ITERATIONS; iteration++ ) {
+      for ( int i = 0; i < NUMBER_OF_PREFERENCES; i++ ) {
+        operation.apply( i );
+      }
+    }
+    final long elapsed = System.nanoTime() - start;
+    final long allocated = threads.getThreadAllocatedBytes( threadId ) - allocatedBefore;
+
+    final long operations = (long) MEASURED_ITERATIONS * NUMBER_OF_PREFERENCES;
+    return new Result( operations * 1_000_000_000D / elapsed, allocated / operations );
+  }
+
+  private static class Result {
+    private final double perSecond;
+    private final long bytesPerOperation;
+
+    private Result( final double perSecond, final long bytesPerOperation ) {
+      this.perSecond = perSecond;
+      this.bytesPerOperation = bytesPerOperation;
+    }
+  }
+}
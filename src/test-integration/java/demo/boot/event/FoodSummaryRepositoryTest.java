@@ -0,0 +1,45 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@DisplayName( "Food summary repository" )
+@AutoConfigureTestDatabase( replace = AutoConfigureTestDatabase.Replace.NONE )
+public class FoodSummaryRepositoryTest {
+
+  @Autowired
+  private FoodSummaryRepository repository;
+
+  @Test
+  @DisplayName( "should count each attendee once, however many times the checkpoint is repeated" )
+  public void shouldCountAttendeesOnce() {
+    final UUID event = UUID.randomUUID();
+    final UUID vegan = UUID.randomUUID();
+    final UUID meat = UUID.randomUUID();
+    final UUID another = UUID.randomUUID();
+
+    assertThat( repository.checkpoint( vegan + "," + meat, event + "," + event, "VEGAN,MEAT" ) )
+      .extracting( FoodSummaryEntity::getFoodPreference, FoodSummaryEntity::getAttendees )
+      .containsExactlyInAnyOrder( tuple( FoodPreference.VEGAN, 1 ), tuple( FoodPreference.MEAT, 1 ) );
+
+    /* Redelivered with a new attendee */
+    assertThat( repository.checkpoint( meat + "," + another, event + "," + event, "MEAT,VEGAN" ) )
+      .extracting( FoodSummaryEntity::getFoodPreference, FoodSummaryEntity::getAttendees )
+      .containsExactly( tuple( FoodPreference.VEGAN, 2 ) );
+
+    assertThat( repository.checkpoint( vegan.toString(), event.toString(), "VEGAN" ) ).isEmpty();
+
+    assertThat( repository.findAllByEventId( event ) )
+      .extracting( FoodSummaryEntity::getFoodPreference, FoodSummaryEntity::getAttendees )
+      .containsExactlyInAnyOrder( tuple( FoodPreference.VEGAN, 2 ), tuple( FoodPreference.MEAT, 1 ) );
+  }
+}
@@ -0,0 +1,85 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName( "Idempotent registration" )
+@SpringBootTest( webEnvironment = WebEnvironment.NONE, properties = "app.queue.food-outbox.enabled=false" )
+public class IdempotentRegistrationTest {
+
+  /* Created by the migrations */
+  private static final UUID EVENT_ID = UUID.fromString( "47705b9b-518b-4dc2-a517-3dbbcab13fe7" );
+
+  @Autowired
+  private EventRepository eventRepository;
+
+  @Autowired
+  private EventAttendeeRepository attendeeRepository;
+
+  @Autowired
+  private FoodPreferenceOutboxRepository outboxRepository;
+
+  @Autowired
+  private EventRegistrationService service;
+
+  @MockBean
+  private EventFoodGateway eventFoodGateway;
+
+  @AfterEach
+  public void tearDown() {
+    attendeeRepository.deleteAll( eventRepository.findWithAttendeesById( EVENT_ID ).orElseThrow().getAttendees() );
+    outboxRepository.deleteAll();
+  }
+
+  @Test
+  @DisplayName( "should return the first attendee to a retry that reached another node, without registering again" )
+  public void shouldReplayAcrossNodes() {
+    final RegistrationDetails details = new RegistrationDetails( EVENT_ID, "Albert Attard", FoodPreference.MEAT );
+    final int before = attendees();
+
+    final Optional<RegistrationConfirmation> first = node().register( details, "retry-1" );
+    final Optional<RegistrationConfirmation> retry = node().register( details, "retry-1" );
+
+    assertThat( first ).isPresent();
+    assertThat( retry ).isEqualTo( first );
+    assertThat( attendees() ).isEqualTo( before + 1 );
+    assertThat( outboxRepository.count() ).isEqualTo( 1 );
+  }
+
+  @Test
+  @DisplayName( "should register a queued registration once per idempotency key" )
+  public void shouldSkipQueuedRetries() {
+    final int before = attendees();
+
+    service.registerAll( List.of(
+      new QueuedRegistration( UUID.randomUUID(), EVENT_ID, "Jane", FoodPreference.VEGAN, "retry-1" ),
+      new QueuedRegistration( UUID.randomUUID(), EVENT_ID, "Jane", FoodPreference.VEGAN, "retry-1" )
+    ) );
+    service.registerAll( List.of(
+      new QueuedRegistration( UUID.randomUUID(), EVENT_ID, "Jane", FoodPreference.VEGAN, "retry-1" )
+    ) );
+
+    assertThat( attendees() ).isEqualTo( before + 1 );
+  }
+
+  /* Each with its own cache, as two nodes would be */
+  private IdempotentRegistrationService node() {
+    return new IdempotentRegistrationService( service, attendeeRepository, 100, Duration.ofMinutes( 1 ) );
+  }
+
+  private int attendees() {
+    return eventRepository.findWithAttendeesById( EVENT_ID ).orElseThrow().getAttendees().size();
+  }
+}
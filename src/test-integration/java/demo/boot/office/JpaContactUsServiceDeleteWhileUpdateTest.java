@@ -47,7 +47,7 @@ public class JpaContactUsServiceDeleteWhileUpdateTest {
     final Office office = new Office( ENTITY.getName(), "b", "c", "d" ) {
       @Override
       public String getAddress() {
-        /* Delete the office between the findById() and save() */
+        /* Delete the office while the update is being prepared */
         deleteOfficeFromAnotherThread();
         return super.getAddress();
       }
@@ -0,0 +1,50 @@
+package demo.boot.office;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@DisplayName( "Office change listener (recovery)" )
+@AutoConfigureTestDatabase( replace = AutoConfigureTestDatabase.Replace.NONE )
+public class OfficeChangeListenerRecoveryTest {
+
+  @Autowired
+  private DataSourceProperties dataSource;
+
+  @Test
+  @DisplayName( "should listen again when the offices cannot be invalidated, as when the database is unavailable" )
+  public void shouldRecoverWhenInvalidationFails() {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final OfficeSnapshotCacheDecorator cache = mock( OfficeSnapshotCacheDecorator.class );
+    doThrow( new DataAccessResourceFailureException( "The database is unavailable" ) )
+      .doNothing()
+      .when( cache ).invalidate();
+
+    final OfficeChangeListener listener = new OfficeChangeListener( dataSource, cache, new ObjectMapper(), registry,
+      Duration.ofMillis( 50 ), Duration.ofMillis( 10 ) );
+    listener.start();
+    try {
+      verify( cache, timeout( 5_000 ).times( 2 ) ).invalidate();
+      assertThat( listener.isRunning() ).isTrue();
+      assertThat( registry.counter( "app.office.change.reconnects" ).count() ).isEqualTo( 1D );
+    } finally {
+      listener.stop();
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package demo.boot.office;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares loading the offices as managed entities, then mapping them, with the constructor expression projection.
+ * Run with {@code ./gradlew benchmark}, as it inserts a few thousand offices and takes a while.
+ */
+@Tag( "benchmark" )
+@DisplayName( "Office read path (benchmark)" )
+@SpringBootTest( webEnvironment = WebEnvironment.NONE )
+public class OfficeReadPathBenchmark {
+
+  private static final String NAME_PREFIX = "ThoughtWorks Benchmark ";
+  private static final int NUMBER_OF_OFFICES = 5_000;
+  private static final int WARM_UP_ITERATIONS = 20;
+  private static final int MEASURED_ITERATIONS = 50;
+
+  @Autowired
+  private OfficesRepository repository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate readOnly;
+
+  @BeforeEach
+  public void setUp() {
+    readOnly = new TransactionTemplate( transactionManager );
+    readOnly.setReadOnly( true );
+
+    final List<OfficeEntity> entities = new ArrayList<>( NUMBER_OF_OFFICES );
+    for ( int i = 0; i < NUMBER_OF_OFFICES; i++ ) {
+      entities.add( new OfficeEntity( NAME_PREFIX + i, "Address " + i, "Benchmark", "Phone " + i,
+        "Email " + i, "Webpage " + i ) );
+    }
+    repository.saveAll( entities );
+  }
+
+  @AfterEach
+  public void tearDown() {
+    repository.deleteInBatch( repository.findAllByCountryIgnoreCase( "Benchmark" ) );
+  }
+
+  @Test
+  @DisplayName( "should return the same offices through both paths and report their latency and allocation" )
+  public void compareReadPaths() {
+    final Supplier<List<Office>> entityPath = () -> readOnly.execute( status -> repository
+      .findAll()
+      .stream()
+      .map( e -> new Office( e.getName(), e.getAddress(), e.getPhone(), e.getEmail(), e.getVersion() ) )
+      .collect( Collectors.toList() ) );
+    final Supplier<List<Office>> projectionPath = () -> readOnly.execute( status -> repository.findAllOffices() );
+
+    assertThat( projectionPath.get() ).containsExactlyInAnyOrderElementsOf( entityPath.get() );
+
+    final Result entity = measure( entityPath );
+    final Result projection = measure( projectionPath );
+
+    System.out.printf( "%-12s %14s %18s%n", "path", "latency (ms)", "allocated (KiB)" );
+    System.out.printf( "%-12s %14.2f %18d%n", "entity", entity.millisPerOperation, entity.kibPerOperation );
+    System.out.printf( "%-12s %14.2f %18d%n", "projection", projection.millisPerOperation,
+      projection.kibPerOperation );
+  }
+
+  private static Result measure( final Supplier<List<Office>> path ) {
+    for ( int i = 0; i < WARM_UP_ITERATIONS; i++ ) {
+      path.get();
+    }
+
+    /* The allocation counter is per thread, and the queries run on this thread */
+    final com.sun.management.ThreadMXBean threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long threadId = Thread.currentThread().getId();
+
+    final long allocatedBefore = threads.getThreadAllocatedBytes( threadId );
+    final long start = System.nanoTime();
+    for ( int i = 0; i < MEASURED_ITERATIONS; i++ ) {
+      path.get();
+    }
+    final long elapsed = System.nanoTime() - start;
+    final long allocated = threads.getThreadAllocatedBytes( threadId ) - allocatedBefore;
+
+    return new Result( elapsed / 1_000_000D / MEASURED_ITERATIONS, allocated / 1024 / MEASURED_ITERATIONS );
+  }
+
+  private static class Result {
+    private final double millisPerOperation;
+    private final long kibPerOperation;
+
+    private Result( final double millisPerOperation, final long kibPerOperation ) {
+      this.millisPerOperation = millisPerOperation;
+      this.kibPerOperation = kibPerOperation;
+    }
+  }
+}
@@ -12,6 +12,7 @@ import javax.persistence.PersistenceContext;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @DataJpaTest
 @DisplayName( "Offices repository" )
@@ -68,4 +69,60 @@ public class OfficesRepositoryTest {
     assertThat( offices ).contains( COLOGNE );
     assertThat( offices ).doesNotContain( MANCHESTER );
   }
+
+  @Test
+  @DisplayName( "should project all offices in the table" )
+  public void shouldProjectAll() {
+    final List<Office> offices = repository.findAllOffices();
+
+    assertThat( offices.size() ).isEqualTo( 2 );
+    assertThat( offices ).contains( new Office( COLOGNE.getName(), COLOGNE.getAddress(), COLOGNE.getPhone(),
+      COLOGNE.getEmail() ) );
+  }
+
+  @Test
+  @DisplayName( "should project all offices for the given country (case insensitive) " )
+  public void shouldProjectAllInCountry() {
+    final List<Office> offices = repository.findAllOfficesInCountry( "germany" );
+
+    assertThat( offices ).containsExactly( new Office( COLOGNE.getName(), COLOGNE.getAddress(), COLOGNE.getPhone(),
+      COLOGNE.getEmail() ) );
+  }
+
+  @Test
+  @DisplayName( "should project all offices together with their country" )
+  public void shouldProjectAllWithCountry() {
+    final List<OfficeWithCountry> offices = repository.findAllOfficesWithCountry();
+
+    assertThat( offices )
+      .extracting( OfficeWithCountry::getName, OfficeWithCountry::getCountry )
+      .containsExactlyInAnyOrder( tuple( COLOGNE.getName(), "Germany" ), tuple( MANCHESTER.getName(), "UK" ) );
+  }
+
+  @Test
+  @DisplayName( "should project the coordinates of the offices" )
+  public void shouldProjectCoordinates() {
+    entityManager.persist( new OfficeEntity( "ThoughtWorks London", "76 Wardour Street", "UK", null, null, null, 0L,
+      51.5133, -0.1340 ) );
+
+    final List<Office> offices = repository.findAllOfficesInCountry( "UK" );
+
+    assertThat( offices )
+      .filteredOn( office -> office.getName().equals( "ThoughtWorks London" ) )
+      .extracting( Office::getLatitude, Office::getLongitude )
+      .containsExactly( tuple( 51.5133, -0.1340 ) );
+  }
+
+  @Test
+  @DisplayName( "should move the directory version once per transaction, however many statements change the offices" )
+  public void shouldMoveDirectoryVersionOncePerTransaction() {
+    entityManager.flush();
+    final long version = repository.findDirectoryVersion();
+
+    repository.deleteReturning( COLOGNE.getName() );
+    repository.updateReturning( MANCHESTER.getName(), "Federation House", null, null );
+
+    assertThat( version ).isPositive();
+    assertThat( repository.findDirectoryVersion() ).isEqualTo( version );
+  }
 }
@@ -0,0 +1,158 @@
+package demo.boot.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static demo.boot.office.OfficeController.APPLICATION_NDJSON;
+import static demo.boot.office.OfficeController.APPLICATION_NDJSON_VALUE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DisplayName( "Bulk registration controller" )
+@WebMvcTest( value = BulkRegistrationController.class, properties = "app.registration.bulk.chunk-size=2" )
+public class BulkRegistrationControllerTest {
+
+  private static final UUID EVENT_ID = UUID.randomUUID();
+
+  private static final RegistrationRequest JANE = new RegistrationRequest( "Jane", FoodPreference.VEGAN );
+  private static final RegistrationRequest JOHN = new RegistrationRequest( "John", FoodPreference.MEAT );
+  private static final RegistrationRequest JOE = new RegistrationRequest( "Joe", FoodPreference.NO_FOOD );
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private BulkRegistrationService service;
+
+  @MockBean
+  private EventMetadataCache events;
+
+  @Test
+  @DisplayName( "should register a JSON array in chunks and stream back one result per request" )
+  public void shouldRegisterArrayInChunks() throws Exception {
+    final BulkRegistrationResult jane = BulkRegistrationResult.registered( 0, UUID.randomUUID() );
+    final BulkRegistrationResult john = BulkRegistrationResult.rejected( 1 );
+    final BulkRegistrationResult joe = BulkRegistrationResult.registered( 2, UUID.randomUUID() );
+    when( events.isOpen( EVENT_ID ) ).thenReturn( true );
+    when( service.register( EVENT_ID, 0, List.of( JANE, JOHN ) ) ).thenReturn( List.of( jane, john ) );
+    when( service.register( EVENT_ID, 2, List.of( JOE ) ) ).thenReturn( List.of( joe ) );
+
+    final String body = perform( MediaType.APPLICATION_JSON_VALUE,
+      objectMapper.writeValueAsString( List.of( JANE, JOHN, JOE ) ) );
+
+    assertLines( body, jane, john, joe );
+    verify( service, times( 1 ) ).register( EVENT_ID, 0, List.of( JANE, JOHN ) );
+    verify( service, times( 1 ) ).register( EVENT_ID, 2, List.of( JOE ) );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should register newline delimited JSON like an array" )
+  public void shouldRegisterNewlineDelimitedJson() throws Exception {
+    final BulkRegistrationResult jane = BulkRegistrationResult.registered( 0, UUID.randomUUID() );
+    when( events.isOpen( EVENT_ID ) ).thenReturn( true );
+    when( service.register( EVENT_ID, 0, List.of( JANE ) ) ).thenReturn( List.of( jane ) );
+
+    final String body = perform( APPLICATION_NDJSON_VALUE, objectMapper.writeValueAsString( JANE ) + "\n" );
+
+    assertLines( body, jane );
+  }
+
+  @Test
+  @DisplayName( "should register the requests read before the body became unreadable and report where it did" )
+  public void shouldStopAtMalformedRequest() throws Exception {
+    final BulkRegistrationResult jane = BulkRegistrationResult.registered( 0, UUID.randomUUID() );
+    when( events.isOpen( EVENT_ID ) ).thenReturn( true );
+    when( service.register( EVENT_ID, 0, List.of( JANE ) ) ).thenReturn( List.of( jane ) );
+
+    final String body = perform( APPLICATION_NDJSON_VALUE,
+      objectMapper.writeValueAsString( JANE ) + "\n{\"name\": \"John\",\n" + objectMapper.writeValueAsString( JOE ) );
+
+    assertLines( body, jane, BulkRegistrationResult.malformed( 1 ) );
+    verify( service, times( 1 ) ).register( EVENT_ID, 0, List.of( JANE ) );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should pass on a request that cannot be mapped as invalid and keep reading the following ones" )
+  public void shouldKeepReadingAfterUnmappableRequest() throws Exception {
+    final BulkRegistrationResult jane = BulkRegistrationResult.registered( 0, UUID.randomUUID() );
+    final BulkRegistrationResult john = BulkRegistrationResult.invalid( 1 );
+    final BulkRegistrationResult joe = BulkRegistrationResult.registered( 2, UUID.randomUUID() );
+    when( events.isOpen( EVENT_ID ) ).thenReturn( true );
+    when( service.register( EVENT_ID, 0, Arrays.asList( JANE, null ) ) ).thenReturn( List.of( jane, john ) );
+    when( service.register( EVENT_ID, 2, List.of( JOE ) ) ).thenReturn( List.of( joe ) );
+
+    final String body = perform( APPLICATION_NDJSON_VALUE, objectMapper.writeValueAsString( JANE )
+      + "\n{\"name\": \"John\", \"foodPreference\": \"PIZZA\"}\n" + objectMapper.writeValueAsString( JOE ) );
+
+    assertLines( body, jane, john, joe );
+    verify( service, times( 1 ) ).register( EVENT_ID, 0, Arrays.asList( JANE, null ) );
+    verify( service, times( 1 ) ).register( EVENT_ID, 2, List.of( JOE ) );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should return not found when the event does not exist or has expired" )
+  public void shouldReturnNotFound() throws Exception {
+    when( events.isOpen( EVENT_ID ) ).thenReturn( false );
+
+    mockMvc
+      .perform( post( "/event/{eventId}/register/bulk", EVENT_ID )
+        .contentType( MediaType.APPLICATION_JSON )
+        .accept( APPLICATION_NDJSON )
+        .content( objectMapper.writeValueAsString( List.of( JANE ) ) ) )
+      .andExpect( status().isNotFound() );
+
+    verifyNoInteractions( service );
+  }
+
+  private String perform( final String contentType, final String content ) throws Exception {
+    final MvcResult result = mockMvc
+      .perform( post( "/event/{eventId}/register/bulk", EVENT_ID )
+        .contentType( contentType )
+        .accept( APPLICATION_NDJSON )
+        .content( content ) )
+      .andExpect( request().asyncStarted() )
+      .andReturn();
+
+    return mockMvc
+      .perform( asyncDispatch( result ) )
+      .andExpect( status().isOk() )
+      .andExpect( header().string( "Content-Type", APPLICATION_NDJSON_VALUE ) )
+      .andReturn()
+      .getResponse()
+      .getContentAsString();
+  }
+
+  private void assertLines( final String body, final BulkRegistrationResult... results ) throws Exception {
+    final StringBuilder expected = new StringBuilder();
+    for ( final BulkRegistrationResult result : results ) {
+      expected.append( objectMapper.writeValueAsString( result ) ).append( '\n' );
+    }
+    assertThat( body ).isEqualTo( expected.toString() );
+  }
+}
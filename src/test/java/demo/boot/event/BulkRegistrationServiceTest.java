@@ -0,0 +1,71 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@DisplayName( "Bulk registration service" )
+public class BulkRegistrationServiceTest {
+
+  private static final UUID EVENT_ID = UUID.randomUUID();
+
+  private final EventRegistrationService registrationService = mock( EventRegistrationService.class );
+  private final UuidGeneratorService uuidGeneratorService = mock( UuidGeneratorService.class );
+
+  @Test
+  @DisplayName( "should register the valid requests together and return one result per request in order" )
+  public void shouldRegisterChunk() {
+    final UUID janeId = UUID.randomUUID();
+    final UUID johnId = UUID.randomUUID();
+    final QueuedRegistration jane = new QueuedRegistration( janeId, EVENT_ID, "Jane", FoodPreference.VEGAN );
+    final QueuedRegistration john = new QueuedRegistration( johnId, EVENT_ID, "John", FoodPreference.MEAT );
+
+    when( uuidGeneratorService.nextAttendeeId() ).thenReturn( janeId, johnId );
+    when( registrationService.registerAll( List.of( jane, john ) ) )
+      .thenReturn( new BatchRegistrationResult( List.of( john ), List.of() ) );
+
+    final BulkRegistrationService service = new BulkRegistrationService( registrationService, uuidGeneratorService );
+    final List<BulkRegistrationResult> results = service.register( EVENT_ID, 10, Arrays.asList(
+      new RegistrationRequest( "Jane", FoodPreference.VEGAN ),
+      new RegistrationRequest( " ", FoodPreference.VEGAN ),
+      null,
+      new RegistrationRequest( "John", FoodPreference.MEAT ),
+      new RegistrationRequest( "Joe", null ),
+      new RegistrationRequest( "J".repeat( BulkRegistrationService.MAXIMUM_NAME_LENGTH + 1 ), FoodPreference.MEAT )
+    ) );
+
+    assertThat( results ).containsExactly(
+      BulkRegistrationResult.registered( 10, janeId ),
+      BulkRegistrationResult.invalid( 11 ),
+      BulkRegistrationResult.invalid( 12 ),
+      BulkRegistrationResult.rejected( 13 ),
+      BulkRegistrationResult.invalid( 14 ),
+      BulkRegistrationResult.invalid( 15 )
+    );
+    verify( uuidGeneratorService, times( 2 ) ).nextAttendeeId();
+    verify( registrationService, times( 1 ) ).registerAll( List.of( jane, john ) );
+    verifyNoMoreInteractions( registrationService, uuidGeneratorService );
+  }
+
+  @Test
+  @DisplayName( "should not register anything when no request is valid" )
+  public void shouldSkipInvalidChunk() {
+    final BulkRegistrationService service = new BulkRegistrationService( registrationService, uuidGeneratorService );
+    final List<BulkRegistrationResult> results =
+      service.register( EVENT_ID, 0, List.of( new RegistrationRequest( null, FoodPreference.VEGAN ) ) );
+
+    assertThat( results ).containsExactly( BulkRegistrationResult.invalid( 0 ) );
+    verifyNoInteractions( registrationService, uuidGeneratorService );
+  }
+}
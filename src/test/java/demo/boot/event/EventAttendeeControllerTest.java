@@ -0,0 +1,142 @@
+package demo.boot.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static demo.boot.office.OfficeController.APPLICATION_NDJSON;
+import static demo.boot.office.OfficeController.APPLICATION_NDJSON_VALUE;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DisplayName( "Event attendee controller" )
+@WebMvcTest( EventAttendeeController.class )
+public class EventAttendeeControllerTest {
+
+  private static final UUID EVENT_ID = UUID.randomUUID();
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private EventAttendeeService service;
+
+  @Test
+  @DisplayName( "should return a page of attendees with a link to the next page when the page is full" )
+  public void shouldReturnPageWithNextLink() throws Exception {
+    final UUID after = UUID.randomUUID();
+    final Attendee jane = new Attendee( UUID.randomUUID(), "Jane", FoodPreference.VEGAN );
+    when( service.listAfter( EVENT_ID, after, 1 ) ).thenReturn( Optional.of( List.of( jane ) ) );
+
+    mockMvc
+      .perform( get( "/event/{eventId}/attendees", EVENT_ID )
+        .param( "after", after.toString() )
+        .param( "limit", "1" ) )
+      .andExpect( status().isOk() )
+      .andExpect( jsonPath( "$", hasSize( 1 ) ) )
+      .andExpect( jsonPath( "$.[0].id", is( jane.getId().toString() ) ) )
+      .andExpect( jsonPath( "$.[0].foodPreference", is( "VEGAN" ) ) )
+      .andExpect( header().string( "Link",
+        String.format( "</event/%s/attendees?after=%s&limit=1>; rel=\"next\"", EVENT_ID, jane.getId() ) ) )
+    ;
+
+    verify( service, times( 1 ) ).listAfter( EVENT_ID, after, 1 );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should return the first page, without a link when it is not full" )
+  public void shouldReturnLastPage() throws Exception {
+    when( service.listAfter( eq( EVENT_ID ), isNull(), eq( 100 ) ) ).thenReturn( Optional.of( List.of() ) );
+
+    mockMvc
+      .perform( get( "/event/{eventId}/attendees", EVENT_ID ) )
+      .andExpect( status().isOk() )
+      .andExpect( jsonPath( "$", hasSize( 0 ) ) )
+      .andExpect( header().doesNotExist( "Link" ) )
+    ;
+  }
+
+  @Test
+  @DisplayName( "should return not found when the event does not exist" )
+  public void shouldReturnNotFound() throws Exception {
+    when( service.listAfter( eq( EVENT_ID ), isNull(), eq( 100 ) ) ).thenReturn( Optional.empty() );
+    when( service.exists( EVENT_ID ) ).thenReturn( false );
+
+    mockMvc
+      .perform( get( "/event/{eventId}/attendees", EVENT_ID ) )
+      .andExpect( status().isNotFound() );
+
+    mockMvc
+      .perform( get( "/event/{eventId}/attendees", EVENT_ID ).accept( APPLICATION_NDJSON ) )
+      .andExpect( status().isNotFound() );
+
+    verify( service, times( 0 ) ).streamAll( any(), any() );
+  }
+
+  @Test
+  @DisplayName( "should reject a page size smaller than one" )
+  public void shouldRejectInvalidPageSize() throws Exception {
+    mockMvc
+      .perform( get( "/event/{eventId}/attendees", EVENT_ID ).param( "limit", "0" ) )
+      .andExpect( status().isBadRequest() );
+
+    verifyNoInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should stream the attendees as newline delimited JSON" )
+  public void shouldStreamAttendees() throws Exception {
+    final Attendee jane = new Attendee( UUID.randomUUID(), "Jane", FoodPreference.VEGAN );
+    final Attendee john = new Attendee( UUID.randomUUID(), "John", FoodPreference.MEAT );
+    when( service.exists( EVENT_ID ) ).thenReturn( true );
+    doAnswer( invocation -> {
+      final Consumer<Attendee> consumer = invocation.getArgument( 1 );
+      consumer.accept( jane );
+      consumer.accept( john );
+      return null;
+    } ).when( service ).streamAll( eq( EVENT_ID ), any() );
+
+    final MvcResult result = mockMvc
+      .perform( get( "/event/{eventId}/attendees", EVENT_ID ).accept( APPLICATION_NDJSON ) )
+      .andExpect( request().asyncStarted() )
+      .andReturn();
+
+    mockMvc
+      .perform( asyncDispatch( result ) )
+      .andExpect( status().isOk() )
+      .andExpect( header().string( "Content-Type", APPLICATION_NDJSON_VALUE ) )
+      .andExpect( content().string(
+        objectMapper.writeValueAsString( jane ) + "\n" + objectMapper.writeValueAsString( john ) + "\n" ) )
+    ;
+  }
+}
@@ -1,13 +1,25 @@
 package demo.boot.event;
 
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.support.converter.MessageConversionException;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -16,21 +28,119 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 @DisplayName( "Event food gateway" )
 public class EventFoodGatewayTest {
 
-  @Test
-  @DisplayName( "should send the given preference to the queue" )
-  public void shouldSendMessage() {
-    final String queueName = "some-queue-name";
-    final AmqpTemplate template = mock( AmqpTemplate.class );
+  private static final String EXCHANGE_NAME = "some-exchange-name";
+
+  private final MockClock clock = new MockClock();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry( SimpleConfig.DEFAULT, clock );
+  private final RabbitOperations template = mock( RabbitOperations.class );
+
+  /* Lets the broker confirm each message as it is sent */
+  private void broker( final BiConsumer<AttendeeFoodPreference, CorrelationData> confirm ) {
+    doAnswer( invocation -> {
+      confirm.accept( invocation.getArgument( 2 ), invocation.getArgument( 3 ) );
+      return null;
+    } ).when( template ).convertAndSend( eq( EXCHANGE_NAME ), eq( "" ), any( AttendeeFoodPreference.class ),
+      any( CorrelationData.class ) );
+  }
+
+  private static AttendeeFoodPreference preference( final FoodPreference foodPreference ) {
+    return new AttendeeFoodPreference( UUID.randomUUID(), UUID.randomUUID(), foodPreference );
+  }
 
-    final AttendeeFoodPreference preference =
-      new AttendeeFoodPreference( UUID.randomUUID(), UUID.randomUUID(), FoodPreference.MEAT );
+  private static void ack( final CorrelationData correlation ) {
+    correlation.getFuture().set( new CorrelationData.Confirm( true, null ) );
+  }
 
-    doNothing().when( template ).convertAndSend( eq( queueName ), eq( preference ) );
+  @Test
+  @DisplayName( "should send every preference to the queue and return none when the broker confirms them all" )
+  public void shouldSendAll() {
+    final List<AttendeeFoodPreference> preferences = List.of(
+      preference( FoodPreference.MEAT ),
+      preference( FoodPreference.VEGAN ),
+      preference( FoodPreference.VEGETARIAN )
+    );
+    broker( ( preference, correlation ) -> {
+      clock.add( Duration.ofMillis( 2 ) );
+      ack( correlation );
+    } );
 
-    EventFoodGateway gateway = new EventFoodGateway( queueName, template );
-    gateway.submit( preference );
+    final EventFoodGateway gateway =
+      new EventFoodGateway( EXCHANGE_NAME, template, registry, 2, Duration.ofSeconds( 5 ) );
+    assertThat( gateway.submitAll( preferences ) ).isEqualTo( new FoodPublishResult( List.of(), List.of() ) );
 
-    verify( template, times( 1 ) ).convertAndSend( queueName, preference );
+    for ( final AttendeeFoodPreference preference : preferences ) {
+      verify( template, times( 1 ) )
+        .convertAndSend( eq( EXCHANGE_NAME ), eq( "" ), eq( preference ), any( CorrelationData.class ) );
+    }
     verifyNoMoreInteractions( template );
+    assertThat( registry.timer( "app.food.publish.confirm.latency" ).count() ).isEqualTo( 3L );
+    assertThat( registry.summary( "app.food.publish.batch.throughput" ).count() ).isEqualTo( 1L );
+    assertThat( registry.summary( "app.food.publish.batch.throughput" ).totalAmount() ).isEqualTo( 500D );
+  }
+
+  @Test
+  @DisplayName( "should return the preferences the broker rejected or could not route as failed, and keep the others" )
+  public void shouldReturnRejected() {
+    final AttendeeFoodPreference rejected = preference( FoodPreference.MEAT );
+    final AttendeeFoodPreference confirmed = preference( FoodPreference.VEGAN );
+    final AttendeeFoodPreference returned = preference( FoodPreference.VEGETARIAN );
+    broker( ( preference, correlation ) -> {
+      if ( preference == rejected ) {
+        correlation.getFuture().set( new CorrelationData.Confirm( false, "Queue full" ) );
+        return;
+      }
+      if ( preference == returned ) {
+        correlation.setReturnedMessage( new Message( new byte[0], new MessageProperties() ) );
+      }
+      ack( correlation );
+    } );
+
+    final EventFoodGateway gateway =
+      new EventFoodGateway( EXCHANGE_NAME, template, registry, 2, Duration.ofSeconds( 5 ) );
+    assertThat( gateway.submitAll( List.of( rejected, confirmed, returned ) ) )
+      .isEqualTo( new FoodPublishResult( List.of( rejected, returned ), List.of() ) );
+
+    assertThat( registry.counter( "app.food.publish.unconfirmed", "reason", "nack" ).count() ).isEqualTo( 1D );
+    assertThat( registry.counter( "app.food.publish.unconfirmed", "reason", "returned" ).count() ).isEqualTo( 1D );
+    assertThat( registry.timer( "app.food.publish.confirm.latency" ).count() ).isEqualTo( 1L );
+  }
+
+  @Test
+  @DisplayName( "should return the preferences that were not confirmed in time as unanswered, in the order given" )
+  public void shouldReturnUnconfirmedInTime() {
+    final List<AttendeeFoodPreference> preferences = List.of(
+      preference( FoodPreference.MEAT ),
+      preference( FoodPreference.VEGAN ),
+      preference( FoodPreference.VEGETARIAN )
+    );
+    broker( ( preference, correlation ) -> { } );
+
+    final EventFoodGateway gateway =
+      new EventFoodGateway( EXCHANGE_NAME, template, registry, 2, Duration.ZERO );
+    assertThat( gateway.submitAll( preferences ) ).isEqualTo( new FoodPublishResult( List.of(), preferences ) );
+
+    assertThat( registry.counter( "app.food.publish.unconfirmed", "reason", "timeout" ).count() ).isEqualTo( 3D );
+  }
+
+  @Test
+  @DisplayName( "should return a preference that cannot be converted as failed, and keep sending the others" )
+  public void shouldReturnUnconvertible() {
+    final AttendeeFoodPreference unconvertible = preference( FoodPreference.MEAT );
+    final AttendeeFoodPreference confirmed = preference( FoodPreference.VEGAN );
+    broker( ( preference, correlation ) -> {
+      if ( preference == unconvertible ) {
+        throw new MessageConversionException( "Unknown food preference" );
+      }
+      ack( correlation );
+    } );
+
+    final EventFoodGateway gateway =
+      new EventFoodGateway( EXCHANGE_NAME, template, registry, 2, Duration.ofSeconds( 5 ) );
+    assertThat( gateway.submitAll( List.of( unconvertible, confirmed ) ) )
+      .isEqualTo( new FoodPublishResult( List.of( unconvertible ), List.of() ) );
+
+    verify( template, times( 1 ) )
+      .convertAndSend( eq( EXCHANGE_NAME ), eq( "" ), eq( confirmed ), any( CorrelationData.class ) );
+    assertThat( registry.counter( "app.food.publish.unconfirmed", "reason", "error" ).count() ).isEqualTo( 1D );
   }
 }
@@ -0,0 +1,92 @@
+package demo.boot.event;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@DisplayName( "Event metadata cache" )
+public class EventMetadataCacheTest {
+
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+  private final EventRepository repository = mock( EventRepository.class );
+
+  @Test
+  @DisplayName( "should read an event from the repository once and count the hits and misses" )
+  public void shouldReadThrough() {
+    final EventMetadata event = event( LocalDate.now().plusDays( 7 ) );
+    when( repository.findMetadataById( event.getId() ) ).thenReturn( Optional.of( event ) );
+
+    final EventMetadataCache subject =
+      new EventMetadataCache( repository, registry, 100, Duration.ofMinutes( 10 ), Duration.ofMinutes( 1 ) );
+    assertThat( subject.find( event.getId() ) ).contains( event );
+    assertThat( subject.isOpen( event.getId() ) ).isTrue();
+
+    verify( repository, times( 1 ) ).findMetadataById( event.getId() );
+    verifyNoMoreInteractions( repository );
+    assertThat( registry.counter( "app.event.cache.requests", "result", "miss" ).count() ).isEqualTo( 1D );
+    assertThat( registry.counter( "app.event.cache.requests", "result", "hit" ).count() ).isEqualTo( 1D );
+  }
+
+  @Test
+  @DisplayName( "should remember the events that do not exist" )
+  public void shouldRememberMissingEvents() {
+    final UUID eventId = UUID.randomUUID();
+    when( repository.findMetadataById( eventId ) ).thenReturn( Optional.empty() );
+
+    final EventMetadataCache subject =
+      new EventMetadataCache( repository, registry, 100, Duration.ofMinutes( 10 ), Duration.ofMinutes( 1 ) );
+    assertThat( subject.isOpen( eventId ) ).isFalse();
+    assertThat( subject.isOpen( eventId ) ).isFalse();
+
+    verify( repository, times( 1 ) ).findMetadataById( eventId );
+  }
+
+  @Test
+  @DisplayName( "should not keep an event that no longer takes registrations" )
+  public void shouldEvictClosedEvents() {
+    final EventMetadata event = event( LocalDate.now() );
+    when( repository.findMetadataById( event.getId() ) ).thenReturn( Optional.of( event ) );
+
+    final EventMetadataCache subject =
+      new EventMetadataCache( repository, registry, 100, Duration.ofMinutes( 10 ), Duration.ofMinutes( 1 ) );
+    assertThat( subject.isOpen( event.getId() ) ).isFalse();
+    assertThat( subject.isOpen( event.getId() ) ).isFalse();
+
+    verify( repository, times( 2 ) ).findMetadataById( event.getId() );
+  }
+
+  @Test
+  @DisplayName( "should load the upcoming events when warming up, thus these are read without the repository" )
+  public void shouldWarmUp() {
+    final EventMetadata event = event( LocalDate.now().plusDays( 1 ) );
+    when( repository.findUpcomingMetadata( eq( LocalDate.now() ), any() ) ).thenReturn( List.of( event ) );
+
+    final EventMetadataCache subject =
+      new EventMetadataCache( repository, registry, 100, Duration.ofMinutes( 10 ), Duration.ofMinutes( 1 ) );
+    subject.warmUp();
+
+    assertThat( subject.isOpen( event.getId() ) ).isTrue();
+    verify( repository, times( 1 ) ).findUpcomingMetadata( eq( LocalDate.now() ), any() );
+    verifyNoMoreInteractions( repository );
+  }
+
+  private static EventMetadata event( final LocalDate date ) {
+    return new EventMetadata( UUID.randomUUID(), "ThoughtWorks Cologne", date, "Spring Boot", "Deep dive", null );
+  }
+}
@@ -0,0 +1,93 @@
+package demo.boot.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@DisplayName( "Event registration consumer" )
+public class EventRegistrationConsumerTest {
+
+  @Test
+  @DisplayName( "should register the batch and count the registrations that were rejected or skipped" )
+  public void shouldRegisterBatch() {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final EventRegistrationService service = mock( EventRegistrationService.class );
+    final EventRegistrationGateway gateway = mock( EventRegistrationGateway.class );
+    final QueuedRegistration accepted =
+      new QueuedRegistration( UUID.randomUUID(), UUID.randomUUID(), "Jane", FoodPreference.VEGAN );
+    final QueuedRegistration rejected =
+      new QueuedRegistration( UUID.randomUUID(), UUID.randomUUID(), "John", FoodPreference.MEAT );
+    final QueuedRegistration skipped =
+      new QueuedRegistration( UUID.randomUUID(), UUID.randomUUID(), "Joe", FoodPreference.MEAT, "retry-1" );
+
+    when( service.registerAll( List.of( accepted, rejected, skipped ) ) )
+      .thenReturn( new BatchRegistrationResult( List.of( rejected ), List.of( skipped ) ) );
+
+    new EventRegistrationConsumer( service, gateway, registry ).register( List.of( accepted, rejected, skipped ) );
+
+    verify( service, times( 1 ) ).registerAll( List.of( accepted, rejected, skipped ) );
+    verifyNoInteractions( gateway );
+    assertThat( registry.counter( "app.registration.async", "outcome", "registered" ).count() ).isEqualTo( 1D );
+    assertThat( registry.counter( "app.registration.async", "outcome", "rejected" ).count() ).isEqualTo( 1D );
+    assertThat( registry.counter( "app.registration.async", "outcome", "skipped" ).count() ).isEqualTo( 1D );
+  }
+
+  @Test
+  @DisplayName( "should register a failed batch one registration at a time and dead-letter only those that fail alone" )
+  public void shouldRegisterFailedBatchOneByOne() {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final EventRegistrationService service = mock( EventRegistrationService.class );
+    final EventRegistrationGateway gateway = mock( EventRegistrationGateway.class );
+    final QueuedRegistration jane =
+      new QueuedRegistration( UUID.randomUUID(), UUID.randomUUID(), "Jane", FoodPreference.VEGAN );
+    final QueuedRegistration poison =
+      new QueuedRegistration( UUID.randomUUID(), UUID.randomUUID(), "John", FoodPreference.MEAT );
+
+    when( service.registerAll( List.of( jane, poison ) ) )
+      .thenThrow( new DataIntegrityViolationException( "violates a constraint" ) );
+    when( service.registerAll( List.of( jane ) ) ).thenReturn( new BatchRegistrationResult( List.of(), List.of() ) );
+    when( service.registerAll( List.of( poison ) ) )
+      .thenThrow( new DataIntegrityViolationException( "violates a constraint" ) );
+
+    new EventRegistrationConsumer( service, gateway, registry ).register( List.of( jane, poison ) );
+
+    verify( service, times( 1 ) ).registerAll( List.of( jane ) );
+    verify( service, times( 1 ) ).registerAll( List.of( poison ) );
+    verify( gateway, times( 1 ) ).deadLetter( poison );
+    assertThat( registry.counter( "app.registration.async", "outcome", "registered" ).count() ).isEqualTo( 1D );
+    assertThat( registry.counter( "app.registration.async", "outcome", "dead-lettered" ).count() ).isEqualTo( 1D );
+  }
+
+  @Test
+  @DisplayName( "should fail the whole batch on a transient database error, thus it is retried and not dead-lettered" )
+  public void shouldFailBatchOnTransientError() {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final EventRegistrationService service = mock( EventRegistrationService.class );
+    final EventRegistrationGateway gateway = mock( EventRegistrationGateway.class );
+    final QueuedRegistration jane =
+      new QueuedRegistration( UUID.randomUUID(), UUID.randomUUID(), "Jane", FoodPreference.VEGAN );
+
+    when( service.registerAll( List.of( jane ) ) ).thenThrow( new CannotAcquireLockException( "deadlock detected" ) );
+
+    final EventRegistrationConsumer consumer = new EventRegistrationConsumer( service, gateway, registry );
+    assertThatThrownBy( () -> consumer.register( List.of( jane ) ) )
+      .isInstanceOf( CannotAcquireLockException.class );
+
+    verify( service, times( 1 ) ).registerAll( List.of( jane ) );
+    verifyNoInteractions( gateway );
+    assertThat( registry.counter( "app.registration.async", "outcome", "dead-lettered" ).count() ).isEqualTo( 0D );
+  }
+}
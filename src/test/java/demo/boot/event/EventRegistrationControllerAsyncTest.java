@@ -0,0 +1,124 @@
+package demo.boot.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DisplayName( "Registration controller (asynchronous mode)" )
+@WebMvcTest( value = EventRegistrationController.class, properties = "app.registration.async.enabled=true" )
+public class EventRegistrationControllerAsyncTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private EventRegistrationService service;
+
+  @MockBean
+  private IdempotentRegistrationService idempotentService;
+
+  @Autowired
+  private ObjectMapper jsonObjectMapper;
+
+  @Test
+  @DisplayName( "should accept the registration and return the attendee id allocated for it" )
+  public void shouldAcceptRegistration() throws Exception {
+    final UUID eventId = UUID.randomUUID();
+    final UUID attendeeId = UUID.randomUUID();
+    final RegistrationRequest registrationRequest = new RegistrationRequest( "Albert Attard", FoodPreference.MEAT );
+    final RegistrationDetails details = new RegistrationDetails( eventId, "Albert Attard", FoodPreference.MEAT );
+
+    when( service.enqueue( eq( details ) ) ).thenReturn( new RegistrationConfirmation( attendeeId ) );
+
+    mockMvc
+      .perform(
+        post( "/event/{eventId}/register", eventId )
+          .contentType( MediaType.APPLICATION_JSON )
+          .characterEncoding( StandardCharsets.UTF_8.displayName() )
+          .content( jsonObjectMapper.writeValueAsString( registrationRequest ) )
+      )
+      .andExpect( status().isAccepted() )
+      .andExpect( header().string( "Location", String.format( "/event/registration/%s", attendeeId ) ) )
+      .andExpect( jsonPath( "$.id", is( attendeeId.toString() ) ) )
+    ;
+
+    verify( service, times( 1 ) ).enqueue( details );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should return bad request without enqueuing when the registration is incomplete" )
+  public void shouldRejectIncompleteRegistration() throws Exception {
+    mockMvc
+      .perform(
+        post( "/event/{eventId}/register", UUID.randomUUID() )
+          .contentType( MediaType.APPLICATION_JSON )
+          .characterEncoding( StandardCharsets.UTF_8.displayName() )
+          .content( jsonObjectMapper.writeValueAsString( new RegistrationRequest( " ", FoodPreference.MEAT ) ) )
+      )
+      .andExpect( status().isBadRequest() )
+    ;
+
+    verifyNoInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should return bad request without enqueuing when the name is longer than its column" )
+  public void shouldRejectLongName() throws Exception {
+    final RegistrationRequest registrationRequest = new RegistrationRequest( "A".repeat( 65 ), FoodPreference.MEAT );
+
+    mockMvc
+      .perform(
+        post( "/event/{eventId}/register", UUID.randomUUID() )
+          .contentType( MediaType.APPLICATION_JSON )
+          .characterEncoding( StandardCharsets.UTF_8.displayName() )
+          .content( jsonObjectMapper.writeValueAsString( registrationRequest ) )
+      )
+      .andExpect( status().isBadRequest() )
+    ;
+
+    verifyNoInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should return service unavailable when the broker did not take the registration" )
+  public void shouldReturnServiceUnavailableWhenNotQueued() throws Exception {
+    final UUID eventId = UUID.randomUUID();
+    final RegistrationDetails details = new RegistrationDetails( eventId, "Albert Attard", FoodPreference.MEAT );
+
+    when( service.enqueue( eq( details ) ) )
+      .thenThrow( new RegistrationNotQueuedException( UUID.randomUUID(), "timeout" ) );
+
+    mockMvc
+      .perform(
+        post( "/event/{eventId}/register", eventId )
+          .contentType( MediaType.APPLICATION_JSON )
+          .characterEncoding( StandardCharsets.UTF_8.displayName() )
+          .content( jsonObjectMapper.writeValueAsString(
+            new RegistrationRequest( "Albert Attard", FoodPreference.MEAT ) ) )
+      )
+      .andExpect( status().isServiceUnavailable() )
+      .andExpect( header().doesNotExist( "Location" ) )
+    ;
+  }
+}
@@ -34,6 +34,9 @@ public class EventRegistrationControllerTest {
   @MockBean
   private EventRegistrationService service;
 
+  @MockBean
+  private IdempotentRegistrationService idempotentService;
+
   @Autowired
   private ObjectMapper jsonObjectMapper;
 
@@ -90,4 +93,73 @@ public class EventRegistrationControllerTest {
     verify( service, times( 1 ) ).register( details );
     verifyNoMoreInteractions( service );
   }
+
+  @Test
+  @DisplayName( "should return conflict when registering for an event that is fully booked" )
+  public void shouldReturnConflict() throws Exception {
+    final UUID eventId = UUID.randomUUID();
+    final String name = "Albert Attard";
+    final FoodPreference foodPreference = FoodPreference.MEAT;
+    final RegistrationRequest registrationRequest = new RegistrationRequest( name, foodPreference );
+    final RegistrationDetails details = new RegistrationDetails( eventId, name, foodPreference );
+
+    when( service.register( eq( details ) ) ).thenThrow( new EventFullyBookedException( eventId ) );
+
+    mockMvc
+      .perform(
+        post( "/event/{eventId}/register", eventId )
+          .contentType( MediaType.APPLICATION_JSON )
+          .characterEncoding( StandardCharsets.UTF_8.displayName() )
+          .content( jsonObjectMapper.writeValueAsString( registrationRequest ) )
+      )
+      .andExpect( status().isConflict() )
+    ;
+
+    verify( service, times( 1 ) ).register( details );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should register through the idempotent registrations when given an idempotency key" )
+  public void shouldRegisterIdempotently() throws Exception {
+    final UUID eventId = UUID.randomUUID();
+    final UUID confirmationId = UUID.randomUUID();
+    final RegistrationRequest registrationRequest = new RegistrationRequest( "Albert Attard", FoodPreference.MEAT );
+    final RegistrationDetails details = new RegistrationDetails( eventId, "Albert Attard", FoodPreference.MEAT );
+
+    when( idempotentService.register( eq( details ), eq( "retry-1" ) ) )
+      .thenReturn( Optional.of( new RegistrationConfirmation( confirmationId ) ) );
+
+    mockMvc
+      .perform(
+        post( "/event/{eventId}/register", eventId )
+          .header( "Idempotency-Key", "retry-1" )
+          .contentType( MediaType.APPLICATION_JSON )
+          .characterEncoding( StandardCharsets.UTF_8.displayName() )
+          .content( jsonObjectMapper.writeValueAsString( registrationRequest ) )
+      )
+      .andExpect( status().isCreated() )
+      .andExpect( jsonPath( "$.id", is( confirmationId.toString() ) ) )
+    ;
+
+    verify( idempotentService, times( 1 ) ).register( details, "retry-1" );
+    verifyNoMoreInteractions( idempotentService, service );
+  }
+
+  @Test
+  @DisplayName( "should return bad request when the idempotency key is longer than 255 characters" )
+  public void shouldRejectLongIdempotencyKey() throws Exception {
+    mockMvc
+      .perform(
+        post( "/event/{eventId}/register", UUID.randomUUID() )
+          .header( "Idempotency-Key", "k".repeat( 256 ) )
+          .contentType( MediaType.APPLICATION_JSON )
+          .characterEncoding( StandardCharsets.UTF_8.displayName() )
+          .content( jsonObjectMapper.writeValueAsString( new RegistrationRequest( "Albert", FoodPreference.MEAT ) ) )
+      )
+      .andExpect( status().isBadRequest() )
+    ;
+
+    verifyNoMoreInteractions( idempotentService, service );
+  }
 }
@@ -0,0 +1,111 @@
+package demo.boot.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DisplayName( "Event registration gateway" )
+public class EventRegistrationGatewayTest {
+
+  private static final String QUEUE_NAME = "some-queue-name";
+  private static final String DEAD_LETTER_QUEUE_NAME = "some-dead-letter-queue-name";
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final RabbitOperations template = mock( RabbitOperations.class );
+  private final QueuedRegistration registration =
+    new QueuedRegistration( UUID.randomUUID(), UUID.randomUUID(), "Albert Attard", FoodPreference.MEAT );
+
+  /* Lets the broker answer the message as it is sent */
+  private void broker( final Consumer<CorrelationData> answer ) {
+    doAnswer( invocation -> {
+      answer.accept( invocation.getArgument( 2 ) );
+      return null;
+    } ).when( template ).convertAndSend( eq( QUEUE_NAME ), any( QueuedRegistration.class ),
+      any( CorrelationData.class ) );
+  }
+
+  @Test
+  @DisplayName( "should return once the broker confirmed the registration" )
+  public void shouldSubmitConfirmed() {
+    broker( correlation -> correlation.getFuture().set( new CorrelationData.Confirm( true, null ) ) );
+
+    new EventRegistrationGateway( QUEUE_NAME, DEAD_LETTER_QUEUE_NAME, template, registry, Duration.ofSeconds( 5 ) )
+      .submit( registration );
+
+    verify( template, times( 1 ) ).convertAndSend( eq( QUEUE_NAME ), eq( registration ), any( CorrelationData.class ) );
+    assertThat( registry.find( "app.registration.async.unconfirmed" ).counter() ).isNull();
+  }
+
+  @Test
+  @DisplayName( "should set the registration aside on the dead-letter queue once the broker confirmed it" )
+  public void shouldDeadLetterConfirmed() {
+    doAnswer( invocation -> {
+      invocation.<CorrelationData>getArgument( 2 ).getFuture().set( new CorrelationData.Confirm( true, null ) );
+      return null;
+    } ).when( template ).convertAndSend( eq( DEAD_LETTER_QUEUE_NAME ), any( QueuedRegistration.class ),
+      any( CorrelationData.class ) );
+
+    new EventRegistrationGateway( QUEUE_NAME, DEAD_LETTER_QUEUE_NAME, template, registry, Duration.ofSeconds( 5 ) )
+      .deadLetter( registration );
+
+    verify( template, times( 1 ) )
+      .convertAndSend( eq( DEAD_LETTER_QUEUE_NAME ), eq( registration ), any( CorrelationData.class ) );
+    assertThat( registry.find( "app.registration.async.unconfirmed" ).counter() ).isNull();
+  }
+
+  @Test
+  @DisplayName( "should fail the registration when the broker rejects it" )
+  public void shouldFailWhenRejected() {
+    broker( correlation -> correlation.getFuture().set( new CorrelationData.Confirm( false, "queue full" ) ) );
+
+    final EventRegistrationGateway subject =
+      new EventRegistrationGateway( QUEUE_NAME, DEAD_LETTER_QUEUE_NAME, template, registry, Duration.ofSeconds( 5 ) );
+    assertThatThrownBy( () -> subject.submit( registration ) ).isInstanceOf( RegistrationNotQueuedException.class );
+
+    assertThat( registry.counter( "app.registration.async.unconfirmed", "reason", "nack" ).count() ).isEqualTo( 1D );
+  }
+
+  @Test
+  @DisplayName( "should fail the registration when the broker could not route it" )
+  public void shouldFailWhenReturned() {
+    broker( correlation -> {
+      correlation.setReturnedMessage( new Message( new byte[0], new MessageProperties() ) );
+      correlation.getFuture().set( new CorrelationData.Confirm( true, null ) );
+    } );
+
+    final EventRegistrationGateway subject =
+      new EventRegistrationGateway( QUEUE_NAME, DEAD_LETTER_QUEUE_NAME, template, registry, Duration.ofSeconds( 5 ) );
+    assertThatThrownBy( () -> subject.submit( registration ) ).isInstanceOf( RegistrationNotQueuedException.class );
+
+    assertThat( registry.counter( "app.registration.async.unconfirmed", "reason", "returned" ).count() )
+      .isEqualTo( 1D );
+  }
+
+  @Test
+  @DisplayName( "should fail the registration when the broker does not confirm it in time" )
+  public void shouldFailWhenNotConfirmed() {
+    final EventRegistrationGateway subject =
+      new EventRegistrationGateway( QUEUE_NAME, DEAD_LETTER_QUEUE_NAME, template, registry, Duration.ofMillis( 10 ) );
+    assertThatThrownBy( () -> subject.submit( registration ) ).isInstanceOf( RegistrationNotQueuedException.class );
+
+    assertThat( registry.counter( "app.registration.async.unconfirmed", "reason", "timeout" ).count() )
+      .isEqualTo( 1D );
+  }
+}
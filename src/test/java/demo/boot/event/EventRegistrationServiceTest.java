@@ -4,15 +4,23 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
@@ -23,62 +31,67 @@ import static org.mockito.Mockito.when;
 @DisplayName( "Event registration service" )
 public class EventRegistrationServiceTest {
 
-  private final EventFoodGateway eventFoodGateway = mock( EventFoodGateway.class );
+  private final FoodPreferenceOutboxRepository outboxRepository = mock( FoodPreferenceOutboxRepository.class );
+  private final EventRegistrationGateway registrationGateway = mock( EventRegistrationGateway.class );
   private final UuidGeneratorService uuidGeneratorService = mock( UuidGeneratorService.class );
   private final EventRepository eventRepository = mock( EventRepository.class );
+  private final EventMetadataCache events = mock( EventMetadataCache.class );
+  private final EventAttendeeRepository attendeeRepository = mock( EventAttendeeRepository.class );
   private final EventEntity officeEntity = mock( EventEntity.class );
+  private final EventSeats eventSeats = new EventSeats( events, Duration.ofMinutes( 1 ) );
 
   @BeforeEach
   public void setUp() {
-    reset( eventFoodGateway, uuidGeneratorService, eventRepository, officeEntity );
+    reset( outboxRepository, registrationGateway, uuidGeneratorService, eventRepository, attendeeRepository, officeEntity,
+      events );
+    when( events.isOpen( any() ) ).thenReturn( true );
+    when( events.find( any() ) ).thenAnswer( invocation -> Optional.of( new EventMetadata( invocation.getArgument( 0 ),
+      "ThoughtWorks Cologne", LocalDate.now().plusDays( 7 ), "Spring Boot", "Deep dive", 10 ) ) );
   }
 
   @AfterEach
   public void tearDown() {
-    verifyNoMoreInteractions( eventFoodGateway, uuidGeneratorService, eventRepository, officeEntity );
+    verifyNoMoreInteractions( outboxRepository, registrationGateway, uuidGeneratorService, eventRepository, attendeeRepository,
+      officeEntity );
   }
 
   private Optional<RegistrationConfirmation> register( RegistrationDetails details ) {
-    return new EventRegistrationService( eventRepository, uuidGeneratorService, eventFoodGateway )
+    return new EventRegistrationService( eventRepository, events, attendeeRepository, eventSeats,
+      uuidGeneratorService, outboxRepository, registrationGateway )
       .register( details );
   }
 
   @Test
-  @DisplayName( "should return Optional empty when registering to an non existing event" )
-  public void shouldReturnOptionalEmptyWhenNotFound() {
+  @DisplayName( "should return Optional empty without the database when the cached event does not exist or expired" )
+  public void shouldReturnOptionalEmptyWhenCachedAsNotFoundOrExpired() {
     final UUID eventId = UUID.randomUUID();
-    final String name = "Albert Attard";
-    final FoodPreference foodPreference = FoodPreference.MEAT;
-    final RegistrationDetails details = new RegistrationDetails( eventId, name, foodPreference );
-
-    when( eventRepository.findById( eq( eventId ) ) ).thenReturn( Optional.empty() );
+    final RegistrationDetails details = new RegistrationDetails( eventId, "Albert Attard", FoodPreference.MEAT );
 
-    final Optional<RegistrationConfirmation> confirmation = register( details );
-    assertEquals( Optional.empty(), confirmation );
+    when( events.isOpen( eventId ) ).thenReturn( false );
 
-    verify( eventRepository, times( 1 ) ).findById( eventId );
+    assertEquals( Optional.empty(), register( details ) );
   }
 
   @Test
-  @DisplayName( "should return Optional empty when registering to an expired event" )
-  public void shouldReturnOptionalEmptyWhenExpired() {
+  @DisplayName( "should return Optional empty when the event expired or was removed after it was cached" )
+  public void shouldReturnOptionalEmptyWhenNotFoundOrExpired() {
     final UUID eventId = UUID.randomUUID();
     final String name = "Albert Attard";
     final FoodPreference foodPreference = FoodPreference.MEAT;
     final RegistrationDetails details = new RegistrationDetails( eventId, name, foodPreference );
 
-    when( eventRepository.findById( eq( eventId ) ) ).thenReturn( Optional.of( officeEntity ) );
-    when( officeEntity.getDate() ).thenReturn( LocalDate.now().minusDays( 1 ) );
+    when( eventRepository.reserveSeat( eq( eventId ), eq( LocalDate.now() ) ) ).thenReturn( Optional.empty() );
+    when( eventRepository.existsByIdAndDateAfter( eq( eventId ), eq( LocalDate.now() ) ) ).thenReturn( false );
 
     final Optional<RegistrationConfirmation> confirmation = register( details );
     assertEquals( Optional.empty(), confirmation );
 
-    verify( eventRepository, times( 1 ) ).findById( eventId );
-    verify( officeEntity, times( 1 ) ).getDate();
+    verify( eventRepository, times( 1 ) ).reserveSeat( eventId, LocalDate.now() );
+    verify( eventRepository, times( 1 ) ).existsByIdAndDateAfter( eventId, LocalDate.now() );
   }
 
   @Test
-  @DisplayName( "should return the registration confirmation and notify the event food gateway when registering to an active event" )
+  @DisplayName( "should return the registration confirmation and write the food preference to the outbox when registering to an active event" )
   public void shouldReturnConfirmationWhenActive() {
     final UUID eventId = UUID.randomUUID();
     final UUID attendeeId = UUID.randomUUID();
@@ -88,23 +101,192 @@ public class EventRegistrationServiceTest {
     final EventAttendeeEntity attendeeEntity = new EventAttendeeEntity( attendeeId, name, foodPreference, officeEntity );
     final AttendeeFoodPreference attendeeFoodPreference = new AttendeeFoodPreference( eventId, attendeeId, foodPreference );
 
-    when( eventRepository.findById( eq( eventId ) ) ).thenReturn( Optional.of( officeEntity ) );
-    when( officeEntity.getId() ).thenReturn( eventId );
-    when( officeEntity.getDate() ).thenReturn( LocalDate.now().plusDays( 1 ) );
+    when( eventRepository.reserveSeat( eq( eventId ), eq( LocalDate.now() ) ) ).thenReturn( Optional.of( 9 ) );
+    when( eventRepository.getOne( eq( eventId ) ) ).thenReturn( officeEntity );
     when( uuidGeneratorService.nextAttendeeId() ).thenReturn( attendeeId );
-    doNothing().when( officeEntity ).addAttendee( attendeeEntity );
-    when( eventRepository.save( eq( officeEntity ) ) ).thenReturn( officeEntity );
-    doNothing().when( eventFoodGateway ).submit( eq( attendeeFoodPreference ) );
+    when( attendeeRepository.save( eq( attendeeEntity ) ) ).thenReturn( attendeeEntity );
 
     final Optional<RegistrationConfirmation> confirmation = register( details );
-    assertTrue( confirmation.isPresent() );
+    assertEquals( Optional.of( new RegistrationConfirmation( attendeeId ) ), confirmation );
+
+    verify( eventRepository, times( 1 ) ).reserveSeat( eventId, LocalDate.now() );
+    verify( eventRepository, times( 1 ) ).getOne( eventId );
+    verify( uuidGeneratorService, times( 1 ) ).nextAttendeeId();
+    verify( attendeeRepository, times( 1 ) ).save( attendeeEntity );
+
+    final ArgumentCaptor<FoodPreferenceOutboxEntity> outbox =
+      ArgumentCaptor.forClass( FoodPreferenceOutboxEntity.class );
+    verify( outboxRepository, times( 1 ) ).save( outbox.capture() );
+    assertEquals( attendeeFoodPreference, outbox.getValue().toPreference() );
+  }
+
+  @Test
+  @DisplayName( "should treat a new attendee as new, so that it is inserted without being selected first" )
+  public void shouldInsertNewAttendee() {
+    final EventAttendeeEntity attendee =
+      new EventAttendeeEntity( UUID.randomUUID(), "Albert Attard", FoodPreference.MEAT, officeEntity );
+    assertTrue( attendee.isNew() );
+
+    attendee.markPersisted();
+    assertFalse( attendee.isNew() );
+  }
+
+  @Test
+  @DisplayName( "should reject the registration when the event is fully booked, and the following ones without the database" )
+  public void shouldRejectWhenFullyBooked() {
+    final UUID eventId = UUID.randomUUID();
+    final RegistrationDetails details = new RegistrationDetails( eventId, "Albert Attard", FoodPreference.MEAT );
+
+    when( eventRepository.reserveSeat( eq( eventId ), eq( LocalDate.now() ) ) ).thenReturn( Optional.empty() );
+    when( eventRepository.existsByIdAndDateAfter( eq( eventId ), eq( LocalDate.now() ) ) ).thenReturn( true );
+
+    assertThrows( EventFullyBookedException.class, () -> register( details ) );
+    assertThrows( EventFullyBookedException.class, () -> register( details ) );
+
+    verify( eventRepository, times( 1 ) ).reserveSeat( eventId, LocalDate.now() );
+    verify( eventRepository, times( 1 ) ).existsByIdAndDateAfter( eventId, LocalDate.now() );
+  }
+
+  @Test
+  @DisplayName( "should stop sending registrations to the database once the seats it reported are taken" )
+  public void shouldAdmitOnlyTheRemainingSeats() {
+    final UUID eventId = UUID.randomUUID();
+    final RegistrationDetails details = new RegistrationDetails( eventId, "Albert Attard", FoodPreference.MEAT );
+
+    when( eventRepository.reserveSeat( eq( eventId ), eq( LocalDate.now() ) ) )
+      .thenReturn( Optional.of( 1 ) )
+      .thenReturn( Optional.of( 0 ) );
+    when( eventRepository.getOne( eq( eventId ) ) ).thenReturn( officeEntity );
+    when( uuidGeneratorService.nextAttendeeId() ).thenAnswer( invocation -> UUID.randomUUID() );
+
+    assertTrue( register( details ).isPresent() );
+    assertTrue( register( details ).isPresent() );
+    assertThrows( EventFullyBookedException.class, () -> register( details ) );
+
+    verify( eventRepository, times( 2 ) ).reserveSeat( eventId, LocalDate.now() );
+    verify( eventRepository, times( 2 ) ).getOne( eventId );
+    verify( uuidGeneratorService, times( 2 ) ).nextAttendeeId();
+    verify( attendeeRepository, times( 2 ) ).save( any( EventAttendeeEntity.class ) );
+    verify( outboxRepository, times( 2 ) ).save( any( FoodPreferenceOutboxEntity.class ) );
+  }
+
+  @Test
+  @DisplayName( "should enqueue the registration with a new attendee id and return it without touching the database" )
+  public void shouldEnqueue() {
+    final UUID eventId = UUID.randomUUID();
+    final UUID attendeeId = UUID.randomUUID();
+    final RegistrationDetails details = new RegistrationDetails( eventId, "Albert Attard", FoodPreference.VEGAN );
+
+    when( uuidGeneratorService.nextAttendeeId() ).thenReturn( attendeeId );
+
+    final EventRegistrationService service = new EventRegistrationService( eventRepository, events,
+      attendeeRepository, eventSeats, uuidGeneratorService, outboxRepository, registrationGateway );
+    assertEquals( new RegistrationConfirmation( attendeeId ), service.enqueue( details ) );
+
+    verify( uuidGeneratorService, times( 1 ) ).nextAttendeeId();
+    verify( registrationGateway, times( 1 ) )
+      .submit( new QueuedRegistration( attendeeId, eventId, "Albert Attard", FoodPreference.VEGAN ) );
+  }
+
+  @Test
+  @DisplayName( "should enqueue a retry with a new attendee id and its idempotency key" )
+  public void shouldEnqueueRetry() {
+    final UUID eventId = UUID.randomUUID();
+    final UUID attendeeId = UUID.randomUUID();
+    final RegistrationDetails details = new RegistrationDetails( eventId, "Albert Attard", FoodPreference.VEGAN );
+
+    when( uuidGeneratorService.nextAttendeeId() ).thenReturn( attendeeId );
+
+    final EventRegistrationService service = new EventRegistrationService( eventRepository, events,
+      attendeeRepository, eventSeats, uuidGeneratorService, outboxRepository, registrationGateway );
+    assertEquals( new RegistrationConfirmation( attendeeId ), service.enqueue( details, "retry-1" ) );
 
-    verify( eventRepository, times( 1 ) ).findById( eventId );
-    verify( officeEntity, times( 1 ) ).getId();
-    verify( officeEntity, times( 1 ) ).getDate();
     verify( uuidGeneratorService, times( 1 ) ).nextAttendeeId();
-    verify( officeEntity, times( 1 ) ).addAttendee( attendeeEntity );
-    verify( eventRepository, times( 1 ) ).save( officeEntity );
-    verify( eventFoodGateway, times( 1 ) ).submit( attendeeFoodPreference );
+    verify( registrationGateway, times( 1 ) )
+      .submit( new QueuedRegistration( attendeeId, eventId, "Albert Attard", FoodPreference.VEGAN, "retry-1" ) );
+  }
+
+  @Test
+  @DisplayName( "should register a batch taking the seats once per event, skip the registered and reject the rest" )
+  public void shouldRegisterBatch() {
+    final UUID eventId = UUID.fromString( "00000000-0000-0000-0000-000000000001" );
+    final UUID expiredEventId = UUID.fromString( "00000000-0000-0000-0000-000000000002" );
+    final QueuedRegistration registered =
+      new QueuedRegistration( UUID.randomUUID(), eventId, "Albert Attard", FoodPreference.MEAT );
+    final QueuedRegistration first = new QueuedRegistration( UUID.randomUUID(), eventId, "Jane", FoodPreference.VEGAN );
+    final QueuedRegistration second = new QueuedRegistration( UUID.randomUUID(), eventId, "John", FoodPreference.MEAT );
+    final QueuedRegistration expired =
+      new QueuedRegistration( UUID.randomUUID(), expiredEventId, "Joe", FoodPreference.NO_FOOD );
+
+    when( attendeeRepository.findExistingIds( any() ) ).thenReturn( Set.of( registered.getAttendeeId() ) );
+    when( eventRepository.reserveSeats( eq( eventId ), eq( 2 ), eq( LocalDate.now() ) ) )
+      .thenReturn( Optional.of( 1 ) );
+    when( eventRepository.reserveSeats( eq( expiredEventId ), eq( 1 ), eq( LocalDate.now() ) ) )
+      .thenReturn( Optional.empty() );
+    when( eventRepository.getOne( eq( eventId ) ) ).thenReturn( officeEntity );
+
+    final EventRegistrationService service = new EventRegistrationService( eventRepository, events,
+      attendeeRepository, eventSeats, uuidGeneratorService, outboxRepository, registrationGateway );
+    final BatchRegistrationResult result = service.registerAll( List.of( registered, first, second, first, expired ) );
+
+    assertEquals( List.of( second, expired ), result.getRejected() );
+    assertEquals( List.of( registered, first ), result.getSkipped() );
+    verify( attendeeRepository, times( 1 ) ).findExistingIds(
+      List.of( registered.getAttendeeId(), first.getAttendeeId(), second.getAttendeeId(), first.getAttendeeId(),
+        expired.getAttendeeId() ) );
+    verify( eventRepository, times( 1 ) ).reserveSeats( eventId, 2, LocalDate.now() );
+    verify( eventRepository, times( 1 ) ).reserveSeats( expiredEventId, 1, LocalDate.now() );
+    verify( eventRepository, times( 1 ) ).getOne( eventId );
+    verify( attendeeRepository, times( 1 ) ).saveAll( List.of(
+      new EventAttendeeEntity( first.getAttendeeId(), "Jane", FoodPreference.VEGAN, officeEntity ) ) );
+
+    final ArgumentCaptor<List<FoodPreferenceOutboxEntity>> outbox = ArgumentCaptor.forClass( List.class );
+    verify( outboxRepository, times( 1 ) ).saveAll( outbox.capture() );
+    assertEquals( 1, outbox.getValue().size() );
+    assertEquals( new AttendeeFoodPreference( eventId, first.getAttendeeId(), FoodPreference.VEGAN ),
+      outbox.getValue().get( 0 ).toPreference() );
+  }
+
+  @Test
+  @DisplayName( "should take the seats of the events in the order of their ids, whatever order the batch is in" )
+  public void shouldReserveSeatsInEventOrder() {
+    final UUID firstEventId = UUID.fromString( "00000000-0000-0000-0000-000000000001" );
+    final UUID secondEventId = UUID.fromString( "00000000-0000-0000-0000-000000000002" );
+    final QueuedRegistration jane =
+      new QueuedRegistration( UUID.randomUUID(), secondEventId, "Jane", FoodPreference.VEGAN );
+    final QueuedRegistration john =
+      new QueuedRegistration( UUID.randomUUID(), firstEventId, "John", FoodPreference.MEAT );
+
+    when( eventRepository.reserveSeats( any(), eq( 1 ), eq( LocalDate.now() ) ) ).thenReturn( Optional.empty() );
+
+    final EventRegistrationService service = new EventRegistrationService( eventRepository, events,
+      attendeeRepository, eventSeats, uuidGeneratorService, outboxRepository, registrationGateway );
+    assertEquals( new BatchRegistrationResult( List.of( john, jane ), List.of() ),
+      service.registerAll( List.of( jane, john ) ) );
+
+    final InOrder inOrder = inOrder( eventRepository );
+    inOrder.verify( eventRepository, times( 1 ) ).reserveSeats( firstEventId, 1, LocalDate.now() );
+    inOrder.verify( eventRepository, times( 1 ) ).reserveSeats( secondEventId, 1, LocalDate.now() );
+    verify( attendeeRepository, times( 1 ) ).findExistingIds( List.of( jane.getAttendeeId(), john.getAttendeeId() ) );
+    verify( attendeeRepository, times( 1 ) ).saveAll( List.of() );
+    verify( outboxRepository, times( 1 ) ).saveAll( List.of() );
+  }
+
+  @Test
+  @DisplayName( "should reject the queued registrations of an event cached as missing or expired without its seats" )
+  public void shouldRejectBatchOfClosedEvent() {
+    final UUID eventId = UUID.randomUUID();
+    final QueuedRegistration registration =
+      new QueuedRegistration( UUID.randomUUID(), eventId, "Jane", FoodPreference.VEGAN );
+
+    when( events.isOpen( eventId ) ).thenReturn( false );
+
+    final EventRegistrationService service = new EventRegistrationService( eventRepository, events,
+      attendeeRepository, eventSeats, uuidGeneratorService, outboxRepository, registrationGateway );
+    assertEquals( new BatchRegistrationResult( List.of( registration ), List.of() ),
+      service.registerAll( List.of( registration ) ) );
+    verify( attendeeRepository, times( 1 ) ).findExistingIds( List.of( registration.getAttendeeId() ) );
+    verify( attendeeRepository, times( 1 ) ).saveAll( List.of() );
+    verify( outboxRepository, times( 1 ) ).saveAll( List.of() );
   }
 }
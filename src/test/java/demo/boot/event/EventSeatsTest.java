@@ -0,0 +1,68 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName( "Event seats" )
+public class EventSeatsTest {
+
+  private final EventMetadataCache events = mock( EventMetadataCache.class );
+
+  @Test
+  @DisplayName( "should let through as many registrations as the database reported seats left" )
+  public void shouldAdmitRemainingSeats() {
+    final UUID eventId = event( LocalDate.now().plusDays( 7 ) );
+
+    final EventSeats subject = new EventSeats( events, Duration.ofMinutes( 1 ) );
+    assertThat( subject.tryAcquire( eventId ) ).isTrue();
+    subject.reserved( eventId, 1 );
+
+    assertThat( subject.tryAcquire( eventId ) ).isTrue();
+    assertThat( subject.tryAcquire( eventId ) ).isFalse();
+  }
+
+  @Test
+  @DisplayName( "should turn registrations away once fully booked, until the time to live passes" )
+  public void shouldForgetFullyBookedAfterTimeToLive() {
+    final UUID eventId = event( LocalDate.now().plusDays( 7 ) );
+
+    final EventSeats remembering = new EventSeats( events, Duration.ofMinutes( 1 ) );
+    remembering.fullyBooked( eventId );
+    assertThat( remembering.tryAcquire( eventId ) ).isFalse();
+
+    final EventSeats forgetting = new EventSeats( events, Duration.ZERO );
+    forgetting.fullyBooked( eventId );
+    assertThat( forgetting.tryAcquire( eventId ) ).isTrue();
+  }
+
+  @Test
+  @DisplayName( "should not keep the seats of an event that no longer takes registrations or does not exist" )
+  public void shouldForgetClosedEvents() {
+    final UUID closed = event( LocalDate.now() );
+    final UUID missing = UUID.randomUUID();
+    when( events.find( missing ) ).thenReturn( Optional.empty() );
+
+    final EventSeats subject = new EventSeats( events, Duration.ofMinutes( 1 ) );
+    subject.fullyBooked( closed );
+    subject.fullyBooked( missing );
+
+    assertThat( subject.tryAcquire( closed ) ).isTrue();
+    assertThat( subject.tryAcquire( missing ) ).isTrue();
+  }
+
+  private UUID event( final LocalDate date ) {
+    final UUID eventId = UUID.randomUUID();
+    when( events.find( eventId ) ).thenReturn( Optional.of(
+      new EventMetadata( eventId, "ThoughtWorks Cologne", date, "Spring Boot", "Deep dive", 10 ) ) );
+    return eventId;
+  }
+}
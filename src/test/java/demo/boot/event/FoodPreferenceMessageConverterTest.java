@@ -0,0 +1,80 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName( "Food preference message converter" )
+public class FoodPreferenceMessageConverterTest {
+
+  private final FoodPreferenceMessageConverter subject = new FoodPreferenceMessageConverter();
+
+  @Test
+  @DisplayName( "should encode the preference in 33 bytes and decode it back" )
+  public void shouldRoundTrip() {
+    for ( final FoodPreference foodPreference : FoodPreference.values() ) {
+      final AttendeeFoodPreference preference =
+        new AttendeeFoodPreference( UUID.randomUUID(), UUID.randomUUID(), foodPreference );
+
+      final Message message = subject.toMessage( preference, new MessageProperties() );
+
+      assertThat( message.getBody() ).hasSize( 33 );
+      assertThat( message.getMessageProperties().getContentType() )
+        .isEqualTo( FoodPreferenceMessageConverter.CONTENT_TYPE );
+      assertThat( subject.fromMessage( message ) ).isEqualTo( preference );
+    }
+  }
+
+  @Test
+  @DisplayName( "should encode a missing preference as a reserved byte and decode it back to none" )
+  public void shouldRoundTripWithoutPreference() {
+    final AttendeeFoodPreference preference = new AttendeeFoodPreference( UUID.randomUUID(), UUID.randomUUID(), null );
+
+    final Message message = subject.toMessage( preference, new MessageProperties() );
+
+    assertThat( message.getBody() ).hasSize( 33 );
+    assertThat( message.getBody()[32] ).isEqualTo( FoodPreferenceMessageConverter.NO_FOOD_PREFERENCE );
+    assertThat( subject.fromMessage( message ) ).isEqualTo( preference );
+  }
+
+  @Test
+  @DisplayName( "should reject messages that are not food preferences" )
+  public void shouldRejectOtherMessages() {
+    assertThatThrownBy( () -> subject.toMessage( "Albert Attard", new MessageProperties() ) )
+      .isInstanceOf( MessageConversionException.class );
+    assertThatThrownBy( () -> subject.fromMessage( new Message( new byte[32], new MessageProperties() ) ) )
+      .isInstanceOf( MessageConversionException.class );
+
+    final byte[] unknown = new byte[33];
+    unknown[32] = (byte) FoodPreference.values().length;
+    assertThatThrownBy( () -> subject.fromMessage( new Message( unknown, new MessageProperties() ) ) )
+      .isInstanceOf( MessageConversionException.class );
+  }
+
+  @Test
+  @DisplayName( "should read both JSON and binary messages, and send them as configured" )
+  public void shouldSelectByContentType() {
+    final AttendeeFoodPreference preference =
+      new AttendeeFoodPreference( UUID.randomUUID(), UUID.randomUUID(), FoodPreference.VEGAN );
+    final MessageConverter jsonSender = new MessageQueueConfiguration().messageConverter( "json" );
+    final MessageConverter binarySender = new MessageQueueConfiguration().messageConverter( "binary" );
+
+    final Message json = jsonSender.toMessage( preference, new MessageProperties() );
+    final Message binary = binarySender.toMessage( preference, new MessageProperties() );
+
+    assertThat( json.getMessageProperties().getContentType() ).isEqualTo( MessageProperties.CONTENT_TYPE_JSON );
+    assertThat( binary.getBody() ).hasSize( 33 );
+    assertThat( jsonSender.fromMessage( binary ) ).isEqualTo( preference );
+    assertThat( binarySender.fromMessage( json ) ).isEqualTo( preference );
+    assertThat( new Jackson2JsonMessageConverter().fromMessage( json ) ).isEqualTo( preference );
+  }
+}
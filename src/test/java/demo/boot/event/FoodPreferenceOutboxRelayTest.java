@@ -0,0 +1,173 @@
+package demo.boot.event;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName( "Food preference outbox relay" )
+public class FoodPreferenceOutboxRelayTest {
+
+  private final MockClock clock = new MockClock();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry( SimpleConfig.DEFAULT, clock );
+  private final FoodPreferenceOutboxRepository repository = mock( FoodPreferenceOutboxRepository.class );
+  private final EventFoodGateway gateway = mock( EventFoodGateway.class );
+  private final PlatformTransactionManager transactionManager = mock( PlatformTransactionManager.class );
+  private final TransactionStatus status = mock( TransactionStatus.class );
+
+  private FoodPreferenceOutboxEntity entry( final long id ) {
+    return new FoodPreferenceOutboxEntity( id, UUID.randomUUID(), UUID.randomUUID(), FoodPreference.VEGAN,
+      Instant.ofEpochMilli( clock.wallTime() ), 0, null );
+  }
+
+  @Test
+  @DisplayName( "should publish and delete the batches until one is not full" )
+  public void shouldDrainInBatches() {
+    final List<FoodPreferenceOutboxEntity> first = List.of( entry( 1 ), entry( 2 ) );
+    final List<FoodPreferenceOutboxEntity> second = List.of( entry( 3 ) );
+    when( repository.lockOldest( 2 ) ).thenReturn( first ).thenReturn( second );
+    when( gateway.submitAll( any() ) ).thenReturn( new FoodPublishResult( List.of(), List.of() ) );
+    clock.add( Duration.ofMillis( 40 ) );
+
+    when( transactionManager.getTransaction( any() ) ).thenReturn( status );
+    final FoodPreferenceOutboxRelay relay =
+      new FoodPreferenceOutboxRelay( repository, gateway, transactionManager, registry, 2, 2 );
+    relay.relay();
+
+    verify( repository, times( 2 ) ).lockOldest( 2 );
+    verify( gateway, times( 1 ) )
+      .submitAll( List.of( first.get( 0 ).toPreference(), first.get( 1 ).toPreference() ) );
+    verify( gateway, times( 1 ) ).submitAll( List.of( second.get( 0 ).toPreference() ) );
+    verify( repository, times( 1 ) ).deleteInBatch( first );
+    verify( repository, times( 1 ) ).deleteInBatch( second );
+    verify( transactionManager, times( 2 ) ).commit( status );
+
+    assertThat( registry.counter( "app.food.outbox.published" ).count() ).isEqualTo( 3D );
+    assertThat( registry.timer( "app.food.outbox.lag" ).count() ).isEqualTo( 3L );
+    assertThat( registry.timer( "app.food.outbox.lag" ).max( TimeUnit.MILLISECONDS ) ).isEqualTo( 40D );
+  }
+
+  @Test
+  @DisplayName( "should delete only the confirmed preferences and charge the failed ones, left for the next run" )
+  public void shouldKeepUnconfirmedPreferences() {
+    final FoodPreferenceOutboxEntity confirmed = entry( 1 );
+    final FoodPreferenceOutboxEntity unconfirmed = entry( 2 );
+    when( repository.lockOldest( 2 ) ).thenReturn( List.of( confirmed, unconfirmed ) );
+    when( gateway.submitAll( any() ) ).thenAnswer( invocation -> {
+      final List<AttendeeFoodPreference> preferences = invocation.getArgument( 0 );
+      return new FoodPublishResult( List.of( preferences.get( 1 ) ), List.of() );
+    } );
+
+    when( transactionManager.getTransaction( any() ) ).thenReturn( status );
+    final FoodPreferenceOutboxRelay relay =
+      new FoodPreferenceOutboxRelay( repository, gateway, transactionManager, registry, 2, 2 );
+    relay.relay();
+
+    verify( repository, times( 1 ) ).lockOldest( 2 );
+    verify( repository, times( 1 ) ).deleteInBatch( List.of( confirmed ) );
+    verify( transactionManager, times( 1 ) ).commit( status );
+    assertThat( registry.counter( "app.food.outbox.published" ).count() ).isEqualTo( 1D );
+    assertThat( registry.counter( "app.food.outbox.failures" ).count() ).isEqualTo( 1D );
+    assertThat( unconfirmed.getAttempts() ).isEqualTo( 1 );
+    assertThat( unconfirmed.getParkedAt() ).isNull();
+  }
+
+  @Test
+  @DisplayName( "should park a preference once it failed the maximum times while the others were confirmed" )
+  public void shouldParkPoisonPreference() {
+    final FoodPreferenceOutboxEntity poison = entry( 1 );
+    poison.setAttempts( 1 );
+    when( repository.lockOldest( 2 ) ).thenReturn( List.of( poison, entry( 2 ) ) );
+    when( gateway.submitAll( any() ) ).thenAnswer( invocation -> {
+      final List<AttendeeFoodPreference> preferences = invocation.getArgument( 0 );
+      return new FoodPublishResult( List.of( preferences.get( 0 ) ), List.of() );
+    } );
+
+    when( transactionManager.getTransaction( any() ) ).thenReturn( status );
+    final FoodPreferenceOutboxRelay relay =
+      new FoodPreferenceOutboxRelay( repository, gateway, transactionManager, registry, 2, 2 );
+    relay.relay();
+
+    assertThat( poison.getAttempts() ).isEqualTo( 2 );
+    assertThat( poison.getParkedAt() ).isEqualTo( Instant.ofEpochMilli( clock.wallTime() ) );
+    assertThat( registry.counter( "app.food.outbox.parked" ).count() ).isEqualTo( 1D );
+  }
+
+  @Test
+  @DisplayName( "should park a preference that fails on its own, as when it is alone at the head of the outbox" )
+  public void shouldParkLonePoisonPreference() {
+    final FoodPreferenceOutboxEntity poison = entry( 1 );
+    poison.setAttempts( 1 );
+    when( repository.lockOldest( 2 ) ).thenReturn( List.of( poison ) );
+    when( gateway.submitAll( any() ) )
+      .thenAnswer( invocation -> new FoodPublishResult( invocation.getArgument( 0 ), List.of() ) );
+
+    when( transactionManager.getTransaction( any() ) ).thenReturn( status );
+    final FoodPreferenceOutboxRelay relay =
+      new FoodPreferenceOutboxRelay( repository, gateway, transactionManager, registry, 2, 2 );
+    relay.relay();
+
+    verify( repository, times( 1 ) ).deleteInBatch( List.of() );
+    assertThat( poison.getAttempts() ).isEqualTo( 2 );
+    assertThat( poison.getParkedAt() ).isEqualTo( Instant.ofEpochMilli( clock.wallTime() ) );
+    assertThat( registry.counter( "app.food.outbox.parked" ).count() ).isEqualTo( 1D );
+  }
+
+  @Test
+  @DisplayName( "should not charge an attempt when the broker did not confirm in time, as the broker is in trouble" )
+  public void shouldNotChargeWhenUnanswered() {
+    final FoodPreferenceOutboxEntity entry = entry( 1 );
+    entry.setAttempts( 1 );
+    when( repository.lockOldest( 2 ) ).thenReturn( List.of( entry ) );
+    when( gateway.submitAll( any() ) )
+      .thenAnswer( invocation -> new FoodPublishResult( List.of(), invocation.getArgument( 0 ) ) );
+
+    when( transactionManager.getTransaction( any() ) ).thenReturn( status );
+    final FoodPreferenceOutboxRelay relay =
+      new FoodPreferenceOutboxRelay( repository, gateway, transactionManager, registry, 2, 2 );
+    relay.relay();
+
+    assertThat( entry.getAttempts() ).isEqualTo( 1 );
+    assertThat( entry.getParkedAt() ).isNull();
+    assertThat( registry.counter( "app.food.outbox.parked" ).count() ).isEqualTo( 0D );
+  }
+
+  @Test
+  @DisplayName( "should keep the preferences in the outbox when they cannot be published" )
+  public void shouldKeepPreferencesOnFailure() {
+    final List<FoodPreferenceOutboxEntity> batch = List.of( entry( 1 ) );
+    when( repository.lockOldest( 10 ) ).thenReturn( batch );
+    doThrow( new AmqpException( "Broker unavailable" ) ).when( gateway ).submitAll( any() );
+
+    when( transactionManager.getTransaction( any() ) ).thenReturn( status );
+    final FoodPreferenceOutboxRelay relay =
+      new FoodPreferenceOutboxRelay( repository, gateway, transactionManager, registry, 10, 2 );
+    assertThatThrownBy( relay::relay ).isInstanceOf( AmqpException.class );
+
+    verify( repository, never() ).deleteInBatch( any() );
+    verify( transactionManager, times( 1 ) ).rollback( status );
+    verify( transactionManager, never() ).commit( any() );
+    assertThat( registry.counter( "app.food.outbox.failures" ).count() ).isEqualTo( 1D );
+    assertThat( registry.counter( "app.food.outbox.published" ).count() ).isEqualTo( 0D );
+  }
+}
@@ -0,0 +1,79 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@DisplayName( "Food summaries" )
+public class FoodSummariesTest {
+
+  private final FoodSummaryRepository repository = mock( FoodSummaryRepository.class );
+  private final FoodSummaries subject = new FoodSummaries( repository );
+
+  @Test
+  @DisplayName( "should checkpoint each attendee once per batch and serve the counted events from memory" )
+  public void shouldCountFromMemory() {
+    final UUID event = UUID.randomUUID();
+    final UUID attendee = UUID.randomUUID();
+    final AttendeeFoodPreference preference = new AttendeeFoodPreference( event, attendee, FoodPreference.VEGAN );
+
+    when( repository.checkpoint( anyString(), anyString(), anyString() ) )
+      .thenReturn( List.of( new FoodSummaryEntity( event, FoodPreference.VEGAN, 3 ) ) );
+    when( repository.findAllByEventId( event ) )
+      .thenReturn( List.of(
+        new FoodSummaryEntity( event, FoodPreference.VEGAN, 3 ),
+        new FoodSummaryEntity( event, FoodPreference.MEAT, 2 )
+      ) );
+
+    subject.checkpoint( List.of( preference, preference ) );
+
+    final FoodSummary summary = subject.of( event );
+    assertThat( summary.getAttendees() ).isEqualTo( 5 );
+    assertThat( summary.getFoodPreferences() ).isEqualTo( Map.of(
+      FoodPreference.NO_FOOD, 0,
+      FoodPreference.VEGETARIAN, 0,
+      FoodPreference.VEGAN, 3,
+      FoodPreference.MEAT, 2
+    ) );
+    subject.of( event );
+
+    verify( repository, times( 1 ) ).checkpoint( attendee.toString(), event.toString(), "VEGAN" );
+    verify( repository, times( 1 ) ).findAllByEventId( event );
+    verifyNoMoreInteractions( repository );
+  }
+
+  @Test
+  @DisplayName( "should read the events not counted by this node from their last checkpoint" )
+  public void shouldReadFromCheckpoint() {
+    final UUID event = UUID.randomUUID();
+    when( repository.findAllByEventId( event ) )
+      .thenReturn( List.of( new FoodSummaryEntity( event, FoodPreference.MEAT, 1 ) ) );
+
+    assertThat( subject.of( event ).getAttendees() ).isEqualTo( 1 );
+    assertThat( subject.of( event ).getAttendees() ).isEqualTo( 1 );
+
+    verify( repository, times( 2 ) ).findAllByEventId( event );
+    verify( repository, times( 0 ) ).checkpoint( any(), any(), any() );
+  }
+
+  @Test
+  @DisplayName( "should not checkpoint a batch without valid preferences" )
+  public void shouldSkipEmptyBatch() {
+    subject.checkpoint( List.of( new AttendeeFoodPreference( UUID.randomUUID(), null, FoodPreference.MEAT ) ) );
+
+    verifyNoInteractions( repository );
+  }
+}
@@ -0,0 +1,43 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.listener.ListenerContainerConsumerFailedEvent;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName( "Food summary aggregator" )
+public class FoodSummaryAggregatorTest {
+
+  private final FoodSummaries summaries = mock( FoodSummaries.class );
+  private final RabbitListenerEndpointRegistry listeners = mock( RabbitListenerEndpointRegistry.class );
+  private final MessageListenerContainer container = mock( MessageListenerContainer.class );
+
+  @Test
+  @DisplayName( "should forget what was counted when its own consumer failed" )
+  public void shouldForgetWhenOwnConsumerFailed() {
+    when( listeners.getListenerContainer( FoodSummaryAggregator.LISTENER_ID ) ).thenReturn( container );
+
+    new FoodSummaryAggregator( summaries, listeners )
+      .consumerFailed( new ListenerContainerConsumerFailedEvent( container, "Consumer lost", null, false ) );
+
+    verify( summaries, times( 1 ) ).forget();
+  }
+
+  @Test
+  @DisplayName( "should keep what was counted when the consumer of another listener failed" )
+  public void shouldKeepWhenOtherConsumerFailed() {
+    when( listeners.getListenerContainer( FoodSummaryAggregator.LISTENER_ID ) ).thenReturn( container );
+
+    new FoodSummaryAggregator( summaries, listeners ).consumerFailed(
+      new ListenerContainerConsumerFailedEvent( mock( MessageListenerContainer.class ), "Consumer lost", null, false ) );
+
+    verify( summaries, never() ).forget();
+  }
+}
@@ -0,0 +1,49 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DisplayName( "Food summary controller" )
+@WebMvcTest( FoodSummaryController.class )
+public class FoodSummaryControllerTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private FoodSummaries summaries;
+
+  @Test
+  @DisplayName( "should return the number of attendees per food preference" )
+  public void shouldReturnSummary() throws Exception {
+    final UUID eventId = UUID.randomUUID();
+    final Map<FoodPreference, Integer> foodPreferences = new EnumMap<>( FoodPreference.class );
+    foodPreferences.put( FoodPreference.VEGAN, 3 );
+    foodPreferences.put( FoodPreference.MEAT, 2 );
+
+    when( summaries.of( eventId ) ).thenReturn( new FoodSummary( eventId, 5, foodPreferences ) );
+
+    mockMvc
+      .perform( get( "/event/{eventId}/food-summary", eventId ) )
+      .andExpect( status().isOk() )
+      .andExpect( jsonPath( "$.eventId", is( eventId.toString() ) ) )
+      .andExpect( jsonPath( "$.attendees", is( 5 ) ) )
+      .andExpect( jsonPath( "$.foodPreferences.VEGAN", is( 3 ) ) )
+      .andExpect( jsonPath( "$.foodPreferences.MEAT", is( 2 ) ) )
+    ;
+  }
+}
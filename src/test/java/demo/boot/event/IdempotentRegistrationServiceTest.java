@@ -0,0 +1,128 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@DisplayName( "Idempotent registration service" )
+public class IdempotentRegistrationServiceTest {
+
+  private final EventRegistrationService service = mock( EventRegistrationService.class );
+  private final EventAttendeeRepository attendeeRepository = mock( EventAttendeeRepository.class );
+  private final IdempotentRegistrationService subject =
+    new IdempotentRegistrationService( service, attendeeRepository, 100, Duration.ofMinutes( 1 ) );
+
+  private final UUID eventId = UUID.randomUUID();
+  private final UUID attendeeId = UUID.randomUUID();
+  private final RegistrationDetails details = new RegistrationDetails( eventId, "Albert Attard", FoodPreference.MEAT );
+
+  @AfterEach
+  public void tearDown() {
+    verifyNoMoreInteractions( service, attendeeRepository );
+  }
+
+  @Test
+  @DisplayName( "should replay the confirmation of a retry without registering again" )
+  public void shouldReplayRetry() {
+    when( service.register( details, "retry-1" ) )
+      .thenReturn( Optional.of( new RegistrationConfirmation( attendeeId ) ) );
+
+    assertThat( subject.register( details, "retry-1" ) ).contains( new RegistrationConfirmation( attendeeId ) );
+    assertThat( subject.register( details, "retry-1" ) ).contains( new RegistrationConfirmation( attendeeId ) );
+
+    verify( service, times( 1 ) ).register( details, "retry-1" );
+  }
+
+  @Test
+  @DisplayName( "should return the attendee registered the first time when the database turns the retry away" )
+  public void shouldLookUpRegisteredAttendee() {
+    when( service.register( details, "retry-1" ) ).thenThrow( new DataIntegrityViolationException( "Duplicate" ) );
+    when( attendeeRepository.findIdByIdempotencyKey( eventId, "retry-1" ) ).thenReturn( Optional.of( attendeeId ) );
+
+    assertThat( subject.register( details, "retry-1" ) ).contains( new RegistrationConfirmation( attendeeId ) );
+    assertThat( subject.register( details, "retry-1" ) ).contains( new RegistrationConfirmation( attendeeId ) );
+
+    verify( service, times( 1 ) ).register( details, "retry-1" );
+    verify( attendeeRepository, times( 1 ) ).findIdByIdempotencyKey( eventId, "retry-1" );
+  }
+
+  @Test
+  @DisplayName( "should fail as the registration did when no attendee was registered with the key" )
+  public void shouldRethrowWhenNotRegistered() {
+    when( service.register( details, "retry-1" ) ).thenThrow( new EventFullyBookedException( eventId ) );
+    when( attendeeRepository.findIdByIdempotencyKey( eventId, "retry-1" ) ).thenReturn( Optional.empty() );
+
+    assertThatThrownBy( () -> subject.register( details, "retry-1" ) ).isInstanceOf( EventFullyBookedException.class );
+
+    verify( service, times( 1 ) ).register( details, "retry-1" );
+    verify( attendeeRepository, times( 1 ) ).findIdByIdempotencyKey( eventId, "retry-1" );
+  }
+
+  @Test
+  @DisplayName( "should enqueue a registration once per idempotency key" )
+  public void shouldEnqueueOnce() {
+    when( attendeeRepository.findIdByIdempotencyKey( eventId, "retry-1" ) ).thenReturn( Optional.empty() );
+    when( service.enqueue( details, "retry-1" ) ).thenReturn( new RegistrationConfirmation( attendeeId ) );
+
+    assertThat( subject.enqueue( details, "retry-1" ) ).isEqualTo( new RegistrationConfirmation( attendeeId ) );
+    assertThat( subject.enqueue( details, "retry-1" ) ).isEqualTo( new RegistrationConfirmation( attendeeId ) );
+
+    verify( attendeeRepository, times( 1 ) ).findIdByIdempotencyKey( eventId, "retry-1" );
+    verify( service, times( 1 ) ).enqueue( details, "retry-1" );
+  }
+
+  @Test
+  @DisplayName( "should tell a retry that comes while the registration is being queued that it is in progress" )
+  public void shouldRejectRetryWhileEnqueueing() {
+    when( attendeeRepository.findIdByIdempotencyKey( eventId, "retry-1" ) ).thenReturn( Optional.empty() );
+    when( service.enqueue( details, "retry-1" ) ).thenAnswer( invocation -> {
+      assertThatThrownBy( () -> subject.enqueue( details, "retry-1" ) )
+        .isInstanceOf( RegistrationInProgressException.class );
+      return new RegistrationConfirmation( attendeeId );
+    } );
+
+    assertThat( subject.enqueue( details, "retry-1" ) ).isEqualTo( new RegistrationConfirmation( attendeeId ) );
+
+    verify( attendeeRepository, times( 1 ) ).findIdByIdempotencyKey( eventId, "retry-1" );
+    verify( service, times( 1 ) ).enqueue( details, "retry-1" );
+  }
+
+  @Test
+  @DisplayName( "should queue a retry again when the registration it retries was not queued" )
+  public void shouldEnqueueAgainWhenNotQueued() {
+    when( attendeeRepository.findIdByIdempotencyKey( eventId, "retry-1" ) ).thenReturn( Optional.empty() );
+    when( service.enqueue( details, "retry-1" ) )
+      .thenThrow( new RegistrationNotQueuedException( attendeeId, "timeout" ) )
+      .thenReturn( new RegistrationConfirmation( attendeeId ) );
+
+    assertThatThrownBy( () -> subject.enqueue( details, "retry-1" ) )
+      .isInstanceOf( RegistrationNotQueuedException.class );
+    assertThat( subject.enqueue( details, "retry-1" ) ).isEqualTo( new RegistrationConfirmation( attendeeId ) );
+
+    verify( attendeeRepository, times( 2 ) ).findIdByIdempotencyKey( eventId, "retry-1" );
+    verify( service, times( 2 ) ).enqueue( details, "retry-1" );
+  }
+
+  @Test
+  @DisplayName( "should return the attendee registered the first time to a queued retry that missed the cache" )
+  public void shouldLookUpRegisteredAttendeeWhenEnqueueing() {
+    when( attendeeRepository.findIdByIdempotencyKey( eventId, "retry-1" ) ).thenReturn( Optional.of( attendeeId ) );
+
+    assertThat( subject.enqueue( details, "retry-1" ) ).isEqualTo( new RegistrationConfirmation( attendeeId ) );
+
+    verify( attendeeRepository, times( 1 ) ).findIdByIdempotencyKey( eventId, "retry-1" );
+  }
+}
@@ -0,0 +1,75 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName( "Striped seat counter" )
+public class StripedSeatCounterTest {
+
+  @Test
+  @DisplayName( "should spread the seats over the stripes and hand out each seat once" )
+  public void shouldHandOutEachSeatOnce() {
+    final StripedSeatCounter subject = new StripedSeatCounter( 5, 4 );
+    assertThat( subject.available() ).isEqualTo( 5 );
+
+    for ( int i = 0; i < 5; i++ ) {
+      assertThat( subject.tryAcquire() ).isTrue();
+    }
+    assertThat( subject.tryAcquire() ).isFalse();
+
+    subject.release();
+    assertThat( subject.tryAcquire() ).isTrue();
+    assertThat( subject.available() ).isEqualTo( 0 );
+  }
+
+  @Test
+  @DisplayName( "should not hand out any seat once drained" )
+  public void shouldDrain() {
+    final StripedSeatCounter subject = new StripedSeatCounter( 100, 8 );
+    subject.drain();
+
+    assertThat( subject.tryAcquire() ).isFalse();
+    assertThat( subject.available() ).isEqualTo( 0 );
+  }
+
+  @Test
+  @DisplayName( "should never hand out more seats than it has when many threads compete for them" )
+  public void shouldNotOversell() throws Exception {
+    final int numberOfThreads = 16;
+    final StripedSeatCounter subject = new StripedSeatCounter( 1000, 8 );
+    final CyclicBarrier barrier = new CyclicBarrier( numberOfThreads );
+    final AtomicInteger acquired = new AtomicInteger();
+
+    final List<Thread> threads = new ArrayList<>();
+    for ( int i = 0; i < numberOfThreads; i++ ) {
+      final Thread thread = new Thread( () -> {
+        try {
+          barrier.await();
+          for ( int j = 0; j < 100; j++ ) {
+            if ( subject.tryAcquire() ) {
+              acquired.incrementAndGet();
+            }
+          }
+        } catch ( final Exception e ) {
+          throw new RuntimeException( e );
+        }
+      } );
+      thread.start();
+      threads.add( thread );
+    }
+
+    for ( final Thread thread : threads ) {
+      thread.join();
+    }
+
+    assertThat( acquired.get() ).isEqualTo( 1000 );
+    assertThat( subject.available() ).isEqualTo( 0 );
+  }
+}
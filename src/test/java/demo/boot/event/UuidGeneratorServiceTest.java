@@ -0,0 +1,53 @@
+package demo.boot.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName( "UUID generator service" )
+public class UuidGeneratorServiceTest {
+
+  @Test
+  @DisplayName( "should generate random ids unless configured otherwise" )
+  public void shouldGenerateRandomIds() {
+    assertThat( new UuidGeneratorService( "random" ).nextAttendeeId().version() ).isEqualTo( 4 );
+  }
+
+  @Test
+  @DisplayName( "should generate version 7 ids that start with the current time in milliseconds" )
+  public void shouldGenerateTimeOrderedIds() {
+    final long before = System.currentTimeMillis();
+    final UUID id = new UuidGeneratorService( "time-ordered" ).nextAttendeeId();
+    final long after = System.currentTimeMillis();
+
+    assertThat( id.version() ).isEqualTo( 7 );
+    assertThat( id.variant() ).isEqualTo( 2 );
+    assertThat( id.getMostSignificantBits() >>> 16 ).isBetween( before, after );
+  }
+
+  @Test
+  @DisplayName( "should order the ids by the time they were generated, as the database compares them" )
+  public void shouldOrderByTime() {
+    final UUID earlier = UuidGeneratorService.timeOrdered( 1_600_000_000_000L );
+    final UUID later = UuidGeneratorService.timeOrdered( 1_600_000_000_001L );
+
+    /* Compared as unsigned bytes, as the string form is */
+    assertThat( earlier.toString() ).isLessThan( later.toString() );
+  }
+
+  @Test
+  @DisplayName( "should not repeat ids generated within the same millisecond" )
+  public void shouldNotRepeatIds() {
+    final Set<UUID> ids = new HashSet<>();
+    for ( int i = 0; i < 100_000; i++ ) {
+      ids.add( UuidGeneratorService.timeOrdered( 1_600_000_000_000L ) );
+    }
+
+    assertThat( ids ).hasSize( 100_000 );
+  }
+}
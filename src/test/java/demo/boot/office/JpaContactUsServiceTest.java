@@ -2,9 +2,13 @@ package demo.boot.office;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.eq;
@@ -18,28 +22,26 @@ import static org.mockito.Mockito.when;
 @DisplayName( "JPA contact us service" )
 public class JpaContactUsServiceTest {
 
+  private final EntityManager entityManager = mock( EntityManager.class );
+
   @Test
   @DisplayName( "should return all offices returned by the repository" )
   public void shouldReturnOffices() {
-    final List<OfficeEntity> entities = List.of(
-      new OfficeEntity( "a1", "a2", "a3", "a4", "a5", "a6" ),
-      new OfficeEntity( "b1", "b2", "b3", "b4", "b5", "b6" )
+    final List<Office> expected = List.of(
+      new Office( "a1", "a2", "a4", "a5" ),
+      new Office( "b1", "b2", "b4", "b5" )
     );
 
     final OfficesRepository repository = mock( OfficesRepository.class );
-    when( repository.findAll() ).thenReturn( entities );
+    when( repository.findAllOffices() ).thenReturn( expected );
 
-    final ContactUsService service = new JpaContactUsService( repository );
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
     final List<Office> offices = service.list();
 
-    final List<Office> expected = List.of(
-      new Office( "a1", "a2", "a4", "a5" ),
-      new Office( "b1", "b2", "b4", "b5" )
-    );
-
     assertEquals( expected, offices );
 
-    verify( repository, times( 1 ) ).findAll();
+    verify( repository, times( 1 ) ).findAllOffices();
+    verifyNoMoreInteractions( repository );
   }
 
   @Test
@@ -50,7 +52,7 @@ public class JpaContactUsServiceTest {
     final OfficesRepository repository = mock( OfficesRepository.class );
     when( repository.findById( eq( id ) ) ).thenReturn( Optional.empty() );
 
-    final ContactUsService service = new JpaContactUsService( repository );
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
     final Optional<Office> office = service.findOneByName( id );
 
     assertEquals( Optional.empty(), office );
@@ -67,7 +69,7 @@ public class JpaContactUsServiceTest {
     final OfficesRepository repository = mock( OfficesRepository.class );
     when( repository.findById( eq( id ) ) ).thenReturn( Optional.of( entity ) );
 
-    final ContactUsService service = new JpaContactUsService( repository );
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
     final Optional<Office> office = service.findOneByName( id );
 
     final Optional<Office> expected = Optional.of( new Office( "a1", "a2", "a4", "a5" ) );
@@ -79,27 +81,23 @@ public class JpaContactUsServiceTest {
   @Test
   @DisplayName( "should return all offices in a given country" )
   public void shouldReturnOfficesInACountry() {
-    final List<OfficeEntity> entities = List.of(
-      new OfficeEntity( "a1", "a2", "a3", "a4", "a5", "a6" ),
-      new OfficeEntity( "b1", "b2", "b3", "b4", "b5", "b6" )
+    final List<Office> expected = List.of(
+      new Office( "a1", "a2", "a4", "a5" ),
+      new Office( "b1", "b2", "b4", "b5" )
     );
 
     final String country = "Germany";
 
     final OfficesRepository repository = mock( OfficesRepository.class );
-    when( repository.findAllByCountryIgnoreCase( eq( country ) ) ).thenReturn( entities );
+    when( repository.findAllOfficesInCountry( eq( country ) ) ).thenReturn( expected );
 
-    final ContactUsService service = new JpaContactUsService( repository );
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
     final List<Office> offices = service.findAllInCountry( country );
 
-    final List<Office> expected = List.of(
-      new Office( "a1", "a2", "a4", "a5" ),
-      new Office( "b1", "b2", "b4", "b5" )
-    );
-
     assertEquals( expected, offices );
 
-    verify( repository, times( 1 ) ).findAllByCountryIgnoreCase( country );
+    verify( repository, times( 1 ) ).findAllOfficesInCountry( country );
+    verifyNoMoreInteractions( repository );
   }
 
   @Test
@@ -109,36 +107,55 @@ public class JpaContactUsServiceTest {
     final Office office = new Office( name, "a2", "a3", "a4" );
 
     final OfficesRepository repository = mock( OfficesRepository.class );
-    when( repository.findById( eq( name ) ) ).thenReturn( Optional.empty() );
+    when( repository.updateReturning( eq( name ), eq( "a2" ), eq( "a3" ), eq( "a4" ) ) ).thenReturn( Optional.empty() );
 
-    final ContactUsService service = new JpaContactUsService( repository );
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
     final Optional<Office> saved = service.update( office );
 
     assertEquals( Optional.empty(), saved );
 
-    verify( repository, times( 1 ) ).findById( name );
+    verify( repository, times( 1 ) ).updateReturning( name, "a2", "a3", "a4" );
     verifyNoMoreInteractions( repository );
   }
 
   @Test
-  @DisplayName( "should update the office and return the updated version" )
+  @DisplayName( "should update the office with a single statement and return the updated version" )
   public void shouldSaveOffice() {
     final String name = "a1";
     final Office office = new Office( name, "a2", "a4", "a5" );
-    final OfficeEntity existingEntity = new OfficeEntity( name, "o2", "o3", "o4", "o5", "o6" );
-    final OfficeEntity updatedEntity = new OfficeEntity( name, "a2", "o3", "a4", "a5", "o6" );
+    final OfficeEntity updatedEntity = new OfficeEntity( name, "a2", "o3", "a4", "a5", "o6", 4L );
 
     final OfficesRepository repository = mock( OfficesRepository.class );
-    when( repository.findById( eq( name ) ) ).thenReturn( Optional.of( existingEntity ) );
-    when( repository.save( eq( updatedEntity ) ) ).thenReturn( updatedEntity );
+    when( repository.updateReturning( eq( name ), eq( "a2" ), eq( "a4" ), eq( "a5" ) ) )
+      .thenReturn( Optional.of( updatedEntity ) );
 
-    final ContactUsService service = new JpaContactUsService( repository );
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
     final Optional<Office> saved = service.update( office );
 
     assertEquals( Optional.of( office ), saved );
+    assertEquals( 4L, (long) saved.get().getVersion() );
 
-    verify( repository, times( 1 ) ).findById( name );
-    verify( repository, times( 1 ) ).save( updatedEntity );
+    verify( repository, times( 1 ) ).updateReturning( name, "a2", "a4", "a5" );
+    verifyNoMoreInteractions( repository );
+  }
+
+  @Test
+  @DisplayName( "should only update the office when it is still at the version given" )
+  public void shouldSaveOfficeIfVersionMatches() {
+    final String name = "a1";
+    final Office office = new Office( name, "a2", "a4", "a5", 3L );
+
+    final OfficesRepository repository = mock( OfficesRepository.class );
+    when( repository.updateReturningIfVersion( eq( name ), eq( "a2" ), eq( "a4" ), eq( "a5" ), eq( 3L ) ) )
+      .thenReturn( Optional.empty() );
+
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
+    final Optional<Office> saved = service.update( office );
+
+    assertEquals( Optional.empty(), saved );
+
+    verify( repository, times( 1 ) ).updateReturningIfVersion( name, "a2", "a4", "a5", 3L );
+    verifyNoMoreInteractions( repository );
   }
 
   @Test
@@ -147,34 +164,144 @@ public class JpaContactUsServiceTest {
     final String name = "a1";
 
     final OfficesRepository repository = mock( OfficesRepository.class );
-    when( repository.findById( eq( name ) ) ).thenReturn( Optional.empty() );
+    when( repository.deleteReturning( eq( name ) ) ).thenReturn( Optional.empty() );
 
-    final ContactUsService service = new JpaContactUsService( repository );
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
     final Optional<Office> deleted = service.delete( name );
 
     assertEquals( Optional.empty(), deleted );
 
-    verify( repository, times( 1 ) ).findById( name );
+    verify( repository, times( 1 ) ).deleteReturning( name );
     verifyNoMoreInteractions( repository );
   }
 
   @Test
-  @DisplayName( "should delete the office and return the deleted office" )
+  @DisplayName( "should delete the office with a single statement and return the deleted office" )
   public void shouldDeleteOffice() {
     final String name = "a1";
     final Office office = new Office( name, "a2", "a4", "a5" );
     final OfficeEntity entity = new OfficeEntity( name, "a2", "a3", "a4", "a5", "a6" );
 
     final OfficesRepository repository = mock( OfficesRepository.class );
-    when( repository.findById( eq( name ) ) ).thenReturn( Optional.of( entity ) );
-    doNothing().when( repository ).delete( eq( entity ) );
+    when( repository.deleteReturning( eq( name ) ) ).thenReturn( Optional.of( entity ) );
 
-    final ContactUsService service = new JpaContactUsService( repository );
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
     final Optional<Office> deleted = service.delete( name );
 
     assertEquals( Optional.of( office ), deleted );
 
-    verify( repository, times( 1 ) ).findById( name );
-    verify( repository, times( 1 ) ).delete( entity );
+    verify( repository, times( 1 ) ).deleteReturning( name );
+    verifyNoMoreInteractions( repository );
+  }
+
+  @Test
+  @DisplayName( "should return the first page of offices when no office to start after is given" )
+  public void shouldReturnFirstPage() {
+    final List<OfficeEntity> entities = List.of(
+      new OfficeEntity( "a1", "a2", "a3", "a4", "a5", "a6" )
+    );
+
+    final OfficesRepository repository = mock( OfficesRepository.class );
+    when( repository.findAllByOrderByNameAsc( eq( PageRequest.of( 0, 2 ) ) ) ).thenReturn( entities );
+
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
+    final List<Office> offices = service.listAfter( null, 2 );
+
+    assertEquals( List.of( new Office( "a1", "a2", "a4", "a5" ) ), offices );
+
+    verify( repository, times( 1 ) ).findAllByOrderByNameAsc( PageRequest.of( 0, 2 ) );
+    verifyNoMoreInteractions( repository );
+  }
+
+  @Test
+  @DisplayName( "should return the page of offices that follow the given office" )
+  public void shouldReturnNextPage() {
+    final List<OfficeEntity> entities = List.of(
+      new OfficeEntity( "b1", "b2", "b3", "b4", "b5", "b6" )
+    );
+
+    final OfficesRepository repository = mock( OfficesRepository.class );
+    when( repository.findAllByNameGreaterThanOrderByNameAsc( eq( "a1" ), eq( PageRequest.of( 0, 2 ) ) ) )
+      .thenReturn( entities );
+
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
+    final List<Office> offices = service.listAfter( "a1", 2 );
+
+    assertEquals( List.of( new Office( "b1", "b2", "b4", "b5" ) ), offices );
+
+    verify( repository, times( 1 ) ).findAllByNameGreaterThanOrderByNameAsc( "a1", PageRequest.of( 0, 2 ) );
+    verifyNoMoreInteractions( repository );
+  }
+
+  @Test
+  @DisplayName( "should pass every streamed office to the consumer and detach it from the persistence context" )
+  public void shouldStreamOffices() {
+    final OfficeEntity a = new OfficeEntity( "a1", "a2", "a3", "a4", "a5", "a6" );
+    final OfficeEntity b = new OfficeEntity( "b1", "b2", "b3", "b4", "b5", "b6" );
+
+    final OfficesRepository repository = mock( OfficesRepository.class );
+    when( repository.streamAllByOrderByNameAsc() ).thenReturn( Stream.of( a, b ) );
+
+    final List<Office> offices = new ArrayList<>();
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
+    service.streamAll( offices::add );
+
+    final List<Office> expected = List.of(
+      new Office( "a1", "a2", "a4", "a5" ),
+      new Office( "b1", "b2", "b4", "b5" )
+    );
+    assertEquals( expected, offices );
+
+    verify( repository, times( 1 ) ).streamAllByOrderByNameAsc();
+    verify( entityManager, times( 1 ) ).detach( a );
+    verify( entityManager, times( 1 ) ).detach( b );
+    verifyNoMoreInteractions( repository, entityManager );
+  }
+
+  @Test
+  @DisplayName( "should update the offices found with one query and report the ones not found" )
+  public void shouldUpdateAll() {
+    final OfficeEntity existing = new OfficeEntity( "a1", "o2", "o3", "o4", "o5", "o6" );
+    final Office a = new Office( "a1", "a2", "a4", "a5" );
+    final Office b = new Office( "b1", "b2", "b4", "b5" );
+
+    final OfficesRepository repository = mock( OfficesRepository.class );
+    when( repository.findAllById( eq( List.of( "a1", "b1" ) ) ) ).thenReturn( List.of( existing ) );
+
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
+    final List<OfficeBatchResult> results = service.updateAll( List.of( a, b ) );
+
+    final List<OfficeBatchResult> expected = List.of(
+      OfficeBatchResult.updated( a ),
+      OfficeBatchResult.notFound( "b1" )
+    );
+    assertEquals( expected, results );
+    assertEquals( new OfficeEntity( "a1", "a2", "o3", "a4", "a5", "o6", 1L ), existing );
+
+    verify( repository, times( 1 ) ).findAllById( List.of( "a1", "b1" ) );
+    verifyNoMoreInteractions( repository );
+  }
+
+  @Test
+  @DisplayName( "should delete the offices found with one statement and report the ones not found" )
+  public void shouldDeleteAll() {
+    final OfficeEntity existing = new OfficeEntity( "a1", "a2", "a3", "a4", "a5", "a6" );
+
+    final OfficesRepository repository = mock( OfficesRepository.class );
+    when( repository.findAllById( eq( List.of( "a1", "b1" ) ) ) ).thenReturn( List.of( existing ) );
+    doNothing().when( repository ).deleteInBatch( eq( List.of( existing ) ) );
+
+    final ContactUsService service = new JpaContactUsService( repository, entityManager );
+    final List<OfficeBatchResult> results = service.deleteAll( List.of( "a1", "b1" ) );
+
+    final List<OfficeBatchResult> expected = List.of(
+      OfficeBatchResult.deleted( new Office( "a1", "a2", "a4", "a5" ) ),
+      OfficeBatchResult.notFound( "b1" )
+    );
+    assertEquals( expected, results );
+
+    verify( repository, times( 1 ) ).findAllById( List.of( "a1", "b1" ) );
+    verify( repository, times( 1 ) ).deleteInBatch( List.of( existing ) );
+    verifyNoMoreInteractions( repository );
   }
 }
@@ -0,0 +1,70 @@
+package demo.boot.office;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@DisplayName( "Office change listener" )
+public class OfficeChangeListenerTest {
+
+  private final MockClock clock = new MockClock();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry( SimpleConfig.DEFAULT, clock );
+  private final OfficeSnapshotCacheDecorator cache = mock( OfficeSnapshotCacheDecorator.class );
+
+  @Test
+  @DisplayName( "should move the offices once to the latest version of all the notifications received together" )
+  public void shouldMoveToLatestVersionOnce() {
+    final OfficeChangeListener subject = new OfficeChangeListener( new DataSourceProperties(), cache,
+      new ObjectMapper(), registry, Duration.ofMillis( 500 ), Duration.ofSeconds( 5 ) );
+
+    subject.handle( List.of(
+      "{\"operation\":\"UPDATE\",\"rows\":1,\"version\":8,\"at\":1}",
+      "{\"operation\":\"DELETE\",\"rows\":3,\"version\":7,\"at\":1}"
+    ) );
+
+    assertThat( registry.counter( "app.office.change.notifications" ).count() ).isEqualTo( 2D );
+    verify( cache, times( 1 ) ).changedTo( 8L );
+    verifyNoMoreInteractions( cache );
+  }
+
+  @Test
+  @DisplayName( "should record the time from the change in the database until the offices were invalidated" )
+  public void shouldRecordLag() {
+    final OfficeChangeListener subject = new OfficeChangeListener( new DataSourceProperties(), cache,
+      new ObjectMapper(), registry, Duration.ofMillis( 500 ), Duration.ofSeconds( 5 ) );
+    final long changedAt = clock.wallTime();
+    clock.add( Duration.ofMillis( 7 ) );
+
+    subject.handle( List.of( "{\"operation\":\"UPDATE\",\"rows\":1,\"at\":" + changedAt + "}" ) );
+
+    assertThat( registry.timer( "app.office.change.lag" ).count() ).isEqualTo( 1L );
+    assertThat( registry.timer( "app.office.change.lag" ).totalTime( TimeUnit.MILLISECONDS ) ).isEqualTo( 7D );
+  }
+
+  @Test
+  @DisplayName( "should still invalidate the offices, from the database, when the notification cannot be read" )
+  public void shouldInvalidateOnUnreadableNotification() {
+    final OfficeChangeListener subject = new OfficeChangeListener( new DataSourceProperties(), cache,
+      new ObjectMapper(), registry, Duration.ofMillis( 500 ), Duration.ofSeconds( 5 ) );
+
+    subject.handle( List.of( "not json" ) );
+
+    assertThat( registry.timer( "app.office.change.lag" ).count() ).isEqualTo( 0L );
+    verify( cache, times( 1 ) ).invalidate();
+    verifyNoMoreInteractions( cache );
+  }
+}
@@ -7,22 +7,35 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @DisplayName( "Office controller" )
 @WebMvcTest( OfficeController.class )
+@Import( { OfficeDirectoryVersion.class, OfficeResponseCache.class } )
 public class OfficeControllerTest {
 
   @Autowired
@@ -34,9 +47,19 @@ public class OfficeControllerTest {
   @MockBean
   private ContactUsService service;
 
+  /* Only asked for the directory version, when the context starts */
+  @MockBean
+  private OfficesRepository repository;
+
+  @Autowired
+  private OfficeDirectoryVersion version;
+
   @BeforeEach
   public void setUp(){
     reset(service);
+
+    /* The serialised offices are kept across tests, unless the directory moves to a new version */
+    version.advanceTo( version.current() + 1 );
   }
 
   @Test
@@ -116,4 +139,268 @@ public class OfficeControllerTest {
     verify( service, times( 1 ) ).list();
     verifyNoMoreInteractions(service);
   }
+
+  @Test
+  @DisplayName( "should return the directory version as a strong ETag together with the cache control header" )
+  public void shouldReturnETag() throws Exception {
+    mockMvc.perform( get( "/offices" ) )
+      .andExpect( status().isOk() )
+      .andExpect( header().string( "ETag", String.format( "\"%d\"", version.current() ) ) )
+      .andExpect( header().string( "Cache-Control", "no-cache" ) )
+    ;
+  }
+
+  @Test
+  @DisplayName( "should return not modified without calling the service when the ETag matches the directory version" )
+  public void shouldReturnNotModified() throws Exception {
+    final String etag = String.format( "\"%d\"", version.current() );
+
+    mockMvc.perform( get( "/offices/germany" ).header( "If-None-Match", etag ) )
+      .andExpect( status().isNotModified() )
+      .andExpect( header().string( "ETag", etag ) )
+      .andExpect( content().string( "" ) )
+    ;
+
+    verifyNoInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should return the offices when the ETag belongs to an older directory version" )
+  public void shouldReturnOfficesWhenETagIsStale() throws Exception {
+    final String etag = String.format( "\"%d\"", version.current() );
+    version.advanceTo( version.current() + 1 );
+
+    mockMvc.perform( get( "/offices" ).header( "If-None-Match", etag ) )
+      .andExpect( status().isOk() )
+      .andExpect( header().string( "ETag", String.format( "\"%d\"", version.current() ) ) )
+    ;
+
+    verify( service, times( 1 ) ).list();
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should return a page of offices with a link to the next page when the page is full" )
+  public void shouldReturnPageWithNextLink() throws Exception {
+    final Office cologne =
+      new Office( "ThoughtWorks Cologne",
+        "Lichtstr. 43i, 50825 Cologne, Germany",
+        "+49 221 64 30 70 63",
+        "contact-de@thoughtworks.com" );
+    when( service.listAfter( eq( "ThoughtWorks Berlin" ), eq( 1 ) ) ).thenReturn( List.of( cologne ) );
+
+    mockMvc.perform( get( "/offices" ).param( "after", "ThoughtWorks Berlin" ).param( "limit", "1" ) )
+      .andExpect( status().isOk() )
+      .andExpect( jsonPath( "$", hasSize( 1 ) ) )
+      .andExpect( jsonPath( "$.[0].name", is( cologne.getName() ) ) )
+      .andExpect( header().string( "Link", "</offices?after=ThoughtWorks%20Cologne&limit=1>; rel=\"next\"" ) )
+    ;
+
+    verify( service, times( 1 ) ).listAfter( "ThoughtWorks Berlin", 1 );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should not return a link to the next page when the page is not full" )
+  public void shouldReturnLastPage() throws Exception {
+    when( service.listAfter( isNull(), eq( 10 ) ) ).thenReturn( List.of() );
+
+    mockMvc.perform( get( "/offices" ).param( "limit", "10" ) )
+      .andExpect( status().isOk() )
+      .andExpect( jsonPath( "$", hasSize( 0 ) ) )
+      .andExpect( header().doesNotExist( "Link" ) )
+    ;
+
+    verify( service, times( 1 ) ).listAfter( null, 10 );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should reject a page size smaller than one" )
+  public void shouldRejectInvalidPageSize() throws Exception {
+    mockMvc.perform( get( "/offices" ).param( "limit", "0" ) )
+      .andExpect( status().isBadRequest() );
+
+    verifyNoInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should stream the offices as newline delimited JSON" )
+  public void shouldStreamOffices() throws Exception {
+    final Office cologne = new Office( "ThoughtWorks Cologne", "a2", "a3", "a4" );
+    final Office london = new Office( "ThoughtWorks London", "b2", "b3", "b4" );
+    doAnswer( invocation -> {
+      final Consumer<Office> consumer = invocation.getArgument( 0 );
+      consumer.accept( cologne );
+      consumer.accept( london );
+      return null;
+    } ).when( service ).streamAll( any() );
+
+    final MvcResult result = mockMvc.perform( get( "/offices" ).accept( OfficeController.APPLICATION_NDJSON ) )
+      .andExpect( request().asyncStarted() )
+      .andReturn();
+
+    mockMvc.perform( asyncDispatch( result ) )
+      .andExpect( status().isOk() )
+      .andExpect( header().string( "Content-Type", OfficeController.APPLICATION_NDJSON_VALUE ) )
+      .andExpect( content().string(
+        objectMapper.writeValueAsString( cologne ) + "\n" + objectMapper.writeValueAsString( london ) + "\n" ) )
+    ;
+
+    verify( service, times( 1 ) ).streamAll( any() );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should update the offices in one batch and return the result of each office" )
+  public void shouldUpdateAll() throws Exception {
+    final Office cologne = new Office( "ThoughtWorks Cologne", "a2", "a3", "a4" );
+    final Office paris = new Office( "ThoughtWorks Paris", "b2", "b3", "b4" );
+    when( service.updateAll( eq( List.of( cologne, paris ) ) ) ).thenReturn( List.of(
+      OfficeBatchResult.updated( cologne ),
+      OfficeBatchResult.notFound( paris.getName() )
+    ) );
+
+    mockMvc.perform(
+      post( "/offices/batch/update" )
+        .contentType( MediaType.APPLICATION_JSON )
+        .content( objectMapper.writeValueAsString( List.of( cologne, paris ) ) )
+    )
+      .andExpect( status().isOk() )
+      .andExpect( jsonPath( "$", hasSize( 2 ) ) )
+      .andExpect( jsonPath( "$.[0].name", is( cologne.getName() ) ) )
+      .andExpect( jsonPath( "$.[0].status", is( "UPDATED" ) ) )
+      .andExpect( jsonPath( "$.[1].name", is( paris.getName() ) ) )
+      .andExpect( jsonPath( "$.[1].status", is( "NOT_FOUND" ) ) )
+    ;
+
+    verify( service, times( 1 ) ).updateAll( List.of( cologne, paris ) );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should delete the offices in one batch and return the result of each office" )
+  public void shouldDeleteAll() throws Exception {
+    final Office cologne = new Office( "ThoughtWorks Cologne", "a2", "a3", "a4" );
+    final List<String> names = List.of( cologne.getName(), "ThoughtWorks Paris" );
+    when( service.deleteAll( eq( names ) ) ).thenReturn( List.of(
+      OfficeBatchResult.deleted( cologne ),
+      OfficeBatchResult.notFound( "ThoughtWorks Paris" )
+    ) );
+
+    mockMvc.perform(
+      post( "/offices/batch/delete" )
+        .contentType( MediaType.APPLICATION_JSON )
+        .content( objectMapper.writeValueAsString( names ) )
+    )
+      .andExpect( status().isOk() )
+      .andExpect( jsonPath( "$", hasSize( 2 ) ) )
+      .andExpect( jsonPath( "$.[0].status", is( "DELETED" ) ) )
+      .andExpect( jsonPath( "$.[1].status", is( "NOT_FOUND" ) ) )
+    ;
+
+    verify( service, times( 1 ) ).deleteAll( names );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should serialise the offices once per directory version" )
+  public void shouldReuseSerialisedOffices() throws Exception {
+    final Office cologne = new Office( "ThoughtWorks Cologne", "a2", "a3", "a4" );
+    when( service.list() ).thenReturn( List.of( cologne ) );
+
+    for ( int i = 0; i < 2; i++ ) {
+      mockMvc.perform( get( "/offices" ) )
+        .andExpect( status().isOk() )
+        .andExpect( header().string( "Content-Type", MediaType.APPLICATION_JSON_VALUE ) )
+        .andExpect( jsonPath( "$.[0].name", is( cologne.getName() ) ) )
+      ;
+    }
+
+    version.advanceTo( version.current() + 1 );
+    mockMvc.perform( get( "/offices" ) )
+      .andExpect( status().isOk() );
+
+    verify( service, times( 2 ) ).list();
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should return the gzipped offices when the client accepts gzip" )
+  public void shouldReturnGzippedOffices() throws Exception {
+    final List<Office> offices = IntStream
+      .range( 0, 100 )
+      .mapToObj( i -> new Office( "ThoughtWorks " + i, "Address " + i, "Phone " + i, "Email " + i ) )
+      .collect( Collectors.toList() );
+    when( service.findAllInCountry( eq( "germany" ) ) ).thenReturn( offices );
+
+    final MvcResult result = mockMvc.perform( get( "/offices/germany" ).header( "Accept-Encoding", "gzip, deflate" ) )
+      .andExpect( status().isOk() )
+      .andExpect( header().string( "Content-Encoding", "gzip" ) )
+      .andExpect( header().string( "Vary", "Accept-Encoding" ) )
+      .andExpect( header().string( "ETag", String.format( "\"%d-gzip\"", version.current() ) ) )
+      .andReturn();
+
+    try ( GZIPInputStream input =
+            new GZIPInputStream( new ByteArrayInputStream( result.getResponse().getContentAsByteArray() ) ) ) {
+      assertThat( input.readAllBytes() ).isEqualTo( objectMapper.writeValueAsBytes( offices ) );
+    }
+  }
+
+  @Test
+  @DisplayName( "should return not modified with the ETag of the gzipped offices the client holds" )
+  public void shouldReturnNotModifiedForGzippedOffices() throws Exception {
+    final String etag = String.format( "\"%d-gzip\"", version.current() );
+
+    mockMvc.perform( get( "/offices/germany" ).header( "If-None-Match", etag ).header( "Accept-Encoding", "gzip" ) )
+      .andExpect( status().isNotModified() )
+      .andExpect( header().string( "ETag", etag ) )
+      .andExpect( header().string( "Vary", "Accept-Encoding" ) )
+    ;
+
+    verifyNoInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should return the offices found by the search, capping the number of results" )
+  public void shouldSearch() throws Exception {
+    final Office cologne = new Office( "ThoughtWorks Cologne", "a2", "a3", "a4" );
+    when( service.search( eq( "col" ), eq( 50 ) ) ).thenReturn( List.of( cologne ) );
+
+    mockMvc.perform( get( "/offices/search" ).param( "q", "col" ).param( "limit", "500" ) )
+      .andExpect( status().isOk() )
+      .andExpect( jsonPath( "$", hasSize( 1 ) ) )
+      .andExpect( jsonPath( "$.[0].name", is( cologne.getName() ) ) )
+    ;
+
+    verify( service, times( 1 ) ).search( "col", 50 );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should return the nearest offices with their coordinates" )
+  public void shouldReturnNearest() throws Exception {
+    final Office cologne = new Office( "ThoughtWorks Cologne", "a2", "a3", "a4", 1L, 50.9453, 6.9180 );
+    when( service.findNearest( eq( 51.2277 ), eq( 6.7735 ), eq( 1 ) ) ).thenReturn( List.of( cologne ) );
+
+    mockMvc.perform( get( "/offices/nearest" ).param( "lat", "51.2277" ).param( "lon", "6.7735" ).param( "k", "1" ) )
+      .andExpect( status().isOk() )
+      .andExpect( jsonPath( "$", hasSize( 1 ) ) )
+      .andExpect( jsonPath( "$.[0].name", is( cologne.getName() ) ) )
+      .andExpect( jsonPath( "$.[0].latitude", is( 50.9453 ) ) )
+      .andExpect( jsonPath( "$.[0].longitude", is( 6.9180 ) ) )
+    ;
+
+    verify( service, times( 1 ) ).findNearest( 51.2277, 6.7735, 1 );
+    verifyNoMoreInteractions( service );
+  }
+
+  @Test
+  @DisplayName( "should reject coordinates outside of the valid range" )
+  public void shouldRejectInvalidCoordinates() throws Exception {
+    mockMvc.perform( get( "/offices/nearest" ).param( "lat", "91" ).param( "lon", "0" ) )
+      .andExpect( status().isBadRequest() );
+
+    verifyNoInteractions( service );
+  }
 }
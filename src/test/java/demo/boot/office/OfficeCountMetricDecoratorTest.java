@@ -1,7 +1,7 @@
 package demo.boot.office;
 
-import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
@@ -10,7 +10,7 @@ import java.util.Optional;
 
 import static demo.boot.office.OfficeCountMetricDecorator.Factory;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -21,142 +21,211 @@ import static org.mockito.Mockito.when;
 @DisplayName( "Office count metric" )
 public class OfficeCountMetricDecoratorTest {
 
-  @Test
-  @DisplayName( "should set the counter to the number of offices in the repository" )
-  public void shouldInitCounter() {
-    final long initialNumberOfOffices = 10L;
-    final String counterName = "app.office.count";
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+  private final OfficesRepository repository = mock( OfficesRepository.class );
+  private final JpaContactUsService target = mock( JpaContactUsService.class );
 
-    final MeterRegistry registry = mock( MeterRegistry.class );
-    final Counter counter = mock( Counter.class );
-    final OfficesRepository repository = mock( OfficesRepository.class );
-    final JpaContactUsService target = mock( JpaContactUsService.class );
+  private double officeCount() {
+    return registry.get( "app.office.count" ).gauge().value();
+  }
+
+  private long timerCount( final String method, final String outcome ) {
+    return registry.get( "app.office.service" ).tag( "method", method ).tag( "outcome", outcome ).timer().count();
+  }
 
-    when( registry.counter( eq( counterName ) ) ).thenReturn( counter );
+  @Test
+  @DisplayName( "should set the gauge to the number of offices in the repository" )
+  public void shouldInitGauge() {
+    final long initialNumberOfOffices = 10L;
     when( repository.count() ).thenReturn( initialNumberOfOffices );
 
     final Factory factory = new Factory();
     final OfficeCountMetricDecorator decorator = factory.create( registry, repository, target );
     assertThat( decorator ).isNotNull();
+    assertThat( officeCount() ).isEqualTo( 10D );
 
-    verify( registry, times( 1 ) ).counter( counterName );
     verify( repository, times( 1 ) ).count();
-    verify( counter, times( 1 ) ).increment( eq( (double) initialNumberOfOffices ) );
-    verifyNoMoreInteractions( registry, repository, counter, target );
+    verifyNoMoreInteractions( repository, target );
   }
 
   @Test
-  @DisplayName( "should call the target list() method without changing the counter's value" )
+  @DisplayName( "should reconcile the gauge with the number of offices in the repository" )
+  public void shouldReconcileGauge() {
+    when( repository.count() ).thenReturn( 10L, 7L );
+
+    final OfficeCountMetricDecorator subject = new OfficeCountMetricDecorator( registry, repository, target );
+    subject.reconcileOfficeCount();
+    assertThat( officeCount() ).isEqualTo( 10D );
+
+    subject.reconcileOfficeCount();
+    assertThat( officeCount() ).isEqualTo( 7D );
+
+    verify( repository, times( 2 ) ).count();
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should call the target list() method and record its latency" )
   public void shouldPassListRequestsThrough() {
-    final Counter counter = mock( Counter.class );
-    final JpaContactUsService target = mock( JpaContactUsService.class );
     final Office office = mock( Office.class );
 
     final List<Office> expected = List.of( office );
     when( target.list() ).thenReturn( expected );
 
-    final ContactUsService subject = new OfficeCountMetricDecorator( counter, target );
+    final ContactUsService subject = new OfficeCountMetricDecorator( registry, repository, target );
     final List<Office> actual = subject.list();
     assertThat( actual ).isSameAs( expected );
+    assertThat( timerCount( "list", "success" ) ).isEqualTo( 1L );
 
     verify( target, times( 1 ) ).list();
-    verifyNoMoreInteractions( counter, target, office );
+    verifyNoMoreInteractions( repository, target, office );
   }
 
   @Test
-  @DisplayName( "should call the target findOneByName() method without changing the counter's value" )
+  @DisplayName( "should call the target findOneByName() method and record its latency" )
   public void shouldPassFindOneByNameRequestsThrough() {
-    final Counter counter = mock( Counter.class );
-    final JpaContactUsService target = mock( JpaContactUsService.class );
     final Office office = mock( Office.class );
 
     final String name = "office name";
     final Optional<Office> expected = Optional.of( office );
     when( target.findOneByName( same( name ) ) ).thenReturn( expected );
 
-    final ContactUsService subject = new OfficeCountMetricDecorator( counter, target );
+    final ContactUsService subject = new OfficeCountMetricDecorator( registry, repository, target );
     final Optional<Office> actual = subject.findOneByName( name );
     assertThat( actual ).isSameAs( expected );
+    assertThat( timerCount( "findOneByName", "success" ) ).isEqualTo( 1L );
 
     verify( target, times( 1 ) ).findOneByName( name );
-    verifyNoMoreInteractions( counter, target, office );
+    verifyNoMoreInteractions( repository, target, office );
   }
 
   @Test
-  @DisplayName( "should call the target findAllInCountry() method without changing the counter's value" )
+  @DisplayName( "should record a not found outcome when the target findOneByName() method finds nothing" )
+  public void shouldRecordNotFound() {
+    final String name = "office name";
+    when( target.findOneByName( same( name ) ) ).thenReturn( Optional.empty() );
+
+    final ContactUsService subject = new OfficeCountMetricDecorator( registry, repository, target );
+    assertThat( subject.findOneByName( name ) ).isEmpty();
+    assertThat( timerCount( "findOneByName", "not_found" ) ).isEqualTo( 1L );
+    assertThat( timerCount( "findOneByName", "success" ) ).isEqualTo( 0L );
+
+    verify( target, times( 1 ) ).findOneByName( name );
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should record an error outcome and rethrow when the target fails" )
+  public void shouldRecordError() {
+    final String country = "Germany";
+    final RuntimeException error = new IllegalStateException( "database is down" );
+    when( target.findAllInCountry( same( country ) ) ).thenThrow( error );
+
+    final ContactUsService subject = new OfficeCountMetricDecorator( registry, repository, target );
+    assertThatThrownBy( () -> subject.findAllInCountry( country ) ).isSameAs( error );
+    assertThat( timerCount( "findAllInCountry", "error" ) ).isEqualTo( 1L );
+
+    verify( target, times( 1 ) ).findAllInCountry( country );
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should call the target findAllInCountry() method without changing the gauge's value" )
   public void shouldPassFindAllInCountryRequestsThrough() {
-    final Counter counter = mock( Counter.class );
-    final JpaContactUsService target = mock( JpaContactUsService.class );
     final Office office = mock( Office.class );
 
     final String country = "Germany";
     final List<Office> expected = List.of( office );
     when( target.findAllInCountry( same( country ) ) ).thenReturn( expected );
 
-    final ContactUsService subject = new OfficeCountMetricDecorator( counter, target );
+    final ContactUsService subject = new OfficeCountMetricDecorator( registry, repository, target );
     final List<Office> actual = subject.findAllInCountry( country );
     assertThat( actual ).isSameAs( expected );
+    assertThat( officeCount() ).isEqualTo( 0D );
 
     verify( target, times( 1 ) ).findAllInCountry( country );
-    verifyNoMoreInteractions( counter, target, office );
+    verifyNoMoreInteractions( repository, target, office );
   }
 
   @Test
-  @DisplayName( "should call the target update() method without changing the counter's value" )
+  @DisplayName( "should call the target update() method without changing the gauge's value" )
   public void shouldPassUpdateRequestsThrough() {
-    final Counter counter = mock( Counter.class );
-    final JpaContactUsService target = mock( JpaContactUsService.class );
     final Office office = mock( Office.class );
 
     final Optional<Office> expected = Optional.of( office );
     when( target.update( same( office ) ) ).thenReturn( expected );
 
-    final ContactUsService subject = new OfficeCountMetricDecorator( counter, target );
+    final ContactUsService subject = new OfficeCountMetricDecorator( registry, repository, target );
     final Optional<Office> actual = subject.update( office );
     assertThat( actual ).isSameAs( expected );
+    assertThat( officeCount() ).isEqualTo( 0D );
 
     verify( target, times( 1 ) ).update( office );
-    verifyNoMoreInteractions( counter, target, office );
+    verifyNoMoreInteractions( repository, target, office );
   }
 
   @Test
-  @DisplayName( "should call the target delete() method for an office that does not exists and without changing the counter's value" )
-  public void shouldPassDeleteRequestsThroughAndDoesNotAdjustTheCounter() {
-    final Counter counter = mock( Counter.class );
-    final JpaContactUsService target = mock( JpaContactUsService.class );
-    final Office office = mock( Office.class );
+  @DisplayName( "should call the target delete() method for an office that does not exists and without changing the gauge's value" )
+  public void shouldPassDeleteRequestsThroughAndDoesNotAdjustTheGauge() {
+    when( repository.count() ).thenReturn( 5L );
 
     final String name = "Office name";
     final Optional<Office> expected = Optional.empty();
     when( target.delete( same( name ) ) ).thenReturn( expected );
 
-    final ContactUsService subject = new OfficeCountMetricDecorator( counter, target );
+    final OfficeCountMetricDecorator subject = new OfficeCountMetricDecorator( registry, repository, target );
+    subject.reconcileOfficeCount();
     final Optional<Office> actual = subject.delete( name );
     assertThat( actual ).isSameAs( expected );
+    assertThat( officeCount() ).isEqualTo( 5D );
 
+    verify( repository, times( 1 ) ).count();
     verify( target, times( 1 ) ).delete( name );
-    verifyNoMoreInteractions( counter, target, office );
+    verifyNoMoreInteractions( repository, target );
   }
 
   @Test
-  @DisplayName( "should call the target delete() method for an office that exists and decrement the counter's value" )
-  public void shouldPassDeleteRequestsThroughAndAdjustTheCounter() {
-    final Counter counter = mock( Counter.class );
-    final JpaContactUsService target = mock( JpaContactUsService.class );
+  @DisplayName( "should call the target delete() method for an office that exists and decrement the gauge's value" )
+  public void shouldPassDeleteRequestsThroughAndAdjustTheGauge() {
     final Office office = mock( Office.class );
+    when( repository.count() ).thenReturn( 5L );
 
     final String name = "Office name";
     final Optional<Office> expected = Optional.of( office );
     when( target.delete( same( name ) ) ).thenReturn( expected );
 
-    final ContactUsService subject = new OfficeCountMetricDecorator( counter, target );
+    final OfficeCountMetricDecorator subject = new OfficeCountMetricDecorator( registry, repository, target );
+    subject.reconcileOfficeCount();
     final Optional<Office> result = subject.delete( name );
-    /* The result will be wrapped in a new Optional, thus we cannot use the isSameAs() for the Optional */
-    assertThat( result ).isEqualTo( expected );
-    assertThat( result.get() ).isSameAs( office );
+    assertThat( result ).isSameAs( expected );
+    assertThat( officeCount() ).isEqualTo( 4D );
 
+    verify( repository, times( 1 ) ).count();
     verify( target, times( 1 ) ).delete( name );
-    verify( counter, times( 1 ) ).increment( -1D );
-    verifyNoMoreInteractions( counter, target, office );
+    verifyNoMoreInteractions( repository, target, office );
+  }
+
+  @Test
+  @DisplayName( "should call the target deleteAll() method and decrement the gauge's value by the number of offices deleted" )
+  public void shouldPassDeleteAllRequestsThroughAndAdjustTheGauge() {
+    final Office office = mock( Office.class );
+    when( repository.count() ).thenReturn( 5L );
+
+    final List<String> names = List.of( "Office name", "Other office name" );
+    final List<OfficeBatchResult> expected = List.of(
+      new OfficeBatchResult( "Office name", OfficeBatchResult.Status.DELETED, office ),
+      OfficeBatchResult.notFound( "Other office name" )
+    );
+    when( target.deleteAll( same( names ) ) ).thenReturn( expected );
+
+    final OfficeCountMetricDecorator subject = new OfficeCountMetricDecorator( registry, repository, target );
+    subject.reconcileOfficeCount();
+    final List<OfficeBatchResult> actual = subject.deleteAll( names );
+    assertThat( actual ).isSameAs( expected );
+    assertThat( officeCount() ).isEqualTo( 4D );
+
+    verify( repository, times( 1 ) ).count();
+    verify( target, times( 1 ) ).deleteAll( names );
+    verifyNoMoreInteractions( repository, target, office );
   }
 }
@@ -0,0 +1,78 @@
+package demo.boot.office;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName( "Office search index" )
+public class OfficeSearchIndexTest {
+
+  private static final Office COLOGNE =
+    new Office( "ThoughtWorks Cologne", "Lichtstr. 43i, 50825 K\u00f6ln", "+49 221", "contact-de@thoughtworks.com" );
+  private static final Office LONDON =
+    new Office( "ThoughtWorks London", "1 Cologne Street, London", "+44 20", "contact-uk@thoughtworks.com" );
+  private static final Office MANCHESTER =
+    new Office( "ThoughtWorks Manchester", "Federation House, Manchester", "+44 161", null );
+
+  private static final Map<String, String> COUNTRIES = Map.of(
+    COLOGNE.getName(), "Germany",
+    LONDON.getName(), "UK",
+    MANCHESTER.getName(), "UK"
+  );
+
+  private static OfficeSearchIndex index( final Office... offices ) {
+    return OfficeSearchIndex.EMPTY.withIndexed( List.of( offices ), office -> COUNTRIES.get( office.getName() ) );
+  }
+
+  @Test
+  @DisplayName( "should find the offices where every query word is the start of a word" )
+  public void shouldMatchWordPrefixes() {
+    final OfficeSearchIndex subject = index( COLOGNE, LONDON, MANCHESTER );
+
+    assertThat( subject.search( "man", 10 ) ).containsExactly( MANCHESTER );
+    assertThat( subject.search( "uk lon", 10 ) ).containsExactly( LONDON );
+    assertThat( subject.search( "ger", 10 ) ).containsExactly( COLOGNE );
+    assertThat( subject.search( "ondon", 10 ) ).isEmpty();
+    assertThat( subject.search( " ", 10 ) ).isEmpty();
+  }
+
+  @Test
+  @DisplayName( "should rank a match in the name above a match in the address" )
+  public void shouldRankByField() {
+    final OfficeSearchIndex subject = index( LONDON, COLOGNE );
+
+    assertThat( subject.search( "cologne", 10 ) ).containsExactly( COLOGNE, LONDON );
+    assertThat( subject.search( "cologne", 1 ) ).containsExactly( COLOGNE );
+  }
+
+  @Test
+  @DisplayName( "should ignore the case and the accents" )
+  public void shouldNormalise() {
+    final OfficeSearchIndex subject = index( COLOGNE, LONDON );
+
+    assertThat( subject.search( "KOLN", 10 ) ).containsExactly( COLOGNE );
+    assertThat( subject.search( "l", 10 ) ).containsExactly( LONDON, COLOGNE );
+  }
+
+  @Test
+  @DisplayName( "should replace and remove offices without changing the original index" )
+  public void shouldApplyChanges() {
+    final OfficeSearchIndex original = index( COLOGNE, LONDON );
+    final Office moved = new Office( LONDON.getName(), "Soho Square, London", "+44 20", null );
+
+    final OfficeSearchIndex updated = original.withIndexed( List.of( moved ), office -> "UK" );
+    assertThat( updated.search( "soho", 10 ) ).containsExactly( moved );
+    assertThat( updated.search( "cologne street", 10 ) ).isEmpty();
+
+    final OfficeSearchIndex deleted = updated.withDeleted( List.of( COLOGNE.getName() ) );
+    assertThat( deleted.search( "cologne", 10 ) ).isEmpty();
+    assertThat( deleted.search( "thoughtworks", 10 ) ).containsExactly( moved );
+
+    assertThat( original.search( "cologne", 10 ) ).containsExactly( COLOGNE, LONDON );
+    assertThat( original.search( "soho", 10 ) ).isEmpty();
+  }
+}
@@ -0,0 +1,266 @@
+package demo.boot.office;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@DisplayName( "Office snapshot cache" )
+public class OfficeSnapshotCacheDecoratorTest {
+
+  private static final OfficeWithCountry COLOGNE =
+    new OfficeWithCountry( "ThoughtWorks Cologne", "a2", "a4", "a5", 0L, null, null, "Germany" );
+  private static final OfficeWithCountry LONDON =
+    new OfficeWithCountry( "ThoughtWorks London", "b2", "b4", "b5", 0L, null, null, "UK" );
+
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+  private final OfficesRepository repository = mock( OfficesRepository.class );
+  /* Only asked for the directory version, which starts at zero */
+  private final OfficesRepository directory = mock( OfficesRepository.class );
+  private final OfficeDirectoryVersion version = new OfficeDirectoryVersion( directory );
+  private final JpaContactUsService target = mock( JpaContactUsService.class );
+
+  @Test
+  @DisplayName( "should load the offices from the repository once and serve the following reads from memory" )
+  public void shouldLoadOnce() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final ContactUsService subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+
+    final List<Office> first = subject.list();
+    final List<Office> second = subject.list();
+
+    assertThat( first ).containsExactly(
+      new Office( "ThoughtWorks Cologne", "a2", "a4", "a5" ),
+      new Office( "ThoughtWorks London", "b2", "b4", "b5" )
+    );
+    assertThat( second ).isSameAs( first );
+    assertThat( registry.counter( "app.office.cache.requests", "result", "miss" ).count() ).isEqualTo( 1D );
+    assertThat( registry.counter( "app.office.cache.requests", "result", "hit" ).count() ).isEqualTo( 1D );
+    assertThat( registry.timer( "app.office.cache.rebuild" ).count() ).isEqualTo( 1L );
+
+    verify( repository, times( 1 ) ).findAllOfficesWithCountry();
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should find the office by name without calling the target" )
+  public void shouldFindOneByName() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final ContactUsService subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+
+    assertThat( subject.findOneByName( "ThoughtWorks London" ) )
+      .isEqualTo( Optional.of( new Office( "ThoughtWorks London", "b2", "b4", "b5" ) ) );
+    assertThat( subject.findOneByName( "ThoughtWorks Paris" ) ).isEmpty();
+
+    verify( repository, times( 1 ) ).findAllOfficesWithCountry();
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should find the offices in a country ignoring the case without calling the target" )
+  public void shouldFindAllInCountry() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final ContactUsService subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+
+    assertThat( subject.findAllInCountry( "germany" ) )
+      .containsExactly( new Office( "ThoughtWorks Cologne", "a2", "a4", "a5" ) );
+    assertThat( subject.findAllInCountry( "France" ) ).isEmpty();
+
+    verify( repository, times( 1 ) ).findAllOfficesWithCountry();
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should patch the snapshot when an office is updated" )
+  public void shouldPatchOnUpdate() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final ContactUsService subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+    subject.list();
+
+    final long before = version.current();
+    final Office office = new Office( "ThoughtWorks London", "c2", "c4", "c5" );
+    when( target.update( same( office ) ) ).thenReturn( Optional.of( office ) );
+    when( directory.findDirectoryVersion() ).thenReturn( 1L );
+
+    assertThat( subject.update( office ) ).isEqualTo( Optional.of( office ) );
+    assertThat( version.current() ).isGreaterThan( before );
+    assertThat( subject.findAllInCountry( "UK" ) ).containsExactly( office );
+    assertThat( subject.findOneByName( "ThoughtWorks London" ) ).isEqualTo( Optional.of( office ) );
+
+    verify( repository, times( 1 ) ).findAllOfficesWithCountry();
+    verify( target, times( 1 ) ).update( office );
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should patch the snapshot when an office is deleted" )
+  public void shouldPatchOnDelete() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final ContactUsService subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+    subject.list();
+
+    final String name = "ThoughtWorks Cologne";
+    when( target.delete( eq( name ) ) ).thenReturn( Optional.of( new Office( name, "a2", "a4", "a5" ) ) );
+    when( directory.findDirectoryVersion() ).thenReturn( 1L );
+
+    subject.delete( name );
+    assertThat( subject.findOneByName( name ) ).isEmpty();
+    assertThat( subject.findAllInCountry( "Germany" ) ).isEmpty();
+    assertThat( subject.list() ).hasSize( 1 );
+
+    verify( repository, times( 1 ) ).findAllOfficesWithCountry();
+    verify( target, times( 1 ) ).delete( name );
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should rebuild the snapshot rather than patch it when the offices were changed elsewhere in between" )
+  public void shouldRebuildWhenChangedElsewhere() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final ContactUsService subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+    subject.list();
+
+    final Office office = new Office( "ThoughtWorks London", "c2", "c4", "c5" );
+    when( target.update( same( office ) ) ).thenReturn( Optional.of( office ) );
+    when( directory.findDirectoryVersion() ).thenReturn( 2L );
+
+    subject.update( office );
+    subject.list();
+
+    assertThat( version.current() ).isEqualTo( 2L );
+    verify( repository, times( 2 ) ).findAllOfficesWithCountry();
+    verify( target, times( 1 ) ).update( office );
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should rebuild the snapshot once told of a later directory version, and not for an earlier one" )
+  public void shouldRebuildWhenChanged() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final OfficeSnapshotCacheDecorator subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+    subject.list();
+
+    subject.changedTo( 3L );
+    subject.list();
+    subject.changedTo( 2L );
+    subject.list();
+
+    assertThat( version.current() ).isEqualTo( 3L );
+    verify( repository, times( 2 ) ).findAllOfficesWithCountry();
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should leave the snapshot as is when the target did not find the office" )
+  public void shouldNotPatchWhenNotFound() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final ContactUsService subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+    final List<Office> before = subject.list();
+
+    final String name = "ThoughtWorks Paris";
+    when( target.delete( eq( name ) ) ).thenReturn( Optional.empty() );
+
+    final long versionBefore = version.current();
+    assertThat( subject.delete( name ) ).isEmpty();
+    assertThat( subject.list() ).isSameAs( before );
+    assertThat( version.current() ).isEqualTo( versionBefore );
+
+    verify( repository, times( 1 ) ).findAllOfficesWithCountry();
+    verify( target, times( 1 ) ).delete( name );
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should rebuild the snapshot from the repository once invalidated" )
+  public void shouldRebuildWhenInvalidated() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final OfficeSnapshotCacheDecorator subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+    subject.list();
+
+    when( directory.findDirectoryVersion() ).thenReturn( 1L );
+    subject.invalidate();
+    subject.list();
+
+    assertThat( registry.counter( "app.office.cache.requests", "result", "miss" ).count() ).isEqualTo( 2D );
+
+    verify( repository, times( 2 ) ).findAllOfficesWithCountry();
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should return the page of offices that follow the given name from memory" )
+  public void shouldListAfter() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final ContactUsService subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+
+    assertThat( subject.listAfter( null, 1 ) )
+      .containsExactly( new Office( "ThoughtWorks Cologne", "a2", "a4", "a5" ) );
+    assertThat( subject.listAfter( "ThoughtWorks Cologne", 10 ) )
+      .containsExactly( new Office( "ThoughtWorks London", "b2", "b4", "b5" ) );
+    assertThat( subject.listAfter( "ThoughtWorks Dublin", 10 ) )
+      .containsExactly( new Office( "ThoughtWorks London", "b2", "b4", "b5" ) );
+    assertThat( subject.listAfter( "ThoughtWorks London", 10 ) ).isEmpty();
+
+    verify( repository, times( 1 ) ).findAllOfficesWithCountry();
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should patch the snapshot once with all the offices updated in a batch" )
+  public void shouldPatchOnUpdateAll() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final ContactUsService subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+    subject.list();
+
+    final long before = version.current();
+    final Office london = new Office( "ThoughtWorks London", "c2", "c4", "c5" );
+    final Office paris = new Office( "ThoughtWorks Paris", "d2", "d4", "d5" );
+    final List<Office> offices = List.of( london, paris );
+    when( target.updateAll( same( offices ) ) ).thenReturn( List.of(
+      OfficeBatchResult.updated( london ),
+      OfficeBatchResult.notFound( paris.getName() )
+    ) );
+    when( directory.findDirectoryVersion() ).thenReturn( 1L );
+
+    subject.updateAll( offices );
+    assertThat( version.current() ).isEqualTo( before + 1 );
+    assertThat( subject.findOneByName( "ThoughtWorks London" ) ).isEqualTo( Optional.of( london ) );
+    assertThat( subject.findOneByName( "ThoughtWorks Paris" ) ).isEmpty();
+
+    verify( repository, times( 1 ) ).findAllOfficesWithCountry();
+    verify( target, times( 1 ) ).updateAll( offices );
+    verifyNoMoreInteractions( repository, target );
+  }
+
+  @Test
+  @DisplayName( "should search the offices from memory and keep the index up to date when an office is updated" )
+  public void shouldSearch() {
+    when( repository.findAllOfficesWithCountry() ).thenReturn( List.of( COLOGNE, LONDON ) );
+    final ContactUsService subject = new OfficeSnapshotCacheDecorator( registry, version, repository, target );
+
+    assertThat( subject.search( "uk", 10 ) ).containsExactly( new Office( "ThoughtWorks London", "b2", "b4", "b5" ) );
+
+    final Office office = new Office( "ThoughtWorks London", "Soho", "c4", "c5" );
+    when( target.update( same( office ) ) ).thenReturn( Optional.of( office ) );
+    when( directory.findDirectoryVersion() ).thenReturn( 1L );
+    subject.update( office );
+
+    assertThat( subject.search( "soho", 10 ) ).containsExactly( office );
+
+    verify( repository, times( 1 ) ).findAllOfficesWithCountry();
+    verify( target, times( 1 ) ).update( office );
+    verifyNoMoreInteractions( repository, target );
+  }
+}
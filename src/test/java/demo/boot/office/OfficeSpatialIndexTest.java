@@ -0,0 +1,81 @@
+package demo.boot.office;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName( "Office spatial index" )
+public class OfficeSpatialIndexTest {
+
+  private static final Office COLOGNE = located( "ThoughtWorks Cologne", 50.9453, 6.9180 );
+  private static final Office BERLIN = located( "ThoughtWorks Berlin", 52.5077, 13.3925 );
+  private static final Office LONDON = located( "ThoughtWorks London", 51.5133, -0.1340 );
+  private static final Office MANCHESTER = located( "ThoughtWorks Manchester", 53.4860, -2.2390 );
+
+  private static Office located( final String name, final double latitude, final double longitude ) {
+    return new Office( name, "Address", "Phone", "Email", 0L, latitude, longitude );
+  }
+
+  @Test
+  @DisplayName( "should return the k nearest offices, nearest first" )
+  public void shouldReturnNearest() {
+    final OfficeSpatialIndex subject = OfficeSpatialIndex.of( List.of( COLOGNE, BERLIN, LONDON, MANCHESTER ) );
+
+    /* Dusseldorf */
+    assertThat( subject.nearest( 51.2277, 6.7735, 2 ) ).containsExactly( COLOGNE, BERLIN );
+    /* Leeds */
+    assertThat( subject.nearest( 53.8008, -1.5491, 1 ) ).containsExactly( MANCHESTER );
+    assertThat( subject.nearest( 0, 0, 10 ) ).hasSize( 4 );
+  }
+
+  @Test
+  @DisplayName( "should leave out the offices without coordinates" )
+  public void shouldSkipOfficesWithoutCoordinates() {
+    final Office unknown = new Office( "ThoughtWorks Unknown", "Address", "Phone", "Email" );
+    final OfficeSpatialIndex subject = OfficeSpatialIndex.of( List.of( unknown, LONDON ) );
+
+    assertThat( subject.nearest( 0, 0, 5 ) ).containsExactly( LONDON );
+    assertThat( OfficeSpatialIndex.of( List.of( unknown ) ).nearest( 0, 0, 5 ) ).isEmpty();
+  }
+
+  @Test
+  @DisplayName( "should find the same offices as comparing the distance to every office, across the date line" )
+  public void shouldMatchLinearScan() {
+    final Random random = new Random( 42 );
+    final List<Office> offices = new ArrayList<>();
+    for ( int i = 0; i < 1000; i++ ) {
+      offices.add( located( "Office " + i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180 ) );
+    }
+    final OfficeSpatialIndex subject = OfficeSpatialIndex.of( offices );
+
+    for ( int i = 0; i < 100; i++ ) {
+      final double latitude = random.nextDouble() * 180 - 90;
+      final double longitude = i % 2 == 0 ? 179.9 : random.nextDouble() * 360 - 180;
+
+      final List<Office> expected = offices
+        .stream()
+        .sorted( Comparator.comparingDouble( office -> greatCircle( office, latitude, longitude ) ) )
+        .limit( 7 )
+        .collect( Collectors.toList() );
+
+      assertThat( subject.nearest( latitude, longitude, 7 ) ).containsExactlyElementsOf( expected );
+    }
+  }
+
+  private static double greatCircle( final Office office, final double latitude, final double longitude ) {
+    final double phi1 = Math.toRadians( office.getLatitude() );
+    final double phi2 = Math.toRadians( latitude );
+    final double deltaPhi = phi2 - phi1;
+    final double deltaLambda = Math.toRadians( longitude - office.getLongitude() );
+    final double a = Math.pow( Math.sin( deltaPhi / 2 ), 2 )
+      + Math.cos( phi1 ) * Math.cos( phi2 ) * Math.pow( Math.sin( deltaLambda / 2 ), 2 );
+    return 2 * Math.atan2( Math.sqrt( a ), Math.sqrt( 1 - a ) );
+  }
+}